@@ -0,0 +1,246 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import com.shootoff.camera.Shot;
+import com.shootoff.metrics.FlightRecorderEvents.AudioSpan;
+import com.shootoff.metrics.FlightRecorderEvents.ForkSpan;
+import com.shootoff.metrics.FlightRecorderEvents.FrameSpan;
+import com.shootoff.metrics.FlightRecorderEvents.ShotStage;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits {@link FlightRecorderEvents} as Flight Recorder events. This is the
+ * only class that references <code>jdk.jfr</code>, thus it is compiled in its
+ * own source set when the building JDK has Flight Recorder and is only loaded
+ * (reflectively) when the running JVM has it too.
+ * 
+ * None of the events take stack traces because they are emitted many times a
+ * second for as long as the station runs.
+ */
+final class JfrEventSink implements FlightRecorderEvents.Sink {
+	// Never committed, only used to ask whether their event type is enabled
+	// in a running recording before allocating an event that would be thrown
+	// away
+	private final FrameProcessedEvent frameProbe = new FrameProcessedEvent();
+	private final RecordingForkedEvent forkProbe = new RecordingForkedEvent();
+	private final AudioStartedEvent audioProbe = new AudioStartedEvent();
+	private final ShotStageEvent shotProbe = new ShotStageEvent();
+
+	JfrEventSink() {
+		// Registered up front so the events show up in Mission Control's
+		// recording templates before the first of them is emitted
+		FlightRecorder.register(FrameProcessedEvent.class);
+		FlightRecorder.register(RecordingForkedEvent.class);
+		FlightRecorder.register(AudioStartedEvent.class);
+		FlightRecorder.register(ShotStageEvent.class);
+	}
+
+	@Override
+	public FrameSpan beginFrame() {
+		if (!frameProbe.isEnabled()) return FlightRecorderEvents.NO_FRAME;
+
+		final FrameProcessedEvent event = new FrameProcessedEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public ForkSpan beginFork() {
+		if (!forkProbe.isEnabled()) return FlightRecorderEvents.NO_FORK;
+
+		final RecordingForkedEvent event = new RecordingForkedEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public AudioSpan beginAudio() {
+		if (!audioProbe.isEnabled()) return FlightRecorderEvents.NO_AUDIO;
+
+		final AudioStartedEvent event = new AudioStartedEvent();
+		event.begin();
+		return event;
+	}
+
+	@Override
+	public void shot(ShotStage stage, String camera, Shot shot, boolean accepted, String detail, long stageNanos) {
+		if (!shotProbe.isEnabled()) return;
+
+		final ShotStageEvent event = new ShotStageEvent();
+		event.camera = camera;
+		event.stage = stage.name();
+		event.color = shot.getColor().toString();
+		event.x = shot.getX();
+		event.y = shot.getY();
+		event.frame = shot.getFrame();
+		event.shotTime = shot.getTimestamp();
+		event.accepted = accepted;
+		event.detail = detail;
+		event.stageDuration = stageNanos;
+		event.commit();
+	}
+
+	@Name("com.shootoff.FrameProcessed")
+	@Label("Frame Processed")
+	@Category({ "PhanMemBanSung", "Camera" })
+	@Description("A camera frame was searched for shots")
+	@StackTrace(false)
+	static final class FrameProcessedEvent extends Event implements FrameSpan {
+		@Label("Camera")
+		String camera;
+
+		@Label("Frame")
+		int frame;
+
+		@Label("Since Capture")
+		@Description("How long the frame waited between being captured and being searched")
+		@Timespan
+		long sinceCapture;
+
+		@Label("HSV Conversion")
+		@Timespan
+		long hsvConversion;
+
+		@Label("Threshold")
+		@Timespan
+		long threshold;
+
+		@Label("Clustering")
+		@Timespan
+		long clustering;
+
+		@Label("Threshold Pixels")
+		int thresholdPixels;
+
+		@Label("Clusters")
+		int clusters;
+
+		@Override
+		public void commit(String camera, int frame, long sinceCaptureNanos, long hsvConversionNanos,
+				long thresholdNanos, long clusteringNanos, int thresholdPixels, int clusters) {
+			this.camera = camera;
+			this.frame = frame;
+			this.sinceCapture = sinceCaptureNanos;
+			this.hsvConversion = hsvConversionNanos;
+			this.threshold = thresholdNanos;
+			this.clustering = clusteringNanos;
+			this.thresholdPixels = thresholdPixels;
+			this.clusters = clusters;
+			commit();
+		}
+	}
+
+	@Name("com.shootoff.ShotStage")
+	@Label("Shot Stage")
+	@Category({ "PhanMemBanSung", "Shots" })
+	@Description("A shot finished a step between being detected and being handed to the exercise")
+	@StackTrace(false)
+	static final class ShotStageEvent extends Event {
+		@Label("Camera")
+		String camera;
+
+		@Label("Stage")
+		String stage;
+
+		@Label("Color")
+		String color;
+
+		@Label("X")
+		double x;
+
+		@Label("Y")
+		double y;
+
+		@Label("Frame")
+		@Description("The camera frame the shot was detected in")
+		int frame;
+
+		@Label("Shot Time")
+		@Description("When the shot was fired according to the shot timer")
+		@Timespan(Timespan.MILLISECONDS)
+		long shotTime;
+
+		@Label("Accepted")
+		@Description("False if the stage rejected the shot or the shot hit no target")
+		boolean accepted;
+
+		@Label("Detail")
+		@Description("What rejected or was hit by the shot")
+		String detail;
+
+		@Label("Stage Duration")
+		@Timespan
+		long stageDuration;
+	}
+
+	@Name("com.shootoff.RecordingForked")
+	@Label("Recording Forked")
+	@Category({ "PhanMemBanSung", "Recording" })
+	@Description("A rolling recording was cut into a shot video or rolled over to a new file")
+	@StackTrace(false)
+	static final class RecordingForkedEvent extends Event implements ForkSpan {
+		@Label("Camera")
+		String camera;
+
+		@Label("For Shot")
+		@Description("True if the fork kept a video of a shot, false if the rolling file grew too long")
+		boolean forShot;
+
+		@Label("Buffered Frames")
+		@Description("Frames captured during the fork that had to be encoded after it")
+		int bufferedFrames;
+
+		@Override
+		public void commit(String camera, boolean forShot, int bufferedFrames) {
+			this.camera = camera;
+			this.forShot = forShot;
+			this.bufferedFrames = bufferedFrames;
+			commit();
+		}
+	}
+
+	@Name("com.shootoff.AudioStarted")
+	@Label("Audio Started")
+	@Category({ "PhanMemBanSung", "Audio" })
+	@Description("A sound or spoken phrase started playing, the duration is how long it took to start")
+	@StackTrace(false)
+	static final class AudioStartedEvent extends Event implements AudioSpan {
+		@Label("Kind")
+		String kind;
+
+		@Label("Source")
+		String source;
+
+		@Override
+		public void commit(String kind, String source) {
+			this.kind = kind;
+			this.source = source;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+
+import com.shootoff.camera.cameratypes.CalculatedFPSCamera;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.ShotDetector;
+
+/**
+ * A camera for benchmarks that plays back a fixed set of synthetic frames.
+ * The frames are dim sensor noise with a red laser dot in every
+ * {@link #DOT_INTERVAL}th frame. They are generated from a seed, thus every
+ * run of a benchmark sees the same frames.
+ */
+public final class BenchmarkCamera extends CalculatedFPSCamera {
+	public static final long SEED = 0x5400FFL;
+
+	// Enough distinct frames that the detector's filters can't settle on a
+	// single image, but few enough that they are all generated up front
+	private static final int FRAME_COUNT = 64;
+	private static final int DOT_INTERVAL = 16;
+	private static final int DOT_RADIUS = 3;
+
+	private static final int BACKGROUND_LUM = 60;
+	private static final int NOISE_LUM = 12;
+
+	private final Mat[] frames;
+	// Detectors paint onto the frames they process, thus they get a copy
+	private final Mat workingFrame;
+	private final Dimension size;
+	private int nextFrame = 0;
+
+	public BenchmarkCamera(int width, int height) {
+		size = new Dimension(width, height);
+		frames = generateFrames(width, height, new Random(SEED));
+		workingFrame = new Mat(height, width, CvType.CV_8UC3);
+		cameraState = CameraState.DETECTING;
+	}
+
+	private static Mat[] generateFrames(int width, int height, Random random) {
+		final Mat[] frames = new Mat[FRAME_COUNT];
+		final byte[] pixels = new byte[width * height * 3];
+
+		for (int i = 0; i < FRAME_COUNT; i++) {
+			for (int p = 0; p < pixels.length; p++)
+				pixels[p] = (byte) (BACKGROUND_LUM + random.nextInt(NOISE_LUM));
+
+			final Mat frame = new Mat(height, width, CvType.CV_8UC3);
+			frame.put(0, 0, pixels);
+
+			if (i % DOT_INTERVAL == DOT_INTERVAL - 1) {
+				final Point dot = new Point(DOT_RADIUS + random.nextInt(width - DOT_RADIUS * 2),
+						DOT_RADIUS + random.nextInt(height - DOT_RADIUS * 2));
+				Core.circle(frame, dot, DOT_RADIUS, new Scalar(40, 40, 255), -1);
+			}
+
+			frames[i] = frame;
+		}
+
+		return frames;
+	}
+
+	/**
+	 * @return a copy of the next synthetic frame that may be modified, e.g. by
+	 *         a detector painting the pixels it found. The copy is overwritten
+	 *         by the next call, thus it must not be released or kept.
+	 */
+	@Override
+	public Frame getFrame() {
+		frames[nextFrame].copyTo(workingFrame);
+		nextFrame = (nextFrame + 1) % FRAME_COUNT;
+		frameCount++;
+
+		return new Frame(workingFrame, CaptureClock.currentTimeMillis());
+	}
+
+	@Override
+	public BufferedImage getBufferedImage() {
+		return getFrame().getOriginalBufferedImage();
+	}
+
+	@Override
+	public boolean open() {
+		return true;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		for (final Mat frame : frames)
+			frame.release();
+
+		workingFrame.release();
+	}
+
+	@Override
+	public String getName() {
+		return "Benchmark";
+	}
+
+	@Override
+	public ShotDetector getPreferredShotDetector(CameraManager cameraManager, CameraView cameraView) {
+		return new JavaShotDetector(cameraManager, cameraView);
+	}
+
+	@Override
+	public boolean isLocked() {
+		return false;
+	}
+
+	@Override
+	public void setViewSize(Dimension size) {}
+
+	@Override
+	public Dimension getViewSize() {
+		return size;
+	}
+
+	@Override
+	public boolean supportsExposureAdjustment() {
+		return false;
+	}
+
+	@Override
+	public boolean decreaseExposure() {
+		return false;
+	}
+
+	@Override
+	public void resetExposure() {}
+
+	@Override
+	public boolean limitsFrames() {
+		return false;
+	}
+
+	@Override
+	public void run() {}
+}
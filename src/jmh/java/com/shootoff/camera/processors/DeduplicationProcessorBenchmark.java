@@ -0,0 +1,98 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.processors;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shootoff.camera.BenchmarkCamera;
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.Shot;
+import com.shootoff.camera.shot.ShotColor;
+
+/**
+ * Measures deduplicating a stream of shots on a 640x480 feed where roughly
+ * half of the shots are the same laser pulse seen in consecutive frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DeduplicationProcessorBenchmark {
+	private static final int SHOT_COUNT = 1024;
+
+	private DeduplicationProcessor deduplicationProcessor;
+	private Shot[] shots;
+	private int nextShot = 0;
+
+	@Setup
+	public void setUp() {
+		final CameraManager cameraManager = new CameraManager();
+		deduplicationProcessor = new DeduplicationProcessor(cameraManager);
+
+		final Random random = new Random(BenchmarkCamera.SEED);
+		shots = new Shot[SHOT_COUNT];
+
+		double x = 0;
+		double y = 0;
+		long timestamp = 0;
+		int frame = 0;
+
+		for (int i = 0; i < SHOT_COUNT; i++) {
+			if (random.nextBoolean()) {
+				// The same pulse a frame or two later
+				x += random.nextGaussian() * 2;
+				y += random.nextGaussian() * 2;
+				timestamp += 33 + random.nextInt(34);
+				frame += 1 + random.nextInt(2);
+			} else {
+				x = random.nextInt(cameraManager.getFeedWidth());
+				y = random.nextInt(cameraManager.getFeedHeight());
+				timestamp += 100 + random.nextInt(900);
+				frame += 3 + random.nextInt(30);
+			}
+
+			shots[i] = new Shot(ShotColor.RED, x, y, timestamp, frame);
+		}
+	}
+
+	@Benchmark
+	public boolean processShot() {
+		// Timestamps go backwards when the shots wrap around, thus start over
+		if (nextShot == SHOT_COUNT) {
+			nextShot = 0;
+			deduplicationProcessor.reset();
+		}
+
+		return deduplicationProcessor.processShot(shots[nextShot++]);
+	}
+}
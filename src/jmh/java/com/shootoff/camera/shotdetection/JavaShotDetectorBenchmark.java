@@ -0,0 +1,106 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shootoff.camera.BenchmarkCamera;
+import com.shootoff.camera.BenchmarkView;
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.Frame;
+import com.shootoff.config.Configuration;
+import com.shootoff.config.ConfigurationException;
+
+/**
+ * Measures how long it takes to look for shots in one frame at common webcam
+ * resolutions. The frames come from {@link BenchmarkCamera}, thus the
+ * detector sees mostly noise with an occasional laser dot. Every frame is a
+ * fresh copy because the detector paints onto the frames it processes, see
+ * {@link #copyFrame()} for what the copy costs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JavaShotDetectorBenchmark {
+	@Param({ "640x480", "1280x720", "1920x1080" })
+	public String resolution;
+
+	private BenchmarkCamera camera;
+	private CameraManager cameraManager;
+	private JavaShotDetector shotDetector;
+
+	@Setup
+	public void setUp() throws ConfigurationException {
+		nu.pattern.OpenCV.loadShared();
+		new Configuration(new String[0]);
+
+		final String[] dimensions = resolution.split("x");
+		final int width = Integer.parseInt(dimensions[0]);
+		final int height = Integer.parseInt(dimensions[1]);
+
+		final BenchmarkView view = new BenchmarkView();
+		camera = new BenchmarkCamera(width, height);
+		cameraManager = new CameraManager(camera, null, view);
+		cameraManager.setFeedResolution(width, height);
+
+		final boolean[][] sectors = new boolean[JavaShotDetector.SECTOR_ROWS][JavaShotDetector.SECTOR_COLUMNS];
+		for (final boolean[] row : sectors)
+			Arrays.fill(row, true);
+		cameraManager.setSectorStatuses(sectors);
+
+		shotDetector = new JavaShotDetector(cameraManager, view);
+	}
+
+	@TearDown
+	public void tearDown() {
+		shotDetector.close();
+		cameraManager.close();
+		camera.close();
+	}
+
+	@Benchmark
+	public void processFrame() {
+		shotDetector.processFrame(camera.getFrame(), true);
+	}
+
+	/**
+	 * Baseline for {@link #processFrame()}, whose time includes this copy.
+	 */
+	@Benchmark
+	public Frame copyFrame() {
+		return camera.getFrame();
+	}
+}
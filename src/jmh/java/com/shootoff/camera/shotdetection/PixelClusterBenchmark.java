@@ -0,0 +1,90 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shootoff.camera.BenchmarkCamera;
+import com.shootoff.camera.shot.ShotColor;
+
+/**
+ * Measures deciding the color of one shot from the HSV pixels around it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PixelClusterBenchmark {
+	private Mat frameHSV;
+	private int[] colorDistanceFromRed;
+	private PixelCluster cluster;
+
+	@Setup
+	public void setUp() {
+		nu.pattern.OpenCV.loadShared();
+
+		final int width = PixelClusterManagerBenchmark.WIDTH;
+		final int height = PixelClusterManagerBenchmark.HEIGHT;
+		final Random random = new Random(BenchmarkCamera.SEED);
+
+		final Set<PixelCluster> clusters = new PixelClusterManager(width, height).clusterPixels(
+				PixelClusterManagerBenchmark.blobPixels(1, random),
+				PixelClusterManagerBenchmark.MINIMUM_SHOT_DIMENSION);
+		if (clusters.isEmpty()) throw new IllegalStateException("The synthetic blob was not clustered as a shot");
+		cluster = clusters.iterator().next();
+
+		final byte[] pixels = new byte[width * height * 3];
+		random.nextBytes(pixels);
+		frameHSV = new Mat(height, width, CvType.CV_8UC3);
+		frameHSV.put(0, 0, pixels);
+
+		colorDistanceFromRed = new int[width * height];
+		for (int i = 0; i < colorDistanceFromRed.length; i++)
+			colorDistanceFromRed[i] = random.nextInt(2000) - 1000;
+	}
+
+	@TearDown
+	public void tearDown() {
+		frameHSV.release();
+	}
+
+	@Benchmark
+	public Optional<ShotColor> getColor() {
+		return cluster.getColor(frameHSV, colorDistanceFromRed, PixelClusterManagerBenchmark.WIDTH);
+	}
+}
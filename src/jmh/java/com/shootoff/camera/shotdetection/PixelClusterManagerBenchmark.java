@@ -0,0 +1,112 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shootoff.camera.BenchmarkCamera;
+
+/**
+ * Measures clustering of a 640x480 frame's candidate pixels into shots when
+ * the frame has one, a few, or many shot sized blobs of candidates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class PixelClusterManagerBenchmark {
+	static final int WIDTH = 640;
+	static final int HEIGHT = 480;
+
+	// JavaShotDetector's minimum shot dimension at 640x480
+	static final int MINIMUM_SHOT_DIMENSION = (int) (WIDTH * HEIGHT * .000025);
+
+	// Blobs are placed in distinct cells of this grid so they never touch
+	private static final int GRID_COLUMNS = 10;
+	private static final int GRID_ROWS = 5;
+	private static final int BLOB_RADIUS = 3;
+
+	@Param({ "1", "5", "50" })
+	public int blobs;
+
+	private PixelClusterManager pixelClusterManager;
+	private ThresholdPixelBuffer thresholdPixels;
+
+	@Setup
+	public void setUp() {
+		pixelClusterManager = new PixelClusterManager(WIDTH, HEIGHT);
+		thresholdPixels = blobPixels(blobs, new Random(BenchmarkCamera.SEED));
+	}
+
+	/**
+	 * Fill a buffer with <code>count</code> round blobs of candidate pixels
+	 * at random spots in a 640x480 frame.
+	 */
+	static ThresholdPixelBuffer blobPixels(int count, Random random) {
+		final List<Integer> cells = new ArrayList<>();
+		for (int i = 0; i < GRID_COLUMNS * GRID_ROWS; i++)
+			cells.add(i);
+		Collections.shuffle(cells, random);
+
+		final int cellWidth = WIDTH / GRID_COLUMNS;
+		final int cellHeight = HEIGHT / GRID_ROWS;
+		final int margin = BLOB_RADIUS + 1;
+		final ThresholdPixelBuffer pixels = new ThresholdPixelBuffer();
+
+		for (int i = 0; i < count; i++) {
+			final int cell = cells.get(i);
+			final int centerX = (cell % GRID_COLUMNS) * cellWidth + margin
+					+ random.nextInt(cellWidth - margin * 2);
+			final int centerY = (cell / GRID_COLUMNS) * cellHeight + margin
+					+ random.nextInt(cellHeight - margin * 2);
+
+			for (int y = -BLOB_RADIUS; y <= BLOB_RADIUS; y++) {
+				for (int x = -BLOB_RADIUS; x <= BLOB_RADIUS; x++) {
+					if (x * x + y * y <= BLOB_RADIUS * BLOB_RADIUS) pixels.add(centerX + x, centerY + y);
+				}
+			}
+		}
+
+		return pixels;
+	}
+
+	@Benchmark
+	public Set<PixelCluster> clusterPixels() {
+		return pixelClusterManager.clusterPixels(thresholdPixels, MINIMUM_SHOT_DIMENSION);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui.targets;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shootoff.camera.BenchmarkCamera;
+import com.shootoff.targets.EllipseRegion;
+import com.shootoff.targets.Hit;
+import com.shootoff.targets.ImageRegion;
+import com.shootoff.targets.PolygonRegion;
+import com.shootoff.util.SwingFXUtils;
+
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.Group;
+import javafx.scene.Node;
+
+/**
+ * Measures hit testing a shot against a target made of a single region of
+ * each type. Three quarters of the shots miss the region's bounding box.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TargetViewBenchmark {
+	public enum Region {
+		POLYGON, ELLIPSE, IMAGE
+	}
+
+	private static final int REGION_SIZE = 200;
+	private static final int SHOT_COUNT = 1024;
+
+	@Param
+	public Region region;
+
+	private TargetView targetView;
+	private double[] shotXs;
+	private double[] shotYs;
+	private int nextShot = 0;
+
+	@Setup
+	public void setUp() {
+		// Initializes the JavaFX toolkit, which image regions need
+		new JFXPanel();
+
+		final Random random = new Random(BenchmarkCamera.SEED);
+
+		final Group targetGroup = new Group(createRegion(random));
+		targetGroup.setLayoutX(REGION_SIZE / 2);
+		targetGroup.setLayoutY(REGION_SIZE / 2);
+		targetView = new TargetView(targetGroup, new HashMap<>(), new ArrayList<>());
+
+		// Shots land anywhere in a square twice the width of the target
+		shotXs = new double[SHOT_COUNT];
+		shotYs = new double[SHOT_COUNT];
+		for (int i = 0; i < SHOT_COUNT; i++) {
+			shotXs[i] = random.nextDouble() * REGION_SIZE * 2;
+			shotYs[i] = random.nextDouble() * REGION_SIZE * 2;
+		}
+	}
+
+	private Node createRegion(Random random) {
+		switch (region) {
+		case POLYGON:
+			// A star, thus a good share of the bounding box is outside the
+			// polygon
+			final int points = 10;
+			final double[] coordinates = new double[points * 2];
+			for (int i = 0; i < points; i++) {
+				final double radius = (i % 2 == 0 ? 1 : .4) * REGION_SIZE / 2;
+				final double angle = Math.PI * 2 * i / points;
+				coordinates[i * 2] = REGION_SIZE / 2 + Math.cos(angle) * radius;
+				coordinates[i * 2 + 1] = REGION_SIZE / 2 + Math.sin(angle) * radius;
+			}
+			return new PolygonRegion(coordinates);
+
+		case ELLIPSE:
+			return new EllipseRegion(REGION_SIZE / 2, REGION_SIZE / 2, REGION_SIZE / 2, REGION_SIZE / 3);
+
+		default:
+			// Opaque and transparent blocks, like a cut out silhouette
+			final int block = 10;
+			final BufferedImage image = new BufferedImage(REGION_SIZE, REGION_SIZE, BufferedImage.TYPE_INT_ARGB);
+			for (int y = 0; y < REGION_SIZE; y += block) {
+				for (int x = 0; x < REGION_SIZE; x += block) {
+					final int argb = random.nextBoolean() ? 0xFF202020 : 0;
+					for (int by = y; by < y + block; by++) {
+						for (int bx = x; bx < x + block; bx++) {
+							image.setRGB(bx, by, argb);
+						}
+					}
+				}
+			}
+			return new ImageRegion(SwingFXUtils.toFXImage(image, null));
+		}
+	}
+
+	@Benchmark
+	public Optional<Hit> isHit() {
+		if (nextShot == SHOT_COUNT) nextShot = 0;
+
+		final int shot = nextShot++;
+		return targetView.isHit(shotXs[shot], shotYs[shot]);
+	}
+}
@@ -560,6 +560,8 @@ public class Main extends Application {
 
 		//if (version.isPresent() && !config.inDebugMode() && !isJWS) checkVersion();
 
+		config.registerVideoCameras();
+
 		// This initializes the TTS engine
 		TextToSpeech.say("");
 
@@ -0,0 +1,31 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import com.shootoff.camera.cameratypes.Camera;
+
+/**
+ * Notified on the camera discovery thread when a camera is plugged in or
+ * unplugged (see {@link CameraFactory#addDiscoveryListener}).
+ */
+public interface CameraDiscoveryListener {
+	public void cameraAdded(Camera camera);
+
+	public void cameraRemoved(Camera camera);
+}
@@ -20,8 +20,14 @@ package com.shootoff.camera;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +66,16 @@ public final class CameraFactory {
 	// by CameraFactory.getWebcams().
 	private final static List<Camera> registeredCameras = new ArrayList<>();
 
+	// Enumerating devices is slow and goes through the driver, thus
+	// webcam-capture's cameras are enumerated once and then kept up to date
+	// by a background thread that looks for cameras that were plugged in or
+	// unplugged. Not used on Mac (see above).
+	private static final long DISCOVERY_INTERVAL = 3000; // ms
+	private static final Object discoveryLock = new Object();
+	private static volatile List<Camera> discoveredWebcams = null;
+	private static ScheduledExecutorService discoveryExecutor = null;
+	private static final List<CameraDiscoveryListener> discoveryListeners = new CopyOnWriteArrayList<>();
+
 	public static void registerCamera(Camera camera) {
 		registeredCameras.add(camera);
 	}
@@ -106,9 +122,10 @@ public final class CameraFactory {
 			else
 				defaultCam = new SarxosCaptureCamera(defaultWebcam.getName());
 		} else {
-			final Webcam cam = Webcam.getDefault();
+			// webcam-capture's default camera is the first one it finds
+			final List<Camera> webcams = getDiscoveredWebcams();
 
-			defaultCam = cam == null ? null : new SarxosCaptureCamera(cam.getName());
+			defaultCam = webcams.isEmpty() ? null : webcams.get(0);
 		}
 
 		if (defaultCam == null && !registeredCameras.isEmpty()) {
@@ -123,29 +140,20 @@ public final class CameraFactory {
 
 		final List<Camera> webcams = new ArrayList<>();
 
-		int cameraIndex = 0;
-		for (final Webcam w : Webcam.getWebcams()) {
-			final Camera c;
-			if (w.getDevice() instanceof IpCamDevice)
-				c = new IpCamera(w);
-			else
-				c = new SarxosCaptureCamera(w.getName(), cameraIndex);
-
+		for (final Camera c : getDiscoveredWebcams()) {
 			synchronized (openCameras) {
 				// If we already have an open instance of the camera
 				// go ahead and reuse it in this list as opposed to
-				// the newly created camera
+				// the discovered camera
 				final int i = openCameras.indexOf(c);
 
-				if (logger.isTraceEnabled()) logger.trace("Looking in openCameras for {} found at {}", w.getName(), i);
+				if (logger.isTraceEnabled()) logger.trace("Looking in openCameras for {} found at {}", c.getName(), i);
 				if (i >= 0) {
 					webcams.add(openCameras.get(i));
 				} else {
 					webcams.add(c);
 				}
 			}
-
-			cameraIndex++;
 		}
 
 		webcams.addAll(registeredCameras);
@@ -153,6 +161,140 @@ public final class CameraFactory {
 		return webcams;
 	}
 
+	/**
+	 * Be notified when webcam-capture cameras are plugged in or unplugged.
+	 * Cameras are only discovered in the background on platforms other than
+	 * Mac.
+	 */
+	public static void addDiscoveryListener(CameraDiscoveryListener listener) {
+		discoveryListeners.add(listener);
+	}
+
+	public static void removeDiscoveryListener(CameraDiscoveryListener listener) {
+		discoveryListeners.remove(listener);
+	}
+
+	/**
+	 * @return the cached webcam-capture cameras, enumerating them and starting
+	 *         background discovery if this is the first call
+	 */
+	private static List<Camera> getDiscoveredWebcams() {
+		final List<Camera> webcams = discoveredWebcams;
+		if (webcams != null) return webcams;
+
+		synchronized (discoveryLock) {
+			if (discoveredWebcams == null) {
+				discoverWebcams();
+
+				discoveryExecutor = Executors.newSingleThreadScheduledExecutor((r) -> {
+					final Thread t = new Thread(r, "CameraDiscovery");
+					t.setDaemon(true);
+					return t;
+				});
+				discoveryExecutor.scheduleWithFixedDelay(CameraFactory::discoverWebcams, DISCOVERY_INTERVAL,
+						DISCOVERY_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+
+			return discoveredWebcams;
+		}
+	}
+
+	/**
+	 * Enumerate webcam-capture's cameras, keeping the instances of cameras
+	 * that are still present, and notify discovery listeners of changes.
+	 */
+	private static void discoverWebcams() {
+		final List<Camera> added = new ArrayList<>();
+		final List<Camera> removed = new ArrayList<>();
+
+		synchronized (discoveryLock) {
+			final Map<String, Camera> previous = new HashMap<>();
+			if (discoveredWebcams != null) {
+				final Map<String, Integer> occurrences = new HashMap<>();
+				for (final Camera c : discoveredWebcams)
+					previous.put(discoveryKey(c.getName(), occurrences), c);
+			}
+
+			final List<Webcam> devices;
+			try {
+				devices = Webcam.getWebcams();
+			} catch (final Exception e) {
+				logger.warn("Failed to enumerate cameras, keeping the last known list", e);
+				if (discoveredWebcams == null) discoveredWebcams = Collections.emptyList();
+				return;
+			}
+
+			final List<Camera> webcams = new ArrayList<>(devices.size());
+
+			final Map<String, Integer> occurrences = new HashMap<>();
+			int cameraIndex = 0;
+			for (final Webcam w : devices) {
+				Camera c = previous.remove(discoveryKey(w.getName(), occurrences));
+				final boolean known = c != null;
+
+				// OpenCV opens webcams by index, thus a camera whose index
+				// changed because another was unplugged needs a new instance.
+				// An open camera keeps its device until it is closed.
+				if (!known || (c instanceof SarxosCaptureCamera && !c.isOpen()
+						&& ((SarxosCaptureCamera) c).getCameraIndex() != cameraIndex)) {
+					// Listeners hold on to the old instance, thus a replaced
+					// camera is reported as removed and added again
+					if (known) removed.add(c);
+
+					if (w.getDevice() instanceof IpCamDevice)
+						c = new IpCamera(w);
+					else
+						c = new SarxosCaptureCamera(w.getName(), cameraIndex);
+
+					if (discoveredWebcams != null) added.add(c);
+				}
+
+				webcams.add(c);
+				cameraIndex++;
+			}
+
+			removed.addAll(previous.values());
+			discoveredWebcams = Collections.unmodifiableList(webcams);
+		}
+
+		for (final Camera c : removed) {
+			logger.info("Camera unplugged: {}", c.getName());
+			for (final CameraDiscoveryListener l : discoveryListeners) {
+				// A failing listener must not keep the others from being told
+				// or stop background discovery
+				try {
+					l.cameraRemoved(c);
+				} catch (final RuntimeException e) {
+					logger.error("Discovery listener failed to handle unplugged camera " + c.getName(), e);
+				}
+			}
+		}
+
+		for (final Camera c : added) {
+			logger.info("Camera plugged in: {}", c.getName());
+			for (final CameraDiscoveryListener l : discoveryListeners) {
+				try {
+					l.cameraAdded(c);
+				} catch (final RuntimeException e) {
+					logger.error("Discovery listener failed to handle plugged in camera " + c.getName(), e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Identical cameras share a name, thus a camera is known by its name and
+	 * how many cameras with the same name were listed before it.
+	 *
+	 * @param occurrences
+	 *            how often each name was seen so far in the list being keyed,
+	 *            updated by this call
+	 */
+	private static String discoveryKey(String name, Map<String, Integer> occurrences) {
+		final int occurrence = occurrences.merge(name, 1, Integer::sum) - 1;
+		return occurrence == 0 ? name : name + "#" + occurrence;
+	}
+
 	public static void openCamerasRemove(Camera camera) {
 		synchronized (openCameras) {
 			openCameras.remove(camera);
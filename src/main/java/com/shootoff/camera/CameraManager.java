@@ -33,6 +33,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.opencv.core.CvException;
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,8 +49,10 @@ import com.shootoff.camera.recorders.RollingRecorder;
 import com.shootoff.camera.recorders.ShotRecorder;
 import com.shootoff.camera.shot.ShotColor;
 import com.shootoff.camera.shotdetection.CameraStateListener;
+import com.shootoff.camera.shotdetection.DetectionMask;
 import com.shootoff.camera.shotdetection.FrameProcessingShotDetector;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.RowSpans;
 import com.shootoff.camera.shotdetection.ShotDetector;
 import com.shootoff.camera.shotdetection.ShotYieldingShotDetector;
 import com.shootoff.config.Configuration;
@@ -73,11 +76,21 @@ import javafx.scene.paint.Color;
  * This class is responsible for fetching frames from its assigned camera and
  * preprocessing them for shot detection. It also ensures the view showing the
  * camera frames is aware of any new frames from the camera.
+ * 
+ * Frames flow through separate stages so that a slow stage can't stall the
+ * camera's capture thread: capture hands frames to the detection stage, which
+ * passes the frames it processed on to the recording and display stages. Each
+ * stage runs on its own thread and is fed by a bounded {@link FrameQueue}.
+ * Detection never drops frames, recording drops new frames when its queue is
+ * full, and display only keeps the newest frame.
  *
  * @author phrack and dmaul
  */
 public class CameraManager implements ObservableCloseable, CameraEventListener, CameraCalibrationListener {
 	private static final int MAXIMUM_CONSECUTIVE_CAMERA_ERRORS = 5;
+	private static final int DETECTION_QUEUE_CAPACITY = 4;
+	private static final int RECORDING_QUEUE_CAPACITY = 30;
+	private static final int DISPLAY_QUEUE_CAPACITY = 1;
 	private static final Logger logger = LoggerFactory.getLogger(CameraManager.class);
 	public static final int DEFAULT_FEED_WIDTH = 640;
 	public static final int DEFAULT_FEED_HEIGHT = 480;
@@ -112,17 +125,34 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	protected Optional<Integer> minimumShotDimension = Optional.empty();
 
-	protected boolean recordingStream = false;
+	// Recordings are started and stopped from other threads while the
+	// recording stage encodes into them, thus the writers are only touched
+	// while holding recordingLock. The flags are also read without the lock
+	// to decide whether frames are queued for recording at all.
+	private final Object recordingLock = new Object();
+
+	protected volatile boolean recordingStream = false;
 	protected boolean isFirstStreamFrame = true;
 	protected IMediaWriter videoWriterStream;
 	protected long recordingStartTime;
 
-	protected boolean recordingShots = false;
+	protected volatile boolean recordingShots = false;
 	protected RollingRecorder rollingRecorder;
 	protected Map<Shot, ShotRecorder> shotRecorders = new ConcurrentHashMap<>();
 
 	protected boolean[][] sectorStatuses;
 
+	// The user's include/exclude polygons in camera coordinates and the spans
+	// compiled from them for the part of the frame the shot detector sees.
+	// The spans are only recompiled when the mask or that region changes.
+	private volatile DetectionMask detectionMask = DetectionMask.EMPTY;
+	private volatile Optional<RowSpans> detectionSpans = Optional.empty();
+	private DetectionMask compiledMask = null;
+	private int compiledX = -1;
+	private int compiledY = -1;
+	private int compiledWidth = -1;
+	private int compiledHeight = -1;
+
 	private boolean showedFPSWarning = false;
 
 	protected AutoCalibrationManager acm = null;
@@ -133,10 +163,42 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	private CameraCalibrationListener cameraCalibrationListener;
 
+	// Every stage holds a reference to the frames it is given (see
+	// Frame.retain) and releases it when it is done with them or when its
+	// queue drops them
+	private final FrameStage<CapturedFrame> detectionStage = new FrameStage<>(
+			new FrameQueue<>("detection", DETECTION_QUEUE_CAPACITY, FrameQueue.DropPolicy.BLOCK,
+					(captured) -> captured.frame.release()),
+			this::detectFrame);
+	private final FrameStage<Frame> recordingStage = new FrameStage<>(new FrameQueue<>("recording",
+			RECORDING_QUEUE_CAPACITY, FrameQueue.DropPolicy.DROP_NEWEST, Frame::release), this::recordFrame);
+	private final FrameStage<Frame> displayStage = new FrameStage<>(
+			new FrameQueue<>("display", DISPLAY_QUEUE_CAPACITY, FrameQueue.DropPolicy.DROP_OLDEST, Frame::release),
+			this::displayFrame);
+
+	// Updated on the camera's capture thread
+	private final FrameTimingStats frameTiming = new FrameTimingStats();
+
+	private final StageLatencies stageLatencies = new StageLatencies();
+
+	private static class CapturedFrame {
+		private final Frame frame;
+		private final boolean shouldDedistort;
+
+		public CapturedFrame(Frame frame, boolean shouldDedistort) {
+			this.frame = frame;
+			this.shouldDedistort = shouldDedistort;
+		}
+	}
+
 	public void setCalibrationManager(CameraCalibrationListener calibrationManager) {
 		cameraCalibrationListener = calibrationManager;
 	}
 
+	public ShotDetector getShotDetector() {
+		return shotDetector;
+	}
+
 	public DeduplicationProcessor getDeduplicationProcessor() {
 		return deduplicationProcessor;
 	}
@@ -163,6 +225,8 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 		if (shotDetector == null) logger.error("No suitable shot detector found for camera {}", camera.getName());
 
+		if (config != null) detectionMask = config.getDetectionMask(camera.getName()).orElse(DetectionMask.EMPTY);
+
 	}
 
 	public String getName() {
@@ -205,6 +269,10 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 				}
 			}
 
+			detectionStage.start(String.format("Camera %s detection", camera.getName()));
+			recordingStage.start(String.format("Camera %s recording", camera.getName()));
+			if (!config.isHeadless()) displayStage.start(String.format("Camera %s display", camera.getName()));
+
 			if (logger.isDebugEnabled()) logger.debug("starting camera thread {}", camera.getName());
 			final String threadName = String.format("Camera %s %s", camera.getName(),
 					shotDetector.getClass().getSimpleName());
@@ -234,6 +302,53 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		}
 	}
 
+	public DetectionMask getDetectionMask() {
+		return detectionMask;
+	}
+
+	/**
+	 * Set the polygons that limit where shots are detected. Pixels outside of
+	 * the mask are never converted, filtered, or thresholded by the shot
+	 * detector.
+	 */
+	public void setDetectionMask(DetectionMask detectionMask) {
+		this.detectionMask = detectionMask == null ? DetectionMask.EMPTY : detectionMask;
+
+		if (config != null) config.setDetectionMask(getName(), this.detectionMask);
+	}
+
+	/**
+	 * @return the detection mask compiled for the frame most recently passed
+	 *         to the shot detector, or empty if every pixel should be processed
+	 */
+	public Optional<RowSpans> getDetectionSpans() {
+		return detectionSpans;
+	}
+
+	private void updateDetectionSpans(int x, int y, int width, int height) {
+		final DetectionMask mask = detectionMask;
+
+		if (mask == compiledMask && x == compiledX && y == compiledY && width == compiledWidth
+				&& height == compiledHeight)
+			return;
+
+		if (mask.isEmpty()) {
+			detectionSpans = Optional.empty();
+		} else {
+			final RowSpans spans = mask.compile(x, y, width, height);
+			detectionSpans = Optional.of(spans);
+
+			if (logger.isDebugEnabled()) logger.debug("Compiled detection mask for {}: {} of {} pixels active",
+					getName(), spans.getPixelCount(), width * height);
+		}
+
+		compiledMask = mask;
+		compiledX = x;
+		compiledY = y;
+		compiledWidth = width;
+		compiledHeight = height;
+	}
+
 	public int getFeedWidth() {
 		return feedWidth;
 	}
@@ -253,7 +368,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	// Used by click-to-shoot and tests to inject a shot via the shot detector
 	public void injectShot(ShotColor color, double x, double y, boolean scaleShot) {
-		shotDetector.addShot(color, x, y, System.currentTimeMillis(), scaleShot);
+		shotDetector.addShot(color, x, y, CaptureClock.currentTimeMillis(), scaleShot);
 	}
 
 	public void clearShots() {
@@ -286,6 +401,20 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		
 		camera.setCameraEventListener(null);
 
+		// Stop the stages, which waits for the frames they are working on,
+		// before the detector so a frame in flight isn't handed to a closed
+		// detector
+		detectionStage.close();
+		recordingStage.close();
+		displayStage.close();
+
+		camera.getLatestFrame().clear();
+
+		if (logger.isDebugEnabled()) logger.debug("Closing {}: {}; {}; {}; {}; {}; {}", camera.getName(),
+				detectionStage.getQueue(), recordingStage.getQueue(), displayStage.getQueue(), getFrameMemory(),
+				frameTiming, stageLatencies);
+
+		if (shotDetector != null) shotDetector.close();
 
 		if (recordingStream) stopRecordingStream();
 		TimerPool.cancelTimer(brightnessDiagnosticFuture);
@@ -383,21 +512,40 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 	public void startRecordingStream(File videoFile) {
 		if (logger.isDebugEnabled()) logger.debug("Writing Video Feed To: {}", videoFile.getAbsoluteFile());
-		videoWriterStream = ToolFactory.makeWriter(videoFile.getName());
-		videoWriterStream.addVideoStream(0, 0, ICodec.ID.CODEC_ID_H264, getFeedWidth(), getFeedHeight());
-		recordingStartTime = System.currentTimeMillis();
-		isFirstStreamFrame = true;
 
-		recordingStream = true;
+		synchronized (recordingLock) {
+			videoWriterStream = ToolFactory.makeWriter(videoFile.getName());
+			videoWriterStream.addVideoStream(0, 0, ICodec.ID.CODEC_ID_H264, getFeedWidth(), getFeedHeight());
+			recordingStartTime = CaptureClock.currentTimeMillis();
+			isFirstStreamFrame = true;
+
+			recordingStream = true;
+		}
 	}
 
+	/**
+	 * Stop recording the stream. If the recording stage is encoding a frame
+	 * this waits for it so the writer isn't closed under it.
+	 */
 	public void stopRecordingStream() {
-		recordingStream = false;
-		videoWriterStream.close();
+		synchronized (recordingLock) {
+			if (!recordingStream) return;
+
+			recordingStream = false;
+			videoWriterStream.close();
+			videoWriterStream = null;
+		}
 	}
 
 	public void notifyShot(final Shot shot) {
-		shotRecorders.put(shot, rollingRecorder.fork());
+		final RollingRecorder recorder;
+		synchronized (recordingLock) {
+			recorder = rollingRecorder;
+		}
+
+		// Forking takes a while and the rolling recorder buffers the frames
+		// it is given in the meantime, thus it isn't done under the lock
+		if (recorder != null) shotRecorders.put(shot, recorder.fork());
 	}
 
 	public ShotRecorder getRevelantRecorder(Shot shot) {
@@ -429,18 +577,29 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 		setDetecting(false);
 
-		rollingRecorder = new RollingRecorder(ICodec.ID.CODEC_ID_MPEG4, ".mp4", sessionName, cameraName, this);
-		recordingShots = true;
+		final RollingRecorder recorder = new RollingRecorder(ICodec.ID.CODEC_ID_MPEG4, ".mp4", sessionName,
+				cameraName, this);
+
+		synchronized (recordingLock) {
+			rollingRecorder = recorder;
+			recordingShots = true;
+		}
 	}
 
+	/**
+	 * Stop recording shots. If the recording stage is encoding a frame this
+	 * waits for it so the recorders aren't closed under it.
+	 */
 	public void stopRecordingShots() {
-		recordingShots = false;
-		for (final ShotRecorder r : shotRecorders.values())
-			r.close();
-		shotRecorders.clear();
-		if (rollingRecorder != null) {
-			rollingRecorder.close();
-			rollingRecorder = null;
+		synchronized (recordingLock) {
+			recordingShots = false;
+			for (final ShotRecorder r : shotRecorders.values())
+				r.close();
+			shotRecorders.clear();
+			if (rollingRecorder != null) {
+				rollingRecorder.close();
+				rollingRecorder = null;
+			}
 		}
 
 		setDetecting(true);
@@ -450,8 +609,25 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		return camera;
 	}
 
+	/**
+	 * Tell the user the camera is gone and stop reading from it right away
+	 * instead of after it failed to deliver enough frames.
+	 */
+	public void cameraUnplugged() {
+		if (isStreaming.get() && cameraErrorView.isPresent()) cameraErrorView.get().showMissingCameraError(camera);
+
+		camera.close();
+	}
+
+	/**
+	 * @return the newest processed frame, or <code>null</code> if the camera
+	 *         hasn't delivered one yet
+	 */
 	public Image getCurrentFrame() {
-		return SwingFXUtils.toFXImage(camera.getBufferedImage(), null);
+		final BufferedImage image = camera.getLatestImage();
+		if (image == null) return null;
+
+		return SwingFXUtils.toFXImage(image, null);
 	}
 
 	public CameraView getCameraView() {
@@ -488,7 +664,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		if (logger.isDebugEnabled()) logger.debug("Writing Video Feed To: {}", videoFile.getAbsoluteFile());
 		videoWriterCalibratedArea = ToolFactory.makeWriter(videoFile.getName());
 		videoWriterCalibratedArea.addVideoStream(0, 0, ICodec.ID.CODEC_ID_H264, width, height);
-		recordingCalibratedAreaStartTime = System.currentTimeMillis();
+		recordingCalibratedAreaStartTime = CaptureClock.currentTimeMillis();
 		isFirstCalibratedAreaFrame = true;
 
 		recordingCalibratedArea = true;
@@ -540,73 +716,181 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 				camera.close();
 			}
+
+			if (currentFrame != null) currentFrame.release();
+
 			return false;
 		} else {
 			consecutiveCameraErrors = 0;
 		}
 
-		BufferedImage currentImage = processFrame(currentFrame, shouldDedistort);
+		// Stamped here on the capture thread because the camera's count has
+		// usually moved on by the time later stages look at it
+		currentFrame.setFrameNumber(camera.getFrameCount());
 
-		Bounds b;
+		frameTiming.record(currentFrame.getCaptureNanos());
+		stageLatencies.record(StageLatencies.Stage.CAPTURE,
+				currentFrame.getReadNanos() + (CaptureClock.nanoTime() - currentFrame.getCaptureNanos()));
 
-		synchronized (projectionBoundsLock) {
-			if (projectionBounds.isPresent()) {
-				b = projectionBounds.get();
-			} else {
-				b = null;
-			}
+		// Blocks if detection is behind, which makes the camera drop frames
+		// instead of this pipeline silently skipping them
+		if (!detectionStage.getQueue().offer(new CapturedFrame(currentFrame, shouldDedistort)) && isStreaming.get()
+				&& logger.isDebugEnabled()) {
+			logger.debug("Frame from {} was not queued for detection", camera.getName());
 		}
 
-		if (cropFeedToProjection && b != null) {
-			currentImage = currentImage.getSubimage((int) b.getMinX(), (int) b.getMinY(), (int) b.getWidth(),
-					(int) b.getHeight());
+		return true;
+	}
+
+	/**
+	 * The detection stage: undistort and detect shots in a frame, then pass it
+	 * on to be recorded and displayed.
+	 */
+	private void detectFrame(CapturedFrame capturedFrame) {
+		Frame processedFrame = capturedFrame.frame;
+
+		try {
+			processedFrame = processFrame(capturedFrame.frame, capturedFrame.shouldDedistort);
+
+			// Shot detection is done painting the frame, thus readers can see
+			// it as it will be displayed
+			camera.getLatestFrame().publish(processedFrame);
+
+			if (recordingShots || recordingStream) recordingStage.getQueue().offer(processedFrame.retain());
+
+			if (!config.isHeadless()) displayStage.getQueue().offer(processedFrame.retain());
+		} finally {
+			if (processedFrame != capturedFrame.frame) capturedFrame.frame.release();
+			processedFrame.release();
 		}
+	}
 
-		if (recordingShots) {
-			rollingRecorder.recordFrame(currentImage);
+	/**
+	 * @return the part of a frame the user sees, which is only the projector
+	 *         arena when the feed is cropped to it, or <code>null</code> for
+	 *         the whole frame
+	 */
+	private Rect getVisibleArea() {
+		if (!cropFeedToProjection) return null;
 
-			final List<Shot> removeKeys = new ArrayList<>();
-			for (final Entry<Shot, ShotRecorder> r : shotRecorders.entrySet()) {
-				if (r.getValue().isComplete()) {
-					r.getValue().close();
-					removeKeys.add(r.getKey());
-				} else {
-					r.getValue().recordFrame(currentImage);
-				}
-			}
+		synchronized (projectionBoundsLock) {
+			if (!projectionBounds.isPresent()) return null;
 
-			for (final Shot s : removeKeys)
-				shotRecorders.remove(s);
+			final Bounds b = projectionBounds.get();
+			return new Rect((int) b.getMinX(), (int) b.getMinY(), (int) b.getWidth(), (int) b.getHeight());
 		}
+	}
 
-		if (recordingStream) {
-			final BufferedImage image = ConverterFactory.convertToType(currentImage, BufferedImage.TYPE_3BYTE_BGR);
-			final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
+	/**
+	 * The recording stage: encode a processed frame into every active
+	 * recording.
+	 */
+	private void recordFrame(Frame frame) {
+		final long start = System.nanoTime();
+		final BufferedImage currentImage;
+		final long captureTime = frame.getTimestamp();
+		try {
+			// Only the visible area is converted
+			currentImage = frame.getBufferedImage(getVisibleArea());
+		} finally {
+			frame.release();
+		}
 
-			final IVideoPicture frame = converter.toPicture(image,
-					(System.currentTimeMillis() - recordingStartTime) * 1000);
-			frame.setKeyFrame(isFirstStreamFrame);
-			frame.setQuality(0);
-			isFirstStreamFrame = false;
+		synchronized (recordingLock) {
+			if (recordingShots) {
+				rollingRecorder.recordFrame(currentImage, captureTime);
+
+				final List<Shot> removeKeys = new ArrayList<>();
+				for (final Entry<Shot, ShotRecorder> r : shotRecorders.entrySet()) {
+					if (r.getValue().isComplete()) {
+						r.getValue().close();
+						removeKeys.add(r.getKey());
+					} else {
+						r.getValue().recordFrame(currentImage, captureTime);
+					}
+				}
+
+				for (final Shot s : removeKeys)
+					shotRecorders.remove(s);
+			}
 
-			videoWriterStream.encodeVideo(0, frame);
+			if (recordingStream) {
+				final BufferedImage image = ConverterFactory.convertToType(currentImage,
+						BufferedImage.TYPE_3BYTE_BGR);
+				final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
+
+				final IVideoPicture picture = converter.toPicture(image,
+						Math.max(0, captureTime - recordingStartTime) * 1000);
+				picture.setKeyFrame(isFirstStreamFrame);
+				picture.setQuality(0);
+				isFirstStreamFrame = false;
+
+				videoWriterStream.encodeVideo(0, picture);
+			}
 		}
 
-		if (!config.isHeadless()) {
-			if (cropFeedToProjection && projectionBounds.isPresent()) {
-				cameraView.updateBackground(currentImage, projectionBounds);
-			} else {
-				cameraView.updateBackground(currentImage, Optional.empty());
+		stageLatencies.recordSince(StageLatencies.Stage.RECORDING, start);
+	}
+
+	/**
+	 * The display stage: show the newest processed frame.
+	 */
+	private void displayFrame(Frame frame) {
+		try {
+			final Optional<Bounds> bounds;
+			synchronized (projectionBoundsLock) {
+				bounds = cropFeedToProjection ? projectionBounds : Optional.empty();
 			}
+
+			// The view decides whether and at what size the frame is
+			// converted
+			cameraView.showFrame(frame, bounds);
+		} finally {
+			frame.release();
 		}
+	}
 
-		return true;
+	/**
+	 * @return the native memory used by this camera's frames
+	 */
+	public FramePool.Account getFrameMemory() {
+		return camera.getFrameAccount();
+	}
+
+	/**
+	 * @return how regularly the camera delivers frames
+	 */
+	public FrameTimingStats getFrameTiming() {
+		return frameTiming;
 	}
 
-	protected BufferedImage processFrame(Frame currentFrame, boolean shouldDedistort) {
+	/**
+	 * @return how long each stage of this camera's pipeline takes
+	 */
+	public StageLatencies getStageLatencies() {
+		return stageLatencies;
+	}
+
+	public FrameQueue<?> getDetectionQueue() {
+		return detectionStage.getQueue();
+	}
+
+	public FrameQueue<?> getRecordingQueue() {
+		return recordingStage.getQueue();
+	}
+
+	public FrameQueue<?> getDisplayQueue() {
+		return displayStage.getQueue();
+	}
+
+	/**
+	 * @return the frame to record and display, which has the colored pixels
+	 *         for brightness and motion
+	 */
+	protected Frame processFrame(Frame currentFrame, boolean shouldDedistort) {
 		if (isAutoCalibrating.get()) {
 			acm.processFrame(currentFrame);
-			return currentFrame.getOriginalBufferedImage();
+			return currentFrame;
 		}
 
 		Mat submatFrameBGR = null;
@@ -624,7 +908,9 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 		if (cameraAutoCalibrated && projectionBounds != null) {
 			if (shouldDedistort && acm != null) {
 				// MUST BE IN BGR pixel format.
+				final long start = System.nanoTime();
 				currentFrame = acm.undistortFrame(currentFrame);
+				stageLatencies.recordSince(StageLatencies.Stage.UNDISTORT, start);
 			}
 
 			try {
@@ -643,7 +929,7 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 				final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
 
 				final IVideoPicture frame = converter.toPicture(image,
-						(System.currentTimeMillis() - recordingCalibratedAreaStartTime) * 1000);
+						Math.max(0, currentFrame.getTimestamp() - recordingCalibratedAreaStartTime) * 1000);
 				frame.setKeyFrame(isFirstCalibratedAreaFrame);
 				frame.setQuality(0);
 				isFirstCalibratedAreaFrame = false;
@@ -671,21 +957,27 @@ public class CameraManager implements ObservableCloseable, CameraEventListener,
 
 			if (shotDetector instanceof FrameProcessingShotDetector) {
 				if (submatFrameBGR != null) {
-					((FrameProcessingShotDetector) shotDetector)
-							.processFrame(new Frame(submatFrameBGR, currentFrame.getTimestamp()), isDetecting.get());
+					updateDetectionSpans((int) projectionBounds.getMinX(), (int) projectionBounds.getMinY(),
+							submatFrameBGR.cols(), submatFrameBGR.rows());
+					final Frame projectionFrame = new Frame(submatFrameBGR, currentFrame.getTimestamp());
+					projectionFrame.setFrameNumber(currentFrame.getFrameNumber());
+					((FrameProcessingShotDetector) shotDetector).processFrame(projectionFrame, isDetecting.get());
 				} else {
 					logger.warn("Due to errors fetching frame submat, falling back to using full frame");
+					updateDetectionSpans(0, 0, currentFrame.getOriginalMat().cols(),
+							currentFrame.getOriginalMat().rows());
 					((FrameProcessingShotDetector) shotDetector).processFrame(currentFrame, isDetecting.get());
 				}
 			}
 		} else {
-			if (shotDetector instanceof FrameProcessingShotDetector)
+			if (shotDetector instanceof FrameProcessingShotDetector) {
+				updateDetectionSpans(0, 0, currentFrame.getOriginalMat().cols(), currentFrame.getOriginalMat().rows());
 				((FrameProcessingShotDetector) shotDetector).processFrame(currentFrame, isDetecting.get());
+			}
 		}
 
-		// currentFrame is showing the colored pixels for brightness and motion,
-		// hence why we need to return the converted version
-		return currentFrame.getOriginalBufferedImage();
+		// currentFrame is showing the colored pixels for brightness and motion
+		return currentFrame;
 	}
 
 	private void checkIfMinimumFPS(double cameraFPS) {
@@ -51,4 +51,10 @@ public interface CameraView extends Closeable {
 	public void setCameraManager(CameraManager cameraManager);
 
 	public void updateBackground(BufferedImage frame, Optional<Bounds> projectionBounds);
+
+	/**
+	 * Show a camera frame. Only the part of the frame that is displayed is
+	 * scaled and converted, and only if the view is going to show it.
+	 */
+	public void showFrame(Frame frame, Optional<Bounds> projectionBounds);
 }
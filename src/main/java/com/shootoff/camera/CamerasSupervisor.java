@@ -21,20 +21,45 @@ package com.shootoff.camera;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.camera.processors.ShotProcessor;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.CameraMetrics;
+
+public class CamerasSupervisor implements CameraDiscoveryListener {
+	private static final Logger logger = LoggerFactory.getLogger(CamerasSupervisor.class);
 
-public class CamerasSupervisor {
 	private final Configuration config;
-	private final List<CameraManager> managers = new ArrayList<>();
+	// Copied on write because metrics read the managers from other threads
+	private final List<CameraManager> managers = new CopyOnWriteArrayList<>();
 
 	private final AtomicBoolean allDetecting = new AtomicBoolean(true);
 
 	public CamerasSupervisor(Configuration config) {
 		this.config = config;
+
+		CameraFactory.addDiscoveryListener(this);
+	}
+
+	@Override
+	public void cameraAdded(Camera camera) {
+		// Cameras are only started once they are configured
+	}
+
+	@Override
+	public void cameraRemoved(Camera camera) {
+		for (final CameraManager manager : managers) {
+			if (manager.getCamera() == camera && camera.isOpen()) {
+				logger.warn("Camera {} was unplugged while in use", camera.getName());
+				manager.cameraUnplugged();
+			}
+		}
 	}
 
 	public Optional<CameraManager> addCameraManager(Camera cameraInterface, CameraErrorView cameraErrorView,
@@ -43,6 +68,7 @@ public class CamerasSupervisor {
 
 		if (manager.start()) {
 			managers.add(manager);
+			CameraMetrics.register(manager);
 			allDetecting.set(true);
 			return Optional.of(manager);
 		}
@@ -56,6 +82,7 @@ public class CamerasSupervisor {
 		allDetecting.set(false);
 
 		for (final CameraManager manager : managers) {
+			CameraMetrics.unregister(manager);
 			manager.close();
 		}
 
@@ -63,6 +90,7 @@ public class CamerasSupervisor {
 	}
 
 	public void clearManager(CameraManager manager) {
+		CameraMetrics.unregister(manager);
 		manager.close();
 		managers.remove(manager);
 	}
@@ -103,6 +131,7 @@ public class CamerasSupervisor {
 
 	public void closeAll() {
 		for (final CameraManager manager : managers) {
+			CameraMetrics.unregister(manager);
 			manager.close();
 		}
 
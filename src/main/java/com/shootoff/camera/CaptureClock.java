@@ -0,0 +1,112 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The clock frames, shots, and recordings are timed with. Capture times are
+ * taken from {@link System#nanoTime()}, thus they never jump when the system
+ * clock is adjusted and intervals between frames are precise. For code that
+ * works in milliseconds, capture times are mapped onto wall clock time as it
+ * was when the clock's source was set, so the millisecond values are
+ * comparable to {@link System#currentTimeMillis()} but still monotonic.
+ *
+ * The source can be replaced (see {@link #setSource(Source)}), e.g. to replay
+ * recorded video faster than real time while shot timestamps and the
+ * intervals between frames stay what they were when the video was recorded.
+ */
+public final class CaptureClock {
+	/**
+	 * Where capture times come from.
+	 */
+	public interface Source {
+		/**
+		 * @return the current time in nanoseconds, which must never go
+		 *         backwards
+		 */
+		long nanoTime();
+	}
+
+	public static final Source SYSTEM = System::nanoTime;
+
+	private static final class Anchor {
+		private final Source source;
+		private final long nanos;
+		private final long millis;
+
+		private Anchor(Source source) {
+			this.source = source;
+			this.nanos = source.nanoTime();
+			this.millis = System.currentTimeMillis();
+		}
+	}
+
+	private static volatile Anchor anchor = new Anchor(SYSTEM);
+
+	private CaptureClock() {}
+
+	/**
+	 * Take capture times from <code>source</code> from now on. Capture times
+	 * taken from different sources can't be compared, thus this should only
+	 * be called before any camera is opened.
+	 */
+	public static void setSource(Source source) {
+		anchor = new Anchor(source);
+	}
+
+	/**
+	 * Go back to taking capture times from {@link System#nanoTime()}.
+	 */
+	public static void useSystemSource() {
+		setSource(SYSTEM);
+	}
+
+	/**
+	 * @return the current capture time in nanoseconds, which is only
+	 *         meaningful relative to other capture times
+	 */
+	public static long nanoTime() {
+		return anchor.source.nanoTime();
+	}
+
+	/**
+	 * @return the current capture time in milliseconds
+	 */
+	public static long currentTimeMillis() {
+		return toMillis(nanoTime());
+	}
+
+	/**
+	 * Convert a capture time from {@link #nanoTime()} to milliseconds.
+	 */
+	public static long toMillis(long captureNanos) {
+		final Anchor a = anchor;
+		return a.millis + TimeUnit.NANOSECONDS.toMillis(captureNanos - a.nanos);
+	}
+
+	/**
+	 * Convert a capture time in milliseconds back to nanoseconds. The result
+	 * is only accurate to a millisecond.
+	 */
+	public static long toNanos(long captureMillis) {
+		final Anchor a = anchor;
+		return a.nanos + TimeUnit.MILLISECONDS.toNanos(captureMillis - a.millis);
+	}
+}
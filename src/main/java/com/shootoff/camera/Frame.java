@@ -1,27 +1,143 @@
 package com.shootoff.camera;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.opencv.core.Mat;
+import org.opencv.core.Rect;
 import org.opencv.core.Size;
 
 import com.shootoff.camera.cameratypes.Camera;
 
+/**
+ * A camera frame. Besides the frame's Mat, a frame offers cropped and
+ * converted views of it that are created the first time a consumer asks for
+ * them and cached for every other consumer of the same frame. Views reflect
+ * the Mat at the time they were first requested, thus they should only be
+ * requested once shot detection is done drawing on the frame. Cached images
+ * are shared and must not be modified.
+ */
 public class Frame {
 	protected Mat mat;
 	final protected long timestamp;
+	// Monotonic capture time from CaptureClock, timestamp is the same time in
+	// milliseconds
+	final protected long captureNanos;
+	// How long the camera took to read the frame before it was stamped
+	private long readNanos = 0;
+	// The camera's frame count when the frame arrived, set by the camera
+	// manager before the frame is handed to other threads
+	private int frameNumber = -1;
+
+	// Lazily created views, guarded by this. A null crop is the whole frame.
+	private Rect croppedMatBounds = null;
+	private Mat croppedMat = null;
+	private Rect bufferedImageBounds = null;
+	private BufferedImage bufferedImage = null;
+
+	// Only set for frames whose Mat came from the FramePool. Those frames are
+	// reference counted and their Mat is recycled when the count hits zero.
+	private final FramePool.Account account;
+	private final AtomicInteger references = new AtomicInteger(1);
+	private long accountedBytes = 0;
+
+	// False if the Mat wasn't handed out by the pool and should be released
+	// rather than pooled once the frame is recycled
+	private boolean poolMat = true;
 
 	public Frame(Mat mat, long timestamp) {
 		this.mat = mat;
 		this.timestamp = timestamp;
+		this.captureNanos = CaptureClock.toNanos(timestamp);
+		this.account = null;
 	}
 
 	public Frame(BufferedImage bimg, long timestamp) {
 		mat = Camera.bufferedImageToMat(bimg);
 		this.timestamp = timestamp;
+		this.captureNanos = CaptureClock.toNanos(timestamp);
+		this.account = null;
+	}
+
+	Frame(Mat mat, long captureNanos, FramePool.Account account, boolean poolMat) {
+		this.mat = mat;
+		this.timestamp = CaptureClock.toMillis(captureNanos);
+		this.captureNanos = captureNanos;
+		this.account = account;
+		this.accountedBytes = account.adopt(mat);
+		this.poolMat = poolMat;
+	}
+
+	/**
+	 * Add a reference to this frame for a holder that will call
+	 * {@link #release()} when it is done with it. This does nothing for frames
+	 * that aren't pooled.
+	 * 
+	 * @return this frame
+	 */
+	public Frame retain() {
+		if (account != null && references.getAndIncrement() <= 0)
+			throw new IllegalStateException("Retained a frame that was already recycled");
+
+		return this;
+	}
+
+	/**
+	 * Add a reference to this frame unless it was already recycled, e.g.
+	 * because another thread released the last reference while the caller was
+	 * getting hold of the frame. Unlike {@link #retain()} this never throws.
+	 * 
+	 * @return <code>true</code> if the caller now holds a reference to the
+	 *         frame
+	 */
+	public boolean tryRetain() {
+		if (account == null) return true;
+
+		while (true) {
+			final int current = references.get();
+			if (current <= 0) return false;
+			if (references.compareAndSet(current, current + 1)) return true;
+		}
+	}
+
+	/**
+	 * Drop a reference to this frame. The frame must not be used by the caller
+	 * afterwards because its Mat is recycled once every holder released it.
+	 * This does nothing for frames that aren't pooled.
+	 */
+	public void release() {
+		if (account == null) return;
+
+		final int remaining = references.decrementAndGet();
+
+		if (remaining == 0) {
+			clearViews();
+			FramePool.recycle(account, mat, accountedBytes, poolMat);
+		} else if (remaining < 0) {
+			throw new IllegalStateException("Released a frame that was already recycled");
+		}
 	}
 
-	public void setMat(Mat mat) {
+	public boolean isPooled() {
+		return account != null;
+	}
+
+	public synchronized void setMat(Mat mat) {
+		clearViews();
+
+		if (account != null && this.mat != mat) {
+			// The frame owns its Mat, thus the replaced one can be reused
+			// right away
+			if (poolMat)
+				FramePool.recycle(this.mat);
+			else
+				this.mat.release();
+
+			account.disown(accountedBytes);
+			accountedBytes = account.adopt(mat);
+			poolMat = true;
+		}
+
 		this.mat = mat;
 	}
 
@@ -29,6 +145,40 @@ public class Frame {
 		return timestamp;
 	}
 
+	/**
+	 * @return when the frame was captured according to
+	 *         {@link CaptureClock#nanoTime()}
+	 */
+	public long getCaptureNanos() {
+		return captureNanos;
+	}
+
+	/**
+	 * @return how long the camera spent reading this frame from its device
+	 *         before stamping it, in nanoseconds, or 0 if the camera doesn't
+	 *         know (e.g. the frame was pushed to it by a driver)
+	 */
+	public long getReadNanos() {
+		return readNanos;
+	}
+
+	public void setReadNanos(long readNanos) {
+		this.readNanos = readNanos;
+	}
+
+	/**
+	 * @return the camera's frame count when this frame arrived (see
+	 *         {@link CameraManager#getFrameCount()}) or -1 if the frame
+	 *         didn't come through a camera manager
+	 */
+	public int getFrameNumber() {
+		return frameNumber;
+	}
+
+	public void setFrameNumber(int frameNumber) {
+		this.frameNumber = frameNumber;
+	}
+
 	public Mat getOriginalMat() {
 		return mat;
 	}
@@ -37,8 +187,64 @@ public class Frame {
 		return mat.clone();
 	}
 
+	/**
+	 * @return the whole frame as a BGR image, converted on first use
+	 */
 	public BufferedImage getOriginalBufferedImage() {
-		return Camera.matToBufferedImage(mat);
+		return getBufferedImage(null);
+	}
+
+	/**
+	 * @param crop
+	 *            the part of the frame to get or <code>null</code> for the
+	 *            whole frame
+	 * @return a view of the part of the frame's Mat inside <code>crop</code>
+	 *         that shares the frame's memory
+	 */
+	public synchronized Mat getCroppedMat(Rect crop) {
+		if (crop == null) return mat;
+
+		if (croppedMat == null || !crop.equals(croppedMatBounds)) {
+			if (croppedMat != null) croppedMat.release();
+			croppedMat = mat.submat(crop);
+			croppedMatBounds = crop.clone();
+		}
+
+		return croppedMat;
+	}
+
+	/**
+	 * Get part of the frame as a BGR image. The frame is cropped before it is
+	 * converted, thus only the pixels inside <code>crop</code> are copied.
+	 * 
+	 * @param crop
+	 *            the part of the frame to get or <code>null</code> for the
+	 *            whole frame
+	 */
+	public synchronized BufferedImage getBufferedImage(Rect crop) {
+		if (bufferedImage == null || !sameBounds(crop, bufferedImageBounds)) {
+			bufferedImage = Camera.matToBufferedImage(getCroppedMat(crop));
+			bufferedImageBounds = crop == null ? null : crop.clone();
+		}
+
+		return bufferedImage;
+	}
+
+	private static boolean sameBounds(Rect a, Rect b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Drop every cached view, e.g. because the Mat they were created from is
+	 * being replaced or recycled.
+	 */
+	private synchronized void clearViews() {
+		if (croppedMat != null) croppedMat.release();
+
+		croppedMat = null;
+		croppedMatBounds = null;
+		bufferedImage = null;
+		bufferedImageBounds = null;
 	}
 
 	public Size size() {
@@ -0,0 +1,286 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recycles the native memory behind camera frames. Cameras take their frames'
+ * Mats from this pool with {@link #acquireFrame} and every stage that holds
+ * on to a frame retains and releases it (see {@link Frame#retain()} and
+ * {@link Frame#release()}). Once the last holder releases a frame its Mat
+ * goes back to the pool to be reused for a later frame of the same shape
+ * instead of waiting for the garbage collector to finalize it.
+ *
+ * The pool is shared by every camera, but the native memory of the frames
+ * each camera has in flight is accounted for separately (see
+ * {@link #createAccount(String)}).
+ */
+public final class FramePool {
+	private static final Logger logger = LoggerFactory.getLogger(FramePool.class);
+
+	// Enough for every queued frame of a few cameras; beyond this recycled
+	// Mats are released instead of pooled
+	private static final int MAXIMUM_POOLED_PER_SHAPE = 16;
+
+	private static final Map<Long, ConcurrentLinkedDeque<Mat>> pool = new ConcurrentHashMap<>();
+	private static final Map<Long, AtomicInteger> pooledCounts = new ConcurrentHashMap<>();
+	private static final AtomicLong pooledBytes = new AtomicLong();
+
+	// Only used to log the accounts of cameras that still exist, thus
+	// accounts are weakly referenced and go away with their camera
+	private static final Set<Account> accounts = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	/**
+	 * The native memory used by one camera's frames. Accounts are compared by
+	 * identity, thus two cameras with the same name are still accounted for
+	 * separately.
+	 */
+	public static final class Account {
+		private final String name;
+		private final AtomicInteger framesInUse = new AtomicInteger();
+		private final AtomicLong bytesInUse = new AtomicLong();
+		private final AtomicLong allocatedCount = new AtomicLong();
+		private final AtomicLong reusedCount = new AtomicLong();
+
+		private Account(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of this camera's frames that have not been
+		 *         released by every holder yet
+		 */
+		public int getFramesInUse() {
+			return framesInUse.get();
+		}
+
+		/**
+		 * @return the native memory held by this camera's unreleased frames
+		 */
+		public long getBytesInUse() {
+			return bytesInUse.get();
+		}
+
+		/**
+		 * @return how many Mats had to be allocated because none of the right
+		 *         shape were pooled
+		 */
+		public long getAllocatedCount() {
+			return allocatedCount.get();
+		}
+
+		/**
+		 * @return how many frames reused a pooled Mat
+		 */
+		public long getReusedCount() {
+			return reusedCount.get();
+		}
+
+		/**
+		 * @return the number of bytes <code>mat</code> was accounted for
+		 *         with, which must be passed to {@link #disown(long)}
+		 */
+		long adopt(Mat mat) {
+			final long bytes = sizeOf(mat);
+			bytesInUse.addAndGet(bytes);
+			return bytes;
+		}
+
+		void disown(long bytes) {
+			bytesInUse.addAndGet(-bytes);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d frames (%d KiB) in use, %d allocated, %d reused", name, framesInUse.get(),
+					bytesInUse.get() / 1024, allocatedCount.get(), reusedCount.get());
+		}
+	}
+
+	private FramePool() {}
+
+	/**
+	 * Create a new account for a camera. Every camera instance should create
+	 * exactly one account and charge all of its frames to it (see
+	 * {@link com.shootoff.camera.cameratypes.Camera#getFrameAccount()}).
+	 */
+	public static Account createAccount(String cameraName) {
+		final Account account = new Account(cameraName);
+		accounts.add(account);
+		return account;
+	}
+
+	/**
+	 * @return the native memory held by Mats waiting in the pool to be reused
+	 */
+	public static long getPooledBytes() {
+		return pooledBytes.get();
+	}
+
+	/**
+	 * Get a frame backed by a pooled Mat of the given shape. The contents of
+	 * the Mat are undefined. The caller holds the only reference to the frame
+	 * and must release it (or hand it to a stage that will).
+	 */
+	public static Frame acquireFrame(Account account, int rows, int cols, int type, long captureNanos) {
+		return toFrame(account, acquireMat(account, rows, cols, type), captureNanos);
+	}
+
+	/**
+	 * Get a pooled Mat of the given shape to fill before the frame's capture
+	 * time is known. The Mat must either be wrapped with {@link #toFrame} or given
+	 * back with {@link #recycle(Mat)}.
+	 */
+	public static Mat acquireMat(Account account, int rows, int cols, int type) {
+		final long key = key(rows, cols, type);
+		final ConcurrentLinkedDeque<Mat> mats = pool.get(key);
+		Mat mat = mats == null ? null : mats.pollFirst();
+
+		if (mat != null) {
+			pooledCounts.get(key).decrementAndGet();
+			pooledBytes.addAndGet(-sizeOf(mat));
+			account.reusedCount.incrementAndGet();
+		} else {
+			mat = new Mat(rows, cols, type);
+			account.allocatedCount.incrementAndGet();
+		}
+
+		return mat;
+	}
+
+	/**
+	 * Wrap a Mat from {@link #acquireMat} in a reference counted frame. The
+	 * caller holds the only reference to the frame.
+	 *
+	 * @param captureNanos
+	 *            when the frame was captured according to
+	 *            {@link CaptureClock#nanoTime()}
+	 */
+	public static Frame toFrame(Account account, Mat mat, long captureNanos) {
+		account.framesInUse.incrementAndGet();
+
+		return new Frame(mat, captureNanos, account, true);
+	}
+
+	/**
+	 * Wrap a Mat that wasn't acquired from the pool, e.g. one a decoder
+	 * allocated, in a reference counted frame. The frame is accounted for like
+	 * a pooled frame, but its Mat is released instead of pooled once the last
+	 * holder releases it so that Mats no camera acquires don't fill the pool.
+	 * The caller holds the only reference to the frame.
+	 *
+	 * @param captureNanos
+	 *            when the frame was captured according to
+	 *            {@link CaptureClock#nanoTime()}
+	 */
+	public static Frame wrapFrame(Account account, Mat mat, long captureNanos) {
+		account.framesInUse.incrementAndGet();
+		account.allocatedCount.incrementAndGet();
+
+		return new Frame(mat, captureNanos, account, false);
+	}
+
+	/**
+	 * Called when the last reference to a pooled frame is released.
+	 */
+	static void recycle(Account account, Mat mat, long accountedBytes, boolean poolMat) {
+		account.framesInUse.decrementAndGet();
+		account.disown(accountedBytes);
+
+		if (poolMat)
+			recycle(mat);
+		else
+			mat.release();
+	}
+
+	/**
+	 * Return a Mat that no frame uses anymore to the pool, or release it if
+	 * the pool already has enough Mats of its shape.
+	 */
+	public static void recycle(Mat mat) {
+		// A submat or a Mat a camera reallocated to a different shape can't
+		// be handed out as a full frame later
+		if (mat.empty() || !mat.isContinuous()) {
+			mat.release();
+			return;
+		}
+
+		final long key = key(mat.rows(), mat.cols(), mat.type());
+		final AtomicInteger count = pooledCounts.computeIfAbsent(key, k -> new AtomicInteger());
+
+		if (count.incrementAndGet() > MAXIMUM_POOLED_PER_SHAPE) {
+			count.decrementAndGet();
+			mat.release();
+			return;
+		}
+
+		pooledBytes.addAndGet(sizeOf(mat));
+		pool.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>()).offerFirst(mat);
+	}
+
+	/**
+	 * Release every pooled Mat, e.g. when the cameras are closed.
+	 */
+	public static void clear() {
+		for (final Map.Entry<Long, ConcurrentLinkedDeque<Mat>> entry : pool.entrySet()) {
+			Mat mat;
+			while ((mat = entry.getValue().pollFirst()) != null) {
+				pooledCounts.get(entry.getKey()).decrementAndGet();
+				pooledBytes.addAndGet(-sizeOf(mat));
+				mat.release();
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			final List<Account> liveAccounts;
+			synchronized (accounts) {
+				liveAccounts = new ArrayList<>(accounts);
+			}
+
+			logger.debug("Cleared frame pool, accounts: {}", liveAccounts);
+		}
+	}
+
+	private static long key(int rows, int cols, int type) {
+		return ((long) rows << 40) | ((long) cols << 16) | type;
+	}
+
+	private static long sizeOf(Mat mat) {
+		return mat.total() * mat.elemSize();
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A bounded ring buffer that joins two stages of the camera pipeline. What
+ * happens when the producer gets ahead of the consumer is decided by the
+ * queue's {@link DropPolicy}, and every queue counts how deep it is, how many
+ * items it dropped, and how long both sides spent waiting on each other so
+ * that a slow stage is visible instead of silently losing frames.
+ * 
+ * The queue owns the items offered to it until they are taken. Items it drops
+ * or discards when it is closed are handed to the queue's discard handler,
+ * e.g. to release pooled frames.
+ *
+ * @param <T>
+ *            the type of item passed between the stages
+ */
+public final class FrameQueue<T> {
+	public enum DropPolicy {
+		/**
+		 * Never drop, the producer waits for space instead.
+		 */
+		BLOCK,
+		/**
+		 * Drop the oldest queued item to make room, thus the consumer always
+		 * gets the newest items.
+		 */
+		DROP_OLDEST,
+		/**
+		 * Drop the item being offered when the queue is full, thus the
+		 * consumer gets a gap-free run of older items.
+		 */
+		DROP_NEWEST
+	}
+
+	private final String name;
+	private final DropPolicy dropPolicy;
+	private final Object[] items;
+	private final Consumer<? super T> discardHandler;
+	private int head = 0;
+	private int count = 0;
+	private boolean closed = false;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	// Written while holding lock, volatile so they can be read without it
+	private volatile int maximumDepth = 0;
+	private volatile long offeredCount = 0;
+	private volatile long droppedCount = 0;
+	private volatile long producerWaitNanos = 0;
+	private volatile long consumerWaitNanos = 0;
+
+	public FrameQueue(String name, int capacity, DropPolicy dropPolicy) {
+		this(name, capacity, dropPolicy, (item) -> {});
+	}
+
+	public FrameQueue(String name, int capacity, DropPolicy dropPolicy, Consumer<? super T> discardHandler) {
+		if (capacity < 1) throw new IllegalArgumentException("Queue capacity must be at least 1, got " + capacity);
+
+		this.name = name;
+		this.dropPolicy = dropPolicy;
+		this.items = new Object[capacity];
+		this.discardHandler = discardHandler;
+	}
+
+	/**
+	 * Add an item to the queue. With {@link DropPolicy#BLOCK} this waits until
+	 * there is space.
+	 *
+	 * @return <code>true</code> if the item was queued, <code>false</code> if
+	 *         it was dropped, the queue is closed, or the producer was
+	 *         interrupted while waiting. Items that weren't queued are given
+	 *         to the discard handler.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean offer(T item) {
+		lock.lock();
+		try {
+			if (closed) {
+				discardHandler.accept(item);
+				return false;
+			}
+
+			offeredCount++;
+
+			if (count == items.length) {
+				switch (dropPolicy) {
+				case BLOCK:
+					final long waitStart = System.nanoTime();
+					try {
+						while (count == items.length && !closed)
+							notFull.await();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+						droppedCount++;
+						discardHandler.accept(item);
+						return false;
+					} finally {
+						producerWaitNanos += System.nanoTime() - waitStart;
+					}
+
+					if (closed) {
+						discardHandler.accept(item);
+						return false;
+					}
+					break;
+
+				case DROP_OLDEST:
+					discardHandler.accept((T) items[head]);
+					items[head] = null;
+					head = (head + 1) % items.length;
+					count--;
+					droppedCount++;
+					break;
+
+				case DROP_NEWEST:
+					droppedCount++;
+					discardHandler.accept(item);
+					return false;
+				}
+			}
+
+			items[(head + count) % items.length] = item;
+			count++;
+			if (count > maximumDepth) maximumDepth = count;
+
+			notEmpty.signal();
+
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the oldest item, waiting until there is one.
+	 *
+	 * @return the oldest item or <code>null</code> if the queue was closed
+	 * @throws InterruptedException
+	 *             if the consumer is interrupted while waiting
+	 */
+	@SuppressWarnings("unchecked")
+	public T take() throws InterruptedException {
+		lock.lock();
+		try {
+			if (count == 0 && !closed) {
+				final long waitStart = System.nanoTime();
+				try {
+					while (count == 0 && !closed)
+						notEmpty.await();
+				} finally {
+					consumerWaitNanos += System.nanoTime() - waitStart;
+				}
+			}
+
+			if (count == 0) return null;
+
+			final T item = (T) items[head];
+			items[head] = null;
+			head = (head + 1) % items.length;
+			count--;
+
+			notFull.signal();
+
+			return item;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop accepting items and wake up both sides. Items that are still
+	 * queued are discarded.
+	 */
+	@SuppressWarnings("unchecked")
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+
+			for (int i = 0; i < count; i++) {
+				discardHandler.accept((T) items[(head + i) % items.length]);
+			}
+
+			for (int i = 0; i < items.length; i++)
+				items[i] = null;
+			count = 0;
+
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public DropPolicy getDropPolicy() {
+		return dropPolicy;
+	}
+
+	public int getCapacity() {
+		return items.length;
+	}
+
+	public int getDepth() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the deepest the queue has been since it was created
+	 */
+	public int getMaximumDepth() {
+		return maximumDepth;
+	}
+
+	public long getOfferedCount() {
+		return offeredCount;
+	}
+
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+
+	/**
+	 * @return the total time producers spent blocked on a full queue
+	 */
+	public long getProducerWaitNanos() {
+		return producerWaitNanos;
+	}
+
+	/**
+	 * @return the total time the consumer spent waiting on an empty queue
+	 */
+	public long getConsumerWaitNanos() {
+		return consumerWaitNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s queue: depth %d/%d (max %d), offered %d, dropped %d, producer waited %d ms, "
+				+ "consumer waited %d ms", name, getDepth(), items.length, maximumDepth, offeredCount, droppedCount,
+				producerWaitNanos / 1000000, consumerWaitNanos / 1000000);
+	}
+}
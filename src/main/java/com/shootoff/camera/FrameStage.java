@@ -0,0 +1,100 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stage of the camera pipeline: a thread that hands every item from its
+ * input queue to a consumer until the queue is closed.
+ */
+final class FrameStage<T> implements Runnable {
+	private static final Logger logger = LoggerFactory.getLogger(FrameStage.class);
+
+	// Long enough for any single frame, short enough that a wedged consumer
+	// can't hang closing the camera
+	private static final long STOP_TIMEOUT = 2000; // ms
+
+	private final FrameQueue<T> queue;
+	private final Consumer<T> consumer;
+	private Thread thread = null;
+
+	FrameStage(FrameQueue<T> queue, Consumer<T> consumer) {
+		this.queue = queue;
+		this.consumer = consumer;
+	}
+
+	public FrameQueue<T> getQueue() {
+		return queue;
+	}
+
+	public synchronized void start(String threadName) {
+		if (thread != null) return;
+
+		thread = new Thread(this, threadName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Close the stage's queue and wait for the stage's thread to finish the
+	 * item it is working on (if any) and exit.
+	 */
+	public void close() {
+		queue.close();
+
+		final Thread stageThread;
+		synchronized (this) {
+			stageThread = thread;
+		}
+
+		// A stage's consumer may close its own camera
+		if (stageThread == null || stageThread == Thread.currentThread()) return;
+
+		try {
+			stageThread.join(STOP_TIMEOUT);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (stageThread.isAlive()) logger.warn("{} did not stop within {} ms", stageThread.getName(), STOP_TIMEOUT);
+	}
+
+	@Override
+	public void run() {
+		try {
+			T item;
+			while ((item = queue.take()) != null) {
+				try {
+					consumer.accept(item);
+				} catch (final Exception e) {
+					// A bad frame shouldn't stop the rest of the stream
+					logger.error("Error processing frame in " + queue.getName() + " stage", e);
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (logger.isDebugEnabled()) logger.debug("Stage stopped, {}", queue);
+	}
+}
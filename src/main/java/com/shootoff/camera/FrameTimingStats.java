@@ -0,0 +1,102 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how regularly a camera delivers frames using their capture times.
+ * The interval histogram shows the camera's real frame rate and any stalls
+ * (e.g. a saturated USB bus), while the jitter histogram (the change between
+ * consecutive intervals) shows how evenly frames arrive.
+ */
+public final class FrameTimingStats {
+	private static final long BUCKET_WIDTH = TimeUnit.MICROSECONDS.toNanos(250);
+	private static final int BUCKET_COUNT = 800; // Up to 200 ms
+	private static final int WINDOW_SIZE = 600; // frames
+
+	// An interval this many times longer than the average is a stall
+	private static final double STALL_FACTOR = 3.0;
+
+	private final RollingHistogram intervals = new RollingHistogram(BUCKET_WIDTH, BUCKET_COUNT, WINDOW_SIZE);
+	private final RollingHistogram jitter = new RollingHistogram(BUCKET_WIDTH, BUCKET_COUNT, WINDOW_SIZE);
+
+	// Only touched by the thread that records frames
+	private long lastCaptureNanos = -1;
+	private long lastInterval = -1;
+	private double averageInterval = -1;
+
+	private volatile long stallCount = 0;
+
+	/**
+	 * Record the capture time of the camera's next frame. Must only be called
+	 * from the camera's capture thread.
+	 */
+	public void record(long captureNanos) {
+		if (lastCaptureNanos >= 0) {
+			final long interval = captureNanos - lastCaptureNanos;
+
+			// Frames delivered out of order or twice say nothing about the
+			// camera's timing
+			if (interval <= 0) return;
+
+			intervals.record(interval);
+			if (lastInterval > 0) jitter.record(Math.abs(interval - lastInterval));
+
+			if (averageInterval > 0 && interval > averageInterval * STALL_FACTOR) stallCount++;
+			averageInterval = averageInterval < 0 ? interval : averageInterval * 0.95 + interval * 0.05;
+
+			lastInterval = interval;
+		}
+
+		lastCaptureNanos = captureNanos;
+	}
+
+	public RollingHistogram getIntervals() {
+		return intervals;
+	}
+
+	public RollingHistogram getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * @return the number of times the camera took much longer than usual to
+	 *         deliver a frame
+	 */
+	public long getStallCount() {
+		return stallCount;
+	}
+
+	/**
+	 * @return the frame rate implied by the median frame interval, or 0 if
+	 *         there aren't enough frames yet
+	 */
+	public double getMedianFPS() {
+		final long median = intervals.getPercentileNanos(50);
+
+		return median == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / (double) median;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%.1f fps, intervals: %s, jitter: %s, %d stalls", getMedianFPS(), intervals, jitter,
+				stallCount);
+	}
+}
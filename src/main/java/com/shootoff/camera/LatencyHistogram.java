@@ -0,0 +1,237 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations that is cheap enough to record into for every
+ * frame. Recording is lock-free and never allocates, thus any number of
+ * threads can record while others read percentiles.
+ * 
+ * Durations are counted in log-linear buckets: every power of two range is
+ * split into {@link #SUB_BUCKET_COUNT} buckets, so a reported percentile is
+ * never more than about 3% above the real one no matter how long the
+ * duration. Unlike {@link RollingHistogram} this counts every duration since
+ * it was created or {@link #reset()}. Use {@link #getSnapshot()} and
+ * {@link Snapshot#since(Snapshot)} to describe a recent interval instead.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	// Durations of 2^36 ns (about 69 s) or more are counted in the last bucket
+	private static final int MAXIMUM_EXPONENT = 35;
+	private static final int BUCKET_COUNT = (MAXIMUM_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maximumNanos = new AtomicLong();
+
+	public void record(long durationNanos) {
+		// Clocks that aren't monotonic can produce negative durations
+		if (durationNanos < 0) durationNanos = 0;
+
+		counts.incrementAndGet(bucketOf(durationNanos));
+		totalNanos.addAndGet(durationNanos);
+
+		long maximum;
+		while (durationNanos > (maximum = maximumNanos.get())
+				&& !maximumNanos.compareAndSet(maximum, durationNanos))
+			;
+	}
+
+	/**
+	 * Forget every recorded duration. Durations recorded while the histogram
+	 * is being reset may be partially forgotten.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			counts.set(i, 0);
+
+		totalNanos.set(0);
+		maximumNanos.set(0);
+	}
+
+	private static int bucketOf(long durationNanos) {
+		if (durationNanos < SUB_BUCKET_COUNT) return (int) durationNanos;
+
+		final int exponent = 63 - Long.numberOfLeadingZeros(durationNanos);
+		if (exponent > MAXIMUM_EXPONENT) return BUCKET_COUNT - 1;
+
+		final int subBucket = (int) (durationNanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * @return the longest duration counted by <code>bucket</code>
+	 */
+	private static long upperBoundOf(int bucket) {
+		if (bucket < SUB_BUCKET_COUNT) return bucket;
+
+		final int shift = bucket / SUB_BUCKET_COUNT - 1;
+		final long lowerBound = (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+
+		return lowerBound + (1L << shift) - 1;
+	}
+
+	/**
+	 * @return the number of durations recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++)
+			count += counts.get(i);
+
+		return count;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the upper bound of the bucket the percentile falls in, or 0 if
+	 *         nothing was recorded
+	 */
+	public long getPercentileNanos(double percentile) {
+		final long count = getCount();
+		if (count == 0) return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) return Math.min(upperBoundOf(i), maximumNanos.get());
+		}
+
+		// Durations were recorded while the buckets were counted
+		return maximumNanos.get();
+	}
+
+	public long getMaximumNanos() {
+		return maximumNanos.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	/**
+	 * @return a copy of the histogram's current state, e.g. to compare with a
+	 *         later snapshot
+	 */
+	public Snapshot getSnapshot() {
+		final long[] snapshotCounts = new long[BUCKET_COUNT];
+		long count = 0;
+
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			snapshotCounts[i] = counts.get(i);
+			count += snapshotCounts[i];
+		}
+
+		return new Snapshot(snapshotCounts, count, totalNanos.get(), maximumNanos.get());
+	}
+
+	/**
+	 * An immutable copy of a histogram's counts.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long totalNanos;
+		private final long maximumNanos;
+
+		private Snapshot(long[] counts, long count, long totalNanos, long maximumNanos) {
+			this.counts = counts;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maximumNanos = maximumNanos;
+		}
+
+		/**
+		 * @return the durations recorded between <code>earlier</code> and
+		 *         this snapshot of the same histogram. The maximum is the
+		 *         upper bound of the longest duration's bucket.
+		 */
+		public Snapshot since(Snapshot earlier) {
+			final long[] intervalCounts = new long[BUCKET_COUNT];
+			long intervalCount = 0;
+			long intervalMaximum = 0;
+
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				// A reset between the snapshots makes counts go backwards
+				intervalCounts[i] = Math.max(counts[i] - earlier.counts[i], 0);
+				intervalCount += intervalCounts[i];
+				if (intervalCounts[i] > 0) intervalMaximum = Math.min(upperBoundOf(i), maximumNanos);
+			}
+
+			return new Snapshot(intervalCounts, intervalCount, Math.max(totalNanos - earlier.totalNanos, 0),
+					intervalMaximum);
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * @param percentile
+		 *            between 0 and 100
+		 * @return the upper bound of the bucket the percentile falls in, or 0
+		 *         if nothing was recorded
+		 */
+		public long getPercentileNanos(double percentile) {
+			if (count == 0) return 0;
+
+			final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+
+			long seen = 0;
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				seen += counts[i];
+				if (seen >= rank) return Math.min(upperBoundOf(i), maximumNanos);
+			}
+
+			return maximumNanos;
+		}
+
+		public long getMeanNanos() {
+			return count == 0 ? 0 : totalNanos / count;
+		}
+
+		public long getMaximumNanos() {
+			return maximumNanos;
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms", count,
+					getPercentileNanos(50) / 1e6, getPercentileNanos(95) / 1e6, getPercentileNanos(99) / 1e6,
+					maximumNanos / 1e6);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getSnapshot().toString();
+	}
+}
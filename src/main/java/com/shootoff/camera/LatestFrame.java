@@ -0,0 +1,90 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.awt.image.BufferedImage;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the most recent frame of a camera so that previews, calibration, and
+ * snapshots can look at the feed without reading from the device, which would
+ * steal frames from shot detection. The camera's detection stage publishes
+ * each frame once shot detection is done painting it, thus it is the only
+ * writer. Any number of threads may read, and neither side ever blocks.
+ * 
+ * The slot holds a reference to its frame (see {@link Frame#retain()}), thus
+ * the frame is not recycled until it is replaced by a newer frame and every
+ * reader released it.
+ */
+public final class LatestFrame {
+	private final AtomicReference<Frame> latest = new AtomicReference<>();
+
+	/**
+	 * Make <code>frame</code> the latest frame. The caller keeps its own
+	 * reference to the frame but must not change it anymore.
+	 * 
+	 * @return <code>frame</code>
+	 */
+	public Frame publish(Frame frame) {
+		if (frame == null) return null;
+
+		final Frame previous = latest.getAndSet(frame.retain());
+		if (previous != null) previous.release();
+
+		return frame;
+	}
+
+	/**
+	 * Get the latest frame. The caller must release the frame when it is done
+	 * with it.
+	 */
+	public Optional<Frame> acquire() {
+		while (true) {
+			final Frame frame = latest.get();
+			if (frame == null) return Optional.empty();
+
+			// Fails if the writer replaced and recycled the frame after we
+			// read it, in which case there is a newer frame to try
+			if (frame.tryRetain()) return Optional.of(frame);
+		}
+	}
+
+	/**
+	 * @return the latest frame converted to an image
+	 */
+	public Optional<BufferedImage> getBufferedImage() {
+		final Optional<Frame> frame = acquire();
+		if (!frame.isPresent()) return Optional.empty();
+
+		try {
+			return Optional.of(frame.get().getOriginalBufferedImage());
+		} finally {
+			frame.get().release();
+		}
+	}
+
+	/**
+	 * Drop the latest frame, e.g. because the camera was closed.
+	 */
+	public void clear() {
+		final Frame previous = latest.getAndSet(null);
+		if (previous != null) previous.release();
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+/**
+ * A histogram of the most recent durations recorded. Durations are counted in
+ * fixed width buckets and the oldest duration leaves the histogram when a new
+ * one is recorded after the window is full, thus the histogram always
+ * describes how a camera is behaving right now rather than since it was
+ * opened. Durations longer than the last bucket are counted in the last
+ * bucket, but the exact maximum is still tracked.
+ */
+public final class RollingHistogram {
+	private final long bucketWidthNanos;
+	private final int[] buckets;
+	private final long[] window;
+	private int windowStart = 0;
+	private int windowCount = 0;
+
+	/**
+	 * @param bucketWidthNanos
+	 *            the range of durations each bucket counts
+	 * @param bucketCount
+	 *            the number of buckets, the last one also counts every
+	 *            longer duration
+	 * @param windowSize
+	 *            the number of most recent durations the histogram describes
+	 */
+	public RollingHistogram(long bucketWidthNanos, int bucketCount, int windowSize) {
+		this.bucketWidthNanos = bucketWidthNanos;
+		this.buckets = new int[bucketCount];
+		this.window = new long[windowSize];
+	}
+
+	public synchronized void record(long durationNanos) {
+		if (windowCount == window.length) {
+			buckets[bucketOf(window[windowStart])]--;
+			window[windowStart] = durationNanos;
+			windowStart = (windowStart + 1) % window.length;
+		} else {
+			window[(windowStart + windowCount) % window.length] = durationNanos;
+			windowCount++;
+		}
+
+		buckets[bucketOf(durationNanos)]++;
+	}
+
+	private int bucketOf(long durationNanos) {
+		if (durationNanos <= 0) return 0;
+
+		return (int) Math.min(durationNanos / bucketWidthNanos, buckets.length - 1);
+	}
+
+	/**
+	 * @return the number of durations currently in the window
+	 */
+	public synchronized int getCount() {
+		return windowCount;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return the upper bound of the bucket the percentile falls in, or 0 if
+	 *         nothing was recorded
+	 */
+	public synchronized long getPercentileNanos(double percentile) {
+		if (windowCount == 0) return 0;
+
+		final long rank = Math.max(1, (long) Math.ceil(windowCount * percentile / 100.0));
+
+		long seen = 0;
+		for (int i = 0; i < buckets.length; i++) {
+			seen += buckets[i];
+			if (seen >= rank) return (i + 1) * bucketWidthNanos;
+		}
+
+		return buckets.length * bucketWidthNanos;
+	}
+
+	/**
+	 * @return the longest duration in the window
+	 */
+	public synchronized long getMaximumNanos() {
+		long maximum = 0;
+		for (int i = 0; i < windowCount; i++)
+			maximum = Math.max(maximum, window[(windowStart + i) % window.length]);
+
+		return maximum;
+	}
+
+	/**
+	 * @return a copy of the bucket counts, e.g. to plot the histogram
+	 */
+	public synchronized int[] getBuckets() {
+		return buckets.clone();
+	}
+
+	public long getBucketWidthNanos() {
+		return bucketWidthNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms", getPercentileNanos(50) / 1e6,
+				getPercentileNanos(95) / 1e6, getPercentileNanos(99) / 1e6, getMaximumNanos() / 1e6);
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+/**
+ * How long each stage of one camera's frame pipeline takes, from the camera
+ * capturing a frame to a shot being accepted and the frame being recorded and
+ * shown. Every stage records into its own {@link LatencyHistogram}, thus
+ * timing the pipeline is cheap enough to always be on.
+ */
+public final class StageLatencies {
+	public enum Stage {
+		/**
+		 * Reading a frame from the camera's device plus the time from its
+		 * capture time to it entering the pipeline
+		 */
+		CAPTURE,
+		/**
+		 * Undistorting a frame from an auto-calibrated camera
+		 */
+		UNDISTORT,
+		/**
+		 * Converting a frame to HSV for shot detection
+		 */
+		HSV_CONVERSION,
+		/**
+		 * Updating the detection filters and finding the pixels that changed
+		 */
+		THRESHOLD,
+		/**
+		 * Clustering the changed pixels into possible shots
+		 */
+		CLUSTERING,
+		/**
+		 * Preprocessing and deduplicating a shot (see ShotDetector.addShot)
+		 */
+		SHOT_PROCESSING,
+		/**
+		 * Converting and encoding a frame for every active recording
+		 */
+		RECORDING,
+		/**
+		 * Scaling and converting a frame for display
+		 */
+		DISPLAY
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+
+	private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+	public StageLatencies() {
+		for (int i = 0; i < histograms.length; i++)
+			histograms[i] = new LatencyHistogram();
+	}
+
+	public void record(Stage stage, long durationNanos) {
+		histograms[stage.ordinal()].record(durationNanos);
+	}
+
+	/**
+	 * Record the time from <code>startNanos</code>, which must have been read
+	 * from {@link System#nanoTime()}, until now.
+	 */
+	public void recordSince(Stage stage, long startNanos) {
+		histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+	}
+
+	public LatencyHistogram get(Stage stage) {
+		return histograms[stage.ordinal()];
+	}
+
+	public void reset() {
+		for (final LatencyHistogram histogram : histograms)
+			histogram.reset();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder stages = new StringBuilder("stage latencies:");
+
+		for (final Stage stage : STAGES) {
+			final LatencyHistogram.Snapshot snapshot = get(stage).getSnapshot();
+			if (snapshot.getCount() == 0) continue;
+
+			stages.append(' ').append(stage.name().toLowerCase()).append(' ').append(snapshot).append(';');
+		}
+
+		return stages.toString();
+	}
+}
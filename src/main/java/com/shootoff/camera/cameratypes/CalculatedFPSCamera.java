@@ -20,6 +20,10 @@ package com.shootoff.camera.cameratypes;
 
 import java.util.Optional;
 
+import com.shootoff.camera.CaptureClock;
+import com.shootoff.camera.FramePool;
+import com.shootoff.camera.LatestFrame;
+
 public abstract class CalculatedFPSCamera implements Camera {
 	public static final int DEFAULT_FPS = 30;
 	private double webcamFPS = DEFAULT_FPS;
@@ -33,6 +37,10 @@ public abstract class CalculatedFPSCamera implements Camera {
 
 	protected Optional<CameraEventListener> cameraEventListener = Optional.empty();
 
+	private FramePool.Account frameAccount = null;
+
+	protected final LatestFrame latestFrame = new LatestFrame();
+
 	@Override
 	public void setCameraEventListener(CameraEventListener cameraEventListener) {
 		this.cameraEventListener = Optional.ofNullable(cameraEventListener);
@@ -58,6 +66,11 @@ public abstract class CalculatedFPSCamera implements Camera {
 		return true;
 	}
 
+	@Override
+	public LatestFrame getLatestFrame() {
+		return latestFrame;
+	}
+
 	@Override
 	public CameraState getState() {
 		return cameraState;
@@ -72,6 +85,15 @@ public abstract class CalculatedFPSCamera implements Camera {
 		return frameCount;
 	}
 
+	// Created lazily because subclasses may not know their name until they
+	// are fully constructed
+	@Override
+	public synchronized FramePool.Account getFrameAccount() {
+		if (frameAccount == null) frameAccount = FramePool.createAccount(getName());
+
+		return frameAccount;
+	}
+
 	@Override
 	public double getFPS() {
 		return webcamFPS;
@@ -88,14 +110,14 @@ public abstract class CalculatedFPSCamera implements Camera {
 	protected void estimateCameraFPS() {
 		if (lastCameraTimestamp > -1) {
 			final double estimateFPS = ((double) getFrameCount() - (double) lastFrameCount)
-					/ (((double) System.currentTimeMillis() - (double) lastCameraTimestamp) / 1000.0);
+					/ (((double) CaptureClock.currentTimeMillis() - (double) lastCameraTimestamp) / 1000.0);
 
 			setFPS(estimateFPS);
 
 			if (cameraEventListener.isPresent()) cameraEventListener.get().newFPS(webcamFPS);
 		}
 
-		lastCameraTimestamp = System.currentTimeMillis();
+		lastCameraTimestamp = CaptureClock.currentTimeMillis();
 		lastFrameCount = getFrameCount();
 
 	}
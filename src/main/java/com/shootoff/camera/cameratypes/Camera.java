@@ -29,6 +29,8 @@ import com.shootoff.Closeable;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
+import com.shootoff.camera.LatestFrame;
 import com.shootoff.camera.shotdetection.ShotDetector;
 import com.xuggle.xuggler.video.ConverterFactory;
 
@@ -41,6 +43,23 @@ public interface Camera extends Runnable, Closeable {
 
 	BufferedImage getBufferedImage();
 
+	/**
+	 * @return the slot this camera's newest processed frame is published to
+	 */
+	LatestFrame getLatestFrame();
+
+	/**
+	 * Get the newest frame shot detection finished with as an image. This
+	 * never reads from the device, thus it doesn't take frames away from shot
+	 * detection.
+	 * 
+	 * @return the image, or <code>null</code> if no frame was processed yet,
+	 *         e.g. because the camera isn't streaming
+	 */
+	default BufferedImage getLatestImage() {
+		return getLatestFrame().getBufferedImage().orElse(null);
+	}
+
 	boolean open();
 
 	boolean isOpen();
@@ -60,6 +79,12 @@ public interface Camera extends Runnable, Closeable {
 
 	int getFrameCount();
 
+	/**
+	 * @return the account the native memory of this camera's frames is
+	 *         charged to, which is never shared with another camera
+	 */
+	FramePool.Account getFrameAccount();
+
 	ShotDetector getPreferredShotDetector(final CameraManager cameraManager, final CameraView cameraView);
 
 	boolean isLocked();
@@ -83,14 +108,22 @@ public interface Camera extends Runnable, Closeable {
 	}
 
 	static Mat bufferedImageToMat(BufferedImage frame) {
-		final BufferedImage transformedFrame = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
-		final byte[] pixels = ((DataBufferByte) transformedFrame.getRaster().getDataBuffer()).getData();
 		final Mat mat = new Mat(frame.getHeight(), frame.getWidth(), CvType.CV_8UC3);
-		mat.put(0, 0, pixels);
+		bufferedImageToMat(frame, mat);
 
 		return mat;
 	}
 
+	/**
+	 * Copy <code>frame</code> into <code>mat</code>, which must be a
+	 * <code>CV_8UC3</code> Mat of the same dimensions.
+	 */
+	static void bufferedImageToMat(BufferedImage frame, Mat mat) {
+		final BufferedImage transformedFrame = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
+		final byte[] pixels = ((DataBufferByte) transformedFrame.getRaster().getDataBuffer()).getData();
+		mat.put(0, 0, pixels);
+	}
+
 	double getFPS();
 
 	/**
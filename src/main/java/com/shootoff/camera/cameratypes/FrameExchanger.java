@@ -0,0 +1,175 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.cameratypes;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands raw frames from a camera driver's thread to the camera's capture
+ * thread without locks. There is a single slot: if the driver delivers a new
+ * frame before the capture thread took the previous one, the previous one is
+ * overwritten and counted as dropped, thus the capture thread always gets the
+ * newest frame and never falls behind.
+ *
+ * The frame buffers are allocated once and reused. The driver writes into a
+ * buffer it owns, swaps it into the slot, and gets the slot's old buffer back
+ * to write the next frame into. The capture thread swaps the buffer it is
+ * done with for the slot's newest frame. Three buffers are needed for this
+ * so that the driver never writes to a buffer the capture thread may be
+ * reading: one being written, one being read, and the one in the slot.
+ *
+ * There must be exactly one producer thread and one consumer thread at a
+ * time.
+ */
+final class FrameExchanger {
+	private static final int INDEX_MASK = 0x3;
+	// Set on the slot when it holds a frame the consumer hasn't taken yet
+	private static final int FRESH = 0x4;
+
+	private final byte[][] buffers = new byte[3][];
+	private final long[] timestamps = new long[3];
+
+	// Only touched by the producer
+	private int writeIndex = 0;
+
+	// Only touched by the consumer
+	private int readIndex = 1;
+
+	private final AtomicInteger slot = new AtomicInteger(2);
+	private volatile Thread waitingConsumer = null;
+
+	// Only written by the producer
+	private volatile long publishedCount = 0;
+	private volatile long droppedCount = 0;
+
+	/**
+	 * Get the buffer to write the next frame into, which is reused from an
+	 * earlier frame and thus holds old pixels. Only call this from the
+	 * producer thread.
+	 */
+	public byte[] getWriteBuffer(int size) {
+		byte[] buffer = buffers[writeIndex];
+
+		if (buffer == null || buffer.length != size) {
+			// Only happens for the first few frames or if the camera's
+			// resolution changes
+			buffer = new byte[size];
+			buffers[writeIndex] = buffer;
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * Make the frame written into the buffer from {@link #getWriteBuffer(int)}
+	 * the newest frame. Only call this from the producer thread.
+	 */
+	public void publish(long timestamp) {
+		timestamps[writeIndex] = timestamp;
+
+		final int previous = slot.getAndSet(writeIndex | FRESH);
+		writeIndex = previous & INDEX_MASK;
+
+		publishedCount++;
+		if ((previous & FRESH) != 0) droppedCount++;
+
+		final Thread consumer = waitingConsumer;
+		if (consumer != null) LockSupport.unpark(consumer);
+	}
+
+	/**
+	 * Copy a frame the driver allocated itself into the next buffer and
+	 * publish it.
+	 */
+	public void publish(byte[] frame, long timestamp) {
+		System.arraycopy(frame, 0, getWriteBuffer(frame.length), 0, frame.length);
+		publish(timestamp);
+	}
+
+	/**
+	 * Wait for a frame newer than the last one taken. The returned buffer
+	 * belongs to the consumer until the next call to this method. Only call
+	 * this from the consumer thread.
+	 *
+	 * @return the frame's pixels, or <code>null</code> if no frame arrived in
+	 *         time or the consumer was woken by {@link #wakeConsumer()}
+	 */
+	public byte[] take(long timeout, TimeUnit unit) {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (true) {
+			final int current = slot.get();
+
+			if ((current & FRESH) != 0) {
+				if (slot.compareAndSet(current, readIndex)) {
+					readIndex = current & INDEX_MASK;
+					return buffers[readIndex];
+				}
+
+				// The producer replaced the frame in the meantime, take the
+				// newer one
+				continue;
+			}
+
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) return null;
+
+			waitingConsumer = Thread.currentThread();
+			// Check again in case the frame arrived before the producer could
+			// see that we are waiting
+			if ((slot.get() & FRESH) == 0) LockSupport.parkNanos(this, remaining);
+			waitingConsumer = null;
+
+			// Return to the caller if it was woken up without a frame so that
+			// it can check whether the camera was closed
+			if (Thread.currentThread().isInterrupted() || (slot.get() & FRESH) == 0) return null;
+		}
+	}
+
+	/**
+	 * @return the timestamp of the frame most recently returned by
+	 *         {@link #take(long, TimeUnit)}
+	 */
+	public long getTakenTimestamp() {
+		return timestamps[readIndex];
+	}
+
+	/**
+	 * Wake up a consumer waiting for a frame, e.g. because the camera was
+	 * closed.
+	 */
+	public void wakeConsumer() {
+		final Thread consumer = waitingConsumer;
+		if (consumer != null) LockSupport.unpark(consumer);
+	}
+
+	public long getPublishedCount() {
+		return publishedCount;
+	}
+
+	/**
+	 * @return the number of frames that were replaced by a newer frame before
+	 *         the consumer took them
+	 */
+	public long getDroppedCount() {
+		return droppedCount;
+	}
+}
@@ -28,6 +28,8 @@ import java.util.Optional;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,8 +42,11 @@ import com.github.sarxos.webcam.ds.ipcam.IpCamMode;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.OpenCVShotDetector;
 import com.shootoff.camera.shotdetection.ShotDetector;
 
 public class IpCamera extends CalculatedFPSCamera {
@@ -50,8 +55,26 @@ public class IpCamera extends CalculatedFPSCamera {
 
 	private final AtomicBoolean closing = new AtomicBoolean(false);
 
+	private long currentFrameNanos = -1;
+
+	// Reads the camera's stream ourselves instead of through webcam-capture,
+	// which needs to be polled for new images
+	private final Optional<MjpegStreamReader> streamReader;
+
 	public IpCamera(final Webcam ipcam) {
 		this.ipcam = ipcam;
+
+		if (ipcam.getDevice() instanceof IpCamDevice) {
+			final IpCamDevice device = (IpCamDevice) ipcam.getDevice();
+			final IpCamAuth auth = device.getAuth();
+
+			final Optional<String> username = auth == null ? Optional.empty() : Optional.of(auth.getUserName());
+			final Optional<String> password = auth == null ? Optional.empty() : Optional.of(auth.getPassword());
+
+			streamReader = Optional.of(new MjpegStreamReader(ipcam.getName(), device.getURL(), username, password));
+		} else {
+			streamReader = Optional.empty();
+		}
 	}
 
 	protected Webcam getWebcam() {
@@ -115,12 +138,57 @@ public class IpCamera extends CalculatedFPSCamera {
 
 	@Override
 	public Frame getFrame() {
-		return new Frame(getBufferedImage(), currentFrameTimestamp);
+		final long readStart = System.nanoTime();
+
+		if (streamReader.isPresent()) {
+			final Mat mat = streamReader.get().read();
+			if (mat == null) return null;
+
+			final long readNanos = System.nanoTime() - readStart;
+			currentFrameNanos = CaptureClock.nanoTime();
+			currentFrameTimestamp = CaptureClock.toMillis(currentFrameNanos);
+			frameCount++;
+
+			// imdecode allocates a new Mat for every frame, which no other
+			// camera would reuse, thus it is released rather than pooled
+			final Frame frame = FramePool.wrapFrame(getFrameAccount(), mat, currentFrameNanos);
+			frame.setReadNanos(readNanos);
+			return frame;
+		}
+
+		final BufferedImage image = getBufferedImage();
+		if (image == null) return null;
+
+		final long readNanos = System.nanoTime() - readStart;
+		final FramePool.Account frameAccount = getFrameAccount();
+
+		final Mat mat = FramePool.acquireMat(frameAccount, image.getHeight(), image.getWidth(), CvType.CV_8UC3);
+		Camera.bufferedImageToMat(image, mat);
+
+		final Frame frame = FramePool.toFrame(frameAccount, mat, currentFrameNanos);
+		frame.setReadNanos(readNanos);
+		return frame;
 	}
 
 	@Override
 	public BufferedImage getBufferedImage() {
-		currentFrameTimestamp = System.currentTimeMillis();
+		if (streamReader.isPresent()) {
+			// While the capture thread is running, reading the stream here
+			// would take frames from it
+			if (cameraEventListener.isPresent()) return getLatestImage();
+
+			final Frame frame = getFrame();
+			if (frame == null) return null;
+
+			try {
+				return frame.getOriginalBufferedImage();
+			} finally {
+				frame.release();
+			}
+		}
+
+		currentFrameNanos = CaptureClock.nanoTime();
+		currentFrameTimestamp = CaptureClock.toMillis(currentFrameNanos);
 		frameCount++;
 		return ipcam.getImage();
 	}
@@ -130,6 +198,9 @@ public class IpCamera extends CalculatedFPSCamera {
 		if (isOpen() && !closing.get()) return true;
 
 		closing.set(false);
+
+		if (streamReader.isPresent()) return streamReader.get().open();
+
 		boolean open = false;
 		try {
 			open = ipcam.open();
@@ -141,6 +212,8 @@ public class IpCamera extends CalculatedFPSCamera {
 
 	@Override
 	public boolean isOpen() {
+		if (streamReader.isPresent()) return streamReader.get().isOpen();
+
 		return ipcam.isOpen();
 	}
 
@@ -152,6 +225,11 @@ public class IpCamera extends CalculatedFPSCamera {
 
 		closing.set(true);
 
+		if (streamReader.isPresent()) {
+			streamReader.get().close();
+			return;
+		}
+
 		if (CameraFactory.isMac()) {
 			new Thread(() -> {
 				ipcam.close();
@@ -195,7 +273,9 @@ public class IpCamera extends CalculatedFPSCamera {
 
 	@Override
 	public ShotDetector getPreferredShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
-		if (JavaShotDetector.isSystemSupported())
+		if (OpenCVShotDetector.isSystemSupported())
+			return new OpenCVShotDetector(cameraManager, cameraView);
+		else if (JavaShotDetector.isSystemSupported())
 			return new JavaShotDetector(cameraManager, cameraView);
 		else
 			return null;
@@ -204,9 +284,26 @@ public class IpCamera extends CalculatedFPSCamera {
 	@Override
 	public void run() {
 		while (isOpen() && !closing.get()) {
-			if (!isImageNew()) continue;
+			// The stream reader blocks until the next frame arrives, but
+			// webcam-capture has to be polled
+			if (!streamReader.isPresent() && !isImageNew()) {
+				try {
+					Thread.sleep(1);
+				} catch (final InterruptedException e) {
+					break;
+				}
+
+				continue;
+			}
+
+			final Frame frame = getFrame();
 
-			if (cameraEventListener.isPresent()) cameraEventListener.get().newFrame(getFrame());
+			// A null frame is passed on so CameraManager counts it as an error.
+			// Without a listener the frame is dropped so the stream keeps
+			// being drained.
+			if (cameraEventListener.isPresent())
+				cameraEventListener.get().newFrame(frame);
+			else if (frame != null) frame.release();
 
 			if (((int) (getFrameCount() % Math.min(getFPS(), 5)) == 0) && cameraState != CameraState.CALIBRATING) {
 				estimateCameraFPS();
@@ -214,6 +311,8 @@ public class IpCamera extends CalculatedFPSCamera {
 
 		}
 
+		latestFrame.clear();
+
 		if (!closing.get()) close();
 	}
 
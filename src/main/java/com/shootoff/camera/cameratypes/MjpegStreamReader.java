@@ -0,0 +1,382 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.cameratypes;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.highgui.Highgui;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.Closeable;
+
+/**
+ * Reads an IP camera's MJPEG stream (a <code>multipart/x-mixed-replace</code>
+ * HTTP response with one JPEG per part) and decodes each JPEG with OpenCV.
+ * Reads block on the socket, thus the capture thread sleeps until the camera
+ * sends the next frame instead of polling for it. Cameras that serve a single
+ * JPEG per request are supported by requesting a new image for every frame.
+ *
+ * When the connection drops or stalls the reader reconnects on its own,
+ * waiting longer after each failed attempt so that an unreachable camera
+ * doesn't get hammered with requests.
+ */
+final class MjpegStreamReader implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(MjpegStreamReader.class);
+
+	private static final int CONNECT_TIMEOUT = 6000; // ms
+	private static final int READ_TIMEOUT = 5000; // ms
+	private static final long MINIMUM_BACKOFF = 250; // ms
+	private static final long MAXIMUM_BACKOFF = 8000; // ms
+
+	private static final int MAXIMUM_LINE_LENGTH = 1024;
+	private static final int MAXIMUM_JPEG_SIZE = 16 * 1024 * 1024;
+	private static final int INITIAL_JPEG_CAPACITY = 128 * 1024;
+
+	private final String name;
+	private final URL url;
+	private final Optional<String> authorization;
+
+	private volatile HttpURLConnection connection = null;
+	private InputStream stream = null;
+	private boolean multipart = false;
+
+	// The encoded JPEG, mirrored into a Mat because imdecode needs one
+	private byte[] jpegBytes = new byte[INITIAL_JPEG_CAPACITY];
+	private Mat jpegBuffer = null;
+
+	private volatile boolean open = false;
+	private final Object backoffLock = new Object();
+	private long backoff = MINIMUM_BACKOFF;
+	private volatile long reconnectCount = 0;
+
+	MjpegStreamReader(String name, URL url, Optional<String> username, Optional<String> password) {
+		this.name = name;
+		this.url = url;
+
+		if (username.isPresent() && password.isPresent()) {
+			final String credentials = username.get() + ":" + password.get();
+			authorization = Optional
+					.of("Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+		} else {
+			authorization = Optional.empty();
+		}
+	}
+
+	/**
+	 * Connect to the camera.
+	 *
+	 * @return <code>true</code> if the camera answered with an image stream
+	 */
+	public synchronized boolean open() {
+		if (open) return true;
+
+		try {
+			connect();
+		} catch (final IOException e) {
+			logger.error("Failed to connect to IP camera " + name, e);
+			disconnect();
+			return false;
+		}
+
+		open = true;
+		backoff = MINIMUM_BACKOFF;
+		return true;
+	}
+
+	/**
+	 * @return <code>true</code> if the reader was opened and not closed yet,
+	 *         even if it is currently reconnecting
+	 */
+	public boolean isOpen() {
+		return open;
+	}
+
+	/**
+	 * @return how many times the connection had to be reestablished
+	 */
+	public long getReconnectCount() {
+		return reconnectCount;
+	}
+
+	/**
+	 * Block until the camera sends the next frame. Broken connections are
+	 * reestablished with backoff until a frame arrives or the reader is
+	 * closed.
+	 *
+	 * @return the decoded BGR frame, which the caller owns, or
+	 *         <code>null</code> if the reader is closed
+	 */
+	public synchronized Mat read() {
+		while (open) {
+			try {
+				if (stream == null) connect();
+
+				final int length = multipart ? readPart() : readImage();
+				final Mat frame = decode(length);
+
+				if (frame.empty()) {
+					// A corrupt JPEG only costs us one frame
+					frame.release();
+					if (logger.isDebugEnabled()) logger.debug("Skipping undecodable frame from {}", name);
+					continue;
+				}
+
+				backoff = MINIMUM_BACKOFF;
+				return frame;
+			} catch (final IOException e) {
+				disconnect();
+
+				if (!open) break;
+
+				reconnectCount++;
+				logger.warn("Lost connection to IP camera {}, reconnecting in {} ms: {}", name, backoff,
+						e.getMessage());
+
+				waitToReconnect();
+			}
+		}
+
+		if (jpegBuffer != null) {
+			jpegBuffer.release();
+			jpegBuffer = null;
+		}
+
+		return null;
+	}
+
+	private void waitToReconnect() {
+		synchronized (backoffLock) {
+			try {
+				if (open) backoffLock.wait(backoff);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				open = false;
+			}
+		}
+
+		backoff = Math.min(backoff * 2, MAXIMUM_BACKOFF);
+	}
+
+	private void connect() throws IOException {
+		final HttpURLConnection c = (HttpURLConnection) url.openConnection();
+		c.setConnectTimeout(CONNECT_TIMEOUT);
+		c.setReadTimeout(READ_TIMEOUT);
+		c.setUseCaches(false);
+		if (authorization.isPresent()) c.setRequestProperty("Authorization", authorization.get());
+
+		connection = c;
+
+		final int status = c.getResponseCode();
+		if (status != HttpURLConnection.HTTP_OK) throw new IOException("Unexpected HTTP status " + status);
+
+		final String contentType = c.getContentType() == null ? "" : c.getContentType().toLowerCase(Locale.ENGLISH);
+
+		if (contentType.startsWith("multipart/")) {
+			multipart = true;
+		} else if (contentType.startsWith("image/")) {
+			multipart = false;
+		} else {
+			throw new IOException("Unsupported content type " + contentType);
+		}
+
+		stream = new BufferedInputStream(c.getInputStream());
+	}
+
+	private void disconnect() {
+		final HttpURLConnection c = connection;
+		connection = null;
+		stream = null;
+
+		if (c != null) c.disconnect();
+	}
+
+	/**
+	 * Read the next part of a multipart stream. Parts are found by their
+	 * headers rather than the boundary because many cameras don't send the
+	 * boundary they declare.
+	 *
+	 * @return the number of JPEG bytes read into <code>jpegBytes</code>
+	 */
+	private int readPart() throws IOException {
+		int contentLength = -1;
+		boolean inHeaders = false;
+
+		while (true) {
+			final String line = readLine();
+
+			if (line.isEmpty()) {
+				if (inHeaders) break;
+				continue;
+			}
+
+			final int colon = line.indexOf(':');
+			if (colon < 0) continue; // Boundary
+
+			inHeaders = true;
+			if ("content-length".equalsIgnoreCase(line.substring(0, colon).trim())) {
+				try {
+					contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+				} catch (final NumberFormatException e) {
+					contentLength = -1;
+				}
+			}
+		}
+
+		if (contentLength >= 0) {
+			readFully(contentLength);
+			return contentLength;
+		}
+
+		return readUntilEndOfImage();
+	}
+
+	/**
+	 * Read a response that is a single JPEG. The connection is finished
+	 * afterwards, thus the next read requests a new image.
+	 */
+	private int readImage() throws IOException {
+		final HttpURLConnection c = connection;
+		final int contentLength = c == null ? -1 : c.getContentLength();
+
+		final int length;
+		if (contentLength >= 0) {
+			readFully(contentLength);
+			length = contentLength;
+		} else {
+			length = readUntilEndOfImage();
+		}
+
+		disconnect();
+		return length;
+	}
+
+	private String readLine() throws IOException {
+		final StringBuilder line = new StringBuilder();
+
+		int b;
+		while ((b = stream.read()) != '\n') {
+			if (b < 0) throw new EOFException("Stream ended");
+			if (b != '\r') line.append((char) b);
+			if (line.length() > MAXIMUM_LINE_LENGTH) throw new IOException("Malformed multipart header");
+		}
+
+		return line.toString();
+	}
+
+	private void readFully(int length) throws IOException {
+		ensureCapacity(length);
+
+		int read = 0;
+		while (read < length) {
+			final int count = stream.read(jpegBytes, read, length - read);
+			if (count < 0) throw new EOFException("Stream ended in the middle of a frame");
+			read += count;
+		}
+	}
+
+	/**
+	 * Read from the start of the next JPEG to its end of image marker for
+	 * streams that don't send content lengths.
+	 */
+	private int readUntilEndOfImage() throws IOException {
+		int previous = -1;
+		int b;
+
+		// Find the start of image marker
+		while (true) {
+			b = stream.read();
+			if (b < 0) throw new EOFException("Stream ended");
+			if (previous == 0xFF && b == 0xD8) break;
+			previous = b;
+		}
+
+		jpegBytes[0] = (byte) 0xFF;
+		jpegBytes[1] = (byte) 0xD8;
+		int length = 2;
+		previous = b;
+
+		while (true) {
+			b = stream.read();
+			if (b < 0) throw new EOFException("Stream ended in the middle of a frame");
+
+			ensureCapacity(length + 1);
+			jpegBytes[length++] = (byte) b;
+
+			if (previous == 0xFF && b == 0xD9) return length;
+			previous = b;
+		}
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (length > MAXIMUM_JPEG_SIZE) throw new IOException("Frame of " + length + " bytes is too large");
+
+		if (jpegBytes.length < length) {
+			final byte[] grown = new byte[Math.min(Math.max(length, jpegBytes.length * 2), MAXIMUM_JPEG_SIZE)];
+			System.arraycopy(jpegBytes, 0, grown, 0, jpegBytes.length);
+			jpegBytes = grown;
+		}
+	}
+
+	private Mat decode(int length) {
+		if (jpegBuffer == null || jpegBuffer.cols() != jpegBytes.length) {
+			if (jpegBuffer != null) jpegBuffer.release();
+			jpegBuffer = new Mat(1, jpegBytes.length, CvType.CV_8UC1);
+		}
+
+		// put stops at the end of the Mat it is called on, thus putting into
+		// the view only copies the frame's bytes rather than the whole buffer
+		final Mat encoded = jpegBuffer.colRange(0, length);
+		try {
+			encoded.put(0, 0, jpegBytes);
+
+			return Highgui.imdecode(encoded, Highgui.CV_LOAD_IMAGE_COLOR);
+		} finally {
+			encoded.release();
+		}
+	}
+
+	/**
+	 * Stop reading. A read that is blocked on the camera returns
+	 * <code>null</code>.
+	 */
+	@Override
+	public void close() {
+		open = false;
+
+		synchronized (backoffLock) {
+			backoffLock.notifyAll();
+		}
+
+		// Unblocks a read that is waiting on the socket
+		final HttpURLConnection c = connection;
+		if (c != null) c.disconnect();
+	}
+}
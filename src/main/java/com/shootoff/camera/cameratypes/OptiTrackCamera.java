@@ -22,8 +22,7 @@ import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
@@ -34,9 +33,13 @@ import org.slf4j.LoggerFactory;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
+import com.shootoff.camera.LatestFrame;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
 import com.shootoff.camera.shotdetection.NativeShotDetector;
+import com.shootoff.camera.shotdetection.OpenCVShotDetector;
 import com.shootoff.camera.shotdetection.OptiTrackShotDetector;
 import com.shootoff.camera.shotdetection.ShotDetector;
 
@@ -52,6 +55,9 @@ public class OptiTrackCamera implements Camera {
 	private int viewHeight = 0;
 	private static final int MAXIMUM_EXPOSURE = 480;
 
+	private final FramePool.Account frameAccount = FramePool.createAccount(getName());
+	private final LatestFrame latestFrame = new LatestFrame();
+
 	public OptiTrackCamera() {
 		if (!initialized) init();
 	}
@@ -103,6 +109,11 @@ public class OptiTrackCamera implements Camera {
 		return true;
 	}
 
+	@Override
+	public LatestFrame getLatestFrame() {
+		return latestFrame;
+	}
+
 	@Override
 	public CameraState getState() {
 		return cameraState;
@@ -155,6 +166,11 @@ public class OptiTrackCamera implements Camera {
 	@Override
 	public native int getFrameCount();
 
+	@Override
+	public FramePool.Account getFrameAccount() {
+		return frameAccount;
+	}
+
 	@Override
 	public void setViewSize(final Dimension size) {
 		return;
@@ -169,29 +185,45 @@ public class OptiTrackCamera implements Camera {
 		return dimension;
 	}
 
+	/**
+	 * @return a pooled Mat holding <code>imageBuffer</code> converted to BGR,
+	 *         which must be wrapped in a frame or recycled
+	 */
 	public Mat translateCameraArrayToMat(byte[] imageBuffer) {
 		if (viewHeight == 0) viewHeight = getViewHeight();
 		if (viewWidth == 0) viewWidth = getViewWidth();
 
-		final Mat mat = new Mat(viewHeight, viewWidth, CvType.CV_8UC1);
-		final Mat dst = new Mat(viewHeight, viewWidth, CvType.CV_8UC3);
+		final Mat mat = FramePool.acquireMat(frameAccount, viewHeight, viewWidth, CvType.CV_8UC1);
+		final Mat dst = FramePool.acquireMat(frameAccount, viewHeight, viewWidth, CvType.CV_8UC3);
 
 		mat.put(0, 0, imageBuffer);
 		Imgproc.cvtColor(mat, dst, Imgproc.COLOR_GRAY2BGR);
+		FramePool.recycle(mat);
 		return dst;
 	}
 
 	@Override
 	public Frame getFrame() {
+		final long readStart = System.nanoTime();
 		final byte[] frame = getImageNative();
+		final long readNanos = System.nanoTime() - readStart;
+		final long captureNanos = CaptureClock.nanoTime();
 		final Mat mat = translateCameraArrayToMat(frame);
-		final long currentFrameTimestamp = System.currentTimeMillis();
-		return new Frame(mat, currentFrameTimestamp);
+
+		final Frame f = FramePool.toFrame(frameAccount, mat, captureNanos);
+		f.setReadNanos(readNanos);
+		return f;
 	}
 
 	@Override
 	public BufferedImage getBufferedImage() {
-		return getFrame().getOriginalBufferedImage();
+		final Frame frame = getFrame();
+
+		try {
+			return frame.getOriginalBufferedImage();
+		} finally {
+			frame.release();
+		}
 	}
 
 	@Override
@@ -200,6 +232,8 @@ public class OptiTrackCamera implements Camera {
 			return new OptiTrackShotDetector(cameraManager, cameraView);
 		else if (NativeShotDetector.isSystemSupported())
 			return new NativeShotDetector(cameraManager, cameraView);
+		else if (OpenCVShotDetector.isSystemSupported())
+			return new OpenCVShotDetector(cameraManager, cameraView);
 		else if (JavaShotDetector.isSystemSupported())
 			return new JavaShotDetector(cameraManager, cameraView);
 		else
@@ -210,47 +244,71 @@ public class OptiTrackCamera implements Camera {
 		return initialized;
 	}
 
-	private final ReentrantLock frameLock = new ReentrantLock(true);
-	private AtomicBoolean frameAvailable = new AtomicBoolean(false);
-	private byte[] frameBytes;
-	private long frameTS;
+	// How long the capture thread waits for a frame before checking whether
+	// the camera was closed
+	private static final long FRAME_WAIT_TIMEOUT = 100; // ms
+
+	private final FrameExchanger frameExchanger = new FrameExchanger();
 
 	@Override
 	public void run() {
 		while (isOpen()) {
-			Frame frame = null;
-
-			synchronized (frameLock) {
-				try {
-					if (frameAvailable.get() == false) {
-						frameLock.wait();
-					}
-				} catch (InterruptedException e) {}
-
-				if (frameAvailable.compareAndSet(true, false)) {
-					frame = new Frame(translateCameraArrayToMat(frameBytes), frameTS);
-				}
+			final byte[] frameBytes = frameExchanger.take(FRAME_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+			if (frameBytes == null) continue;
+
+			// The driver pushed the frame, thus there was no read to time
+			final Frame frame = FramePool.toFrame(frameAccount, translateCameraArrayToMat(frameBytes),
+					frameExchanger.getTakenTimestamp());
+
+			if (cameraEventListener.isPresent()) {
+				final boolean shouldDedistort = (cameraState == CameraState.NORMAL) ? true : false;
+				cameraEventListener.get().newFrame(frame, shouldDedistort);
+				cameraEventListener.get().newFPS(getFPS());
+			} else {
+				frame.release();
 			}
+		}
 
-			if (frame != null) {
-				if (cameraEventListener.isPresent()) {
-					final boolean shouldDedistort = (cameraState == CameraState.NORMAL) ? true : false;
-					cameraEventListener.get().newFrame(frame, shouldDedistort);
-				}
+		latestFrame.clear();
 
-				if (cameraEventListener.isPresent()) cameraEventListener.get().newFPS(getFPS());
-			}
-		}
+		if (logger.isDebugEnabled()) logger.debug("OptiTrack capture stopped, {} of {} frames dropped",
+				frameExchanger.getDroppedCount(), frameExchanger.getPublishedCount());
+	}
+
+	/**
+	 * @return the number of frames the camera delivered faster than the
+	 *         capture thread could take them
+	 */
+	public long getDroppedFrameCount() {
+		return frameExchanger.getDroppedCount();
 	}
 
+	/**
+	 * Called by the native library with a frame it allocated. Frames are
+	 * stamped with our capture clock when they arrive rather than with
+	 * <code>frameTS</code> so that they can be compared with frames from other
+	 * cameras.
+	 */
 	private void receiveFrame(byte[] frameBytes, long frameTS) {
-		synchronized (frameLock) {
-			this.frameBytes = frameBytes;
-			this.frameTS = frameTS;
-			frameLock.notifyAll();
-			frameAvailable.set(true);
-		}
+		frameExchanger.publish(frameBytes, CaptureClock.nanoTime());
+	}
 
+	/**
+	 * Called by the native library to get the preallocated buffer to copy the
+	 * next frame into (e.g. with <code>SetByteArrayRegion</code>), which saves
+	 * allocating an array per frame. The native library must call
+	 * {@link #receiveFrameInPlace(long)} once the buffer is filled.
+	 */
+	private byte[] getFrameBuffer(int size) {
+		return frameExchanger.getWriteBuffer(size);
+	}
+
+	/**
+	 * Called by the native library once it filled the buffer from
+	 * {@link #getFrameBuffer(int)}.
+	 */
+	private void receiveFrameInPlace(long frameTS) {
+		frameExchanger.publish(CaptureClock.nanoTime());
 	}
 
 	private void cameraClosed() {
@@ -260,9 +318,7 @@ public class OptiTrackCamera implements Camera {
 
 		if (isOpen()) close();
 
-		synchronized (frameLock) {
-			frameLock.notifyAll();
-		}
+		frameExchanger.wakeConsumer();
 	}
 
 	@Override
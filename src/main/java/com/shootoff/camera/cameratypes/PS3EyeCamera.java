@@ -53,9 +53,12 @@ import org.slf4j.LoggerFactory;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
 import com.shootoff.camera.shotdetection.NativeShotDetector;
+import com.shootoff.camera.shotdetection.OpenCVShotDetector;
 import com.shootoff.camera.shotdetection.ShotDetector;
 import com.sun.jna.Library;
 import com.sun.jna.Native;
@@ -379,8 +382,12 @@ public class PS3EyeCamera extends CalculatedFPSCamera {
 		return ba;
 	}
 
+	/**
+	 * @return a pooled Mat holding <code>imageBuffer</code>, which must be
+	 *         wrapped in a frame or recycled
+	 */
 	public Mat translateCameraArrayToMat(byte[] imageBuffer) {
-		final Mat mat = new Mat(getViewHeight(), getViewWidth(), CvType.CV_8UC3);
+		final Mat mat = FramePool.acquireMat(getFrameAccount(), getViewHeight(), getViewWidth(), CvType.CV_8UC3);
 
 		mat.put(0, 0, imageBuffer);
 		return mat;
@@ -395,22 +402,35 @@ public class PS3EyeCamera extends CalculatedFPSCamera {
 
 	@Override
 	public Frame getFrame() {
+		final long readStart = System.nanoTime();
 		final byte[] frame = getImageNative();
-		final long currentFrameTimestamp = System.currentTimeMillis();
+		final long readNanos = System.nanoTime() - readStart;
+		final long captureNanos = CaptureClock.nanoTime();
 		final Mat mat = translateCameraArrayToMat(frame);
 		frameCount++;
-		return new Frame(mat, currentFrameTimestamp);
+
+		final Frame f = FramePool.toFrame(getFrameAccount(), mat, captureNanos);
+		f.setReadNanos(readNanos);
+		return f;
 	}
 
 	@Override
 	public BufferedImage getBufferedImage() {
-		return getFrame().getOriginalBufferedImage();
+		final Frame frame = getFrame();
+
+		try {
+			return frame.getOriginalBufferedImage();
+		} finally {
+			frame.release();
+		}
 	}
 
 	@Override
 	public ShotDetector getPreferredShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
 		if (NativeShotDetector.isSystemSupported()) {
 			return new NativeShotDetector(cameraManager, cameraView);
+		} else if (OpenCVShotDetector.isSystemSupported()) {
+			return new OpenCVShotDetector(cameraManager, cameraView);
 		} else if (JavaShotDetector.isSystemSupported()) {
 			logger.trace("starting javaShotDetector for PS3Eye");
 			return new JavaShotDetector(cameraManager, cameraView);
@@ -447,6 +467,8 @@ public class PS3EyeCamera extends CalculatedFPSCamera {
 			}
 		}
 
+		latestFrame.clear();
+
 		if (cameraEventListener.isPresent()) cameraEventListener.get().cameraClosed();
 	}
 
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.highgui.Highgui;
 import org.opencv.highgui.VideoCapture;
@@ -34,9 +35,12 @@ import com.github.sarxos.webcam.Webcam;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
 import com.shootoff.camera.shotdetection.JavaShotDetector;
 import com.shootoff.camera.shotdetection.NativeShotDetector;
+import com.shootoff.camera.shotdetection.OpenCVShotDetector;
 import com.shootoff.camera.shotdetection.ShotDetector;
 
 public class SarxosCaptureCamera extends CalculatedFPSCamera {
@@ -45,13 +49,19 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 	public static final int CV_CAP_PROP_EXPOSURE = 15;
 
 	private int cameraIndex = -1;
+	// Cached because looking the name up enumerates every device
+	private final String cameraName;
 	private final VideoCapture camera;
 
 	private final AtomicBoolean closing = new AtomicBoolean(false);
 
+	private int frameRows = 0;
+	private int frameCols = 0;
+
 	// For testing
 	protected SarxosCaptureCamera() {
 		camera = null;
+		cameraName = "";
 	}
 
 	public SarxosCaptureCamera(final String cameraName) {
@@ -69,7 +79,7 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 
 		camera = new VideoCapture();
 		this.cameraIndex = cameraIndex;
-
+		this.cameraName = cameraName;
 	}
 
 	public SarxosCaptureCamera(final String cameraName, int cameraIndex) {
@@ -77,23 +87,53 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 
 		camera = new VideoCapture();
 		this.cameraIndex = cameraIndex;
+		this.cameraName = cameraName;
+	}
 
+	/**
+	 * @return the camera's position in webcam-capture's device list when it
+	 *         was discovered
+	 */
+	public int getCameraIndex() {
+		return cameraIndex;
 	}
 
 	@Override
 	public Frame getFrame() {
-		final Mat frame = new Mat();
+		if (!isOpen()) return null;
+
+		if (frameRows == 0 || frameCols == 0) {
+			final Dimension viewSize = getViewSize();
+			frameRows = (int) viewSize.getHeight();
+			frameCols = (int) viewSize.getWidth();
+		}
+
+		// read() reuses the pooled Mat's memory as long as the frame's size
+		// didn't change
+		final Mat mat = FramePool.acquireMat(getFrameAccount(), frameRows, frameCols, CvType.CV_8UC3);
+		final long readStart = System.nanoTime();
 		try {
-			if (!isOpen() || !camera.read(frame) || frame.size().height == 0 || frame.size().width == 0) return null;
+			if (!camera.read(mat) || mat.size().height == 0 || mat.size().width == 0) {
+				FramePool.recycle(mat);
+				return null;
+			}
 		} catch (final Exception e) {
 			// Sometimes there is a race condition on closing the camera vs.
 			// read()
+			FramePool.recycle(mat);
 			return null;
 		}
 
-		final long currentFrameTimestamp = System.currentTimeMillis();
+		frameRows = mat.rows();
+		frameCols = mat.cols();
+
+		final long readNanos = System.nanoTime() - readStart;
+		final long captureNanos = CaptureClock.nanoTime();
 		frameCount++;
-		return new Frame(frame, currentFrameTimestamp);
+
+		final Frame frame = FramePool.toFrame(getFrameAccount(), mat, captureNanos);
+		frame.setReadNanos(readNanos);
+		return frame;
 	}
 
 	@Override
@@ -103,7 +143,11 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 		if (frame == null) {
 			return null;
 		} else {
-			return frame.getOriginalBufferedImage();
+			try {
+				return frame.getOriginalBufferedImage();
+			} finally {
+				frame.release();
+			}
 		}
 	}
 
@@ -158,7 +202,7 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 
 	@Override
 	public String getName() {
-		return Webcam.getWebcams().get(cameraIndex).getName();
+		return cameraName;
 	}
 
 	@Override
@@ -181,6 +225,8 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 	public ShotDetector getPreferredShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
 		if (NativeShotDetector.isSystemSupported())
 			return new NativeShotDetector(cameraManager, cameraView);
+		else if (OpenCVShotDetector.isSystemSupported())
+			return new OpenCVShotDetector(cameraManager, cameraView);
 		else if (JavaShotDetector.isSystemSupported())
 			return new JavaShotDetector(cameraManager, cameraView);
 		else
@@ -198,6 +244,8 @@ public class SarxosCaptureCamera extends CalculatedFPSCamera {
 
 		}
 
+		latestFrame.clear();
+
 		if (logger.isTraceEnabled())
 			logger.trace("{} camera closed during run thread isOpen {} closing {}", getName(), isOpen(), closing);
 
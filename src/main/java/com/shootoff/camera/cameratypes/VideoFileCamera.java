@@ -0,0 +1,674 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.cameratypes;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraFactory;
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
+import com.shootoff.camera.Frame;
+import com.shootoff.camera.FramePool;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.OpenCVShotDetector;
+import com.shootoff.camera.shotdetection.ShotDetector;
+import com.xuggle.mediatool.IMediaReader;
+import com.xuggle.mediatool.MediaListenerAdapter;
+import com.xuggle.mediatool.ToolFactory;
+import com.xuggle.mediatool.event.IVideoPictureEvent;
+import com.xuggle.xuggler.IError;
+
+/**
+ * Plays a video file as if it were a webcam, e.g. to load test the camera
+ * pipeline with several cameras on a machine that has none or to demo
+ * PhanMemBanSung with a known recording. Any video xuggle can decode (e.g. the
+ * mp4s in <code>src/test/resources/shotsearcher</code>) is supported, as are
+ * raw frame files (see {@link #RAW_EXTENSION}).
+ *
+ * Frames can be delivered at the rate they were recorded at, at a fixed rate,
+ * or as fast as they can be decoded to find out how many frames per second
+ * the rest of the application keeps up with. The same file can be played by
+ * several cameras at once because every instance decodes it on its own.
+ */
+public class VideoFileCamera extends CalculatedFPSCamera {
+	private static final Logger logger = LoggerFactory.getLogger(VideoFileCamera.class);
+
+	/**
+	 * Files with this extension hold raw frames instead of an encoded video:
+	 * a header of the frame width and height (big-endian <code>int</code>s) and
+	 * the frame rate (a big-endian <code>double</code>), followed by each
+	 * frame as width * height BGR pixels.
+	 */
+	public static final String RAW_EXTENSION = ".bgr";
+
+	// Used if the camera is asked for its size before the file was opened
+	private static final Dimension DEFAULT_VIEW_SIZE = new Dimension(640, 480);
+	// A camera that falls further behind than this (e.g. because the machine
+	// is saturated) starts pacing from the current frame instead of rushing
+	// frames out to catch up
+	private static final long MAXIMUM_LAG = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+
+	public enum PlaybackRate {
+		/**
+		 * Deliver frames at the rate the video was recorded at.
+		 */
+		NATIVE,
+		/**
+		 * Deliver frames at a fixed number of frames per second.
+		 */
+		FIXED,
+		/**
+		 * Deliver frames as fast as they can be decoded.
+		 */
+		UNTHROTTLED
+	}
+
+	/**
+	 * Describes how a video file is played.
+	 */
+	public static final class Playback {
+		private final File file;
+		private final PlaybackRate rate;
+		private final double fixedFPS;
+		private final boolean loop;
+
+		public Playback(File file, PlaybackRate rate, double fixedFPS, boolean loop) {
+			if (rate == PlaybackRate.FIXED && !(fixedFPS > 0))
+				throw new IllegalArgumentException("A fixed playback rate must be positive, got " + fixedFPS);
+
+			this.file = file;
+			this.rate = rate;
+			this.fixedFPS = fixedFPS;
+			this.loop = loop;
+		}
+
+		/**
+		 * Parse a playback description of the form
+		 * <code>file[,rate][,once]</code> where <code>rate</code> is
+		 * <code>native</code> (the default), <code>max</code> for unthrottled
+		 * playback, or a number of frames per second. Videos loop unless
+		 * <code>once</code> is given.
+		 *
+		 * @throws IllegalArgumentException
+		 *             if the description is malformed
+		 */
+		public static Playback parse(String description) {
+			final String[] parts = description.split(",");
+
+			final File file = new File(parts[0].trim());
+			PlaybackRate rate = PlaybackRate.NATIVE;
+			double fixedFPS = 0;
+			boolean loop = true;
+
+			for (int i = 1; i < parts.length; i++) {
+				final String part = parts[i].trim().toLowerCase(Locale.ENGLISH);
+
+				if ("native".equals(part)) {
+					rate = PlaybackRate.NATIVE;
+				} else if ("max".equals(part)) {
+					rate = PlaybackRate.UNTHROTTLED;
+				} else if ("once".equals(part)) {
+					loop = false;
+				} else {
+					try {
+						fixedFPS = Double.parseDouble(part);
+						rate = PlaybackRate.FIXED;
+					} catch (final NumberFormatException e) {
+						throw new IllegalArgumentException(
+								"Unknown video camera playback option \"" + parts[i] + "\" in " + description);
+					}
+				}
+			}
+
+			return new Playback(file, rate, fixedFPS, loop);
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public PlaybackRate getRate() {
+			return rate;
+		}
+
+		public double getFixedFPS() {
+			return fixedFPS;
+		}
+
+		public boolean isLooping() {
+			return loop;
+		}
+
+		@Override
+		public String toString() {
+			final String rateName = rate == PlaybackRate.FIXED ? fixedFPS + " FPS"
+					: rate.toString().toLowerCase(Locale.ENGLISH);
+			return String.format("%s at %s%s", file.getPath(), rateName, loop ? ", looping" : "");
+		}
+	}
+
+	private final Playback playback;
+	private final String name;
+
+	private volatile boolean open = false;
+	private volatile boolean closing = false;
+
+	// Guarded by decodeLock
+	private final Object decodeLock = new Object();
+	private IMediaReader mediaReader = null;
+	private DataInputStream rawStream = null;
+	private byte[] rawPixels = null;
+	private double rawFPS = 0;
+	private long rawFrameIndex = 0;
+	private BufferedImage decodedImage = null;
+	private long decodedPositionNanos = -1;
+	private final Mat decoded = new Mat();
+
+	private volatile Dimension nativeSize = null;
+	private volatile Dimension viewSize = null;
+
+	// Only used by the thread delivering frames
+	private long anchorNanos = -1;
+	private long anchorPosition = -1;
+	private long lastDueNanos = -1;
+	private long lastPositionNanos = -1;
+	private long lastIntervalNanos = TimeUnit.SECONDS.toNanos(1) / DEFAULT_FPS;
+	private long lastReadPositionNanos = -1;
+
+	public VideoFileCamera(Playback playback) {
+		this.playback = playback;
+		name = String.format("Video %d (%s)", instanceCount.incrementAndGet(), playback.getFile().getName());
+	}
+
+	/**
+	 * Make a video file available as a camera.
+	 */
+	public static VideoFileCamera registerVideoFileCamera(Playback playback) {
+		final VideoFileCamera camera = new VideoFileCamera(playback);
+		CameraFactory.registerCamera(camera);
+
+		logger.info("Registered video camera {} playing {}", camera.getName(), playback);
+
+		return camera;
+	}
+
+	public Playback getPlayback() {
+		return playback;
+	}
+
+	@Override
+	public Frame getFrame() {
+		final Mat mat;
+		final long positionNanos;
+		final long readStart = System.nanoTime();
+
+		synchronized (decodeLock) {
+			if (!decodeNext()) return null;
+
+			positionNanos = decodedPositionNanos;
+			mat = toViewSize();
+		}
+
+		// Pacing isn't part of the read
+		final long readNanos = System.nanoTime() - readStart;
+
+		if (!waitUntilDue(positionNanos)) {
+			FramePool.recycle(mat);
+			return null;
+		}
+
+		return deliver(mat, CaptureClock.nanoTime(), readNanos);
+	}
+
+	/**
+	 * Decode the next frame immediately, regardless of the playback rate, and
+	 * stamp it with its position in the video instead of the time it was read.
+	 * This replays a video as fast as it can be decoded while the frames keep
+	 * the timing they were recorded with, provided {@link CaptureClock} is
+	 * following the video (see {@link CaptureClock#setSource}). Positions
+	 * start over when a looping video does.
+	 *
+	 * @return the next frame or <code>null</code> if the video ended or the
+	 *         camera was closed
+	 */
+	public Frame readFrame() {
+		final Mat mat;
+		final long positionNanos;
+		final long readStart = System.nanoTime();
+
+		synchronized (decodeLock) {
+			if (!decodeNext()) return null;
+
+			positionNanos = decodedPositionNanos;
+			mat = toViewSize();
+		}
+
+		final long readNanos = System.nanoTime() - readStart;
+
+		// Nothing paces these frames, so the frame rate comes from the video
+		if (lastReadPositionNanos >= 0 && positionNanos > lastReadPositionNanos)
+			setFPS(1000000000d / (positionNanos - lastReadPositionNanos));
+		lastReadPositionNanos = positionNanos;
+
+		return deliver(mat, positionNanos, readNanos);
+	}
+
+	private Frame deliver(Mat mat, long captureNanos, long readNanos) {
+		currentFrameTimestamp = CaptureClock.toMillis(captureNanos);
+		frameCount++;
+
+		final Frame frame = FramePool.toFrame(getFrameAccount(), mat, captureNanos);
+		frame.setReadNanos(readNanos);
+		return frame;
+	}
+
+	@Override
+	public BufferedImage getBufferedImage() {
+		// While the capture thread is running, decoding here would skip a
+		// frame of the video
+		if (cameraEventListener.isPresent()) return getLatestImage();
+
+		final Frame frame = getFrame();
+		if (frame == null) return null;
+
+		try {
+			return frame.getOriginalBufferedImage();
+		} finally {
+			frame.release();
+		}
+	}
+
+	/**
+	 * Decode the next frame into <code>decoded</code>, starting the video
+	 * over at its end if it loops.
+	 *
+	 * @return <code>false</code> if there are no more frames or the camera was
+	 *         closed
+	 */
+	private boolean decodeNext() {
+		boolean restarted = false;
+
+		while (open && !closing) {
+			try {
+				if (readNextFrame()) return true;
+			} catch (final IOException e) {
+				logger.error("Failed to read frame from video camera " + name, e);
+				return false;
+			}
+
+			// An empty or unreadable video would otherwise be restarted
+			// forever
+			if (!playback.isLooping() || restarted) return false;
+
+			restarted = true;
+			closeSource();
+			try {
+				openSource();
+			} catch (final IOException e) {
+				logger.error("Failed to restart video camera " + name, e);
+				return false;
+			}
+		}
+
+		return false;
+	}
+
+	private boolean readNextFrame() throws IOException {
+		if (rawStream != null) {
+			try {
+				rawStream.readFully(rawPixels);
+			} catch (final EOFException e) {
+				return false;
+			}
+
+			decoded.put(0, 0, rawPixels);
+			decodedPositionNanos = (long) (rawFrameIndex++ * 1000000000d / rawFPS);
+			return true;
+		}
+
+		decodedImage = null;
+
+		while (decodedImage == null) {
+			final IError error = mediaReader.readPacket();
+
+			if (error != null) {
+				if (error.getType() != IError.Type.ERROR_EOF) throw new IOException(error.getDescription());
+				return false;
+			}
+		}
+
+		if (decodedImage.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+			throw new IOException("Unexpected image type " + decodedImage.getType() + " decoded from " + name);
+		}
+
+		final Dimension size = new Dimension(decodedImage.getWidth(), decodedImage.getHeight());
+		if (!size.equals(nativeSize)) nativeSize = size;
+		if (decoded.rows() != size.height || decoded.cols() != size.width) {
+			decoded.create(size.height, size.width, CvType.CV_8UC3);
+		}
+
+		decoded.put(0, 0, ((DataBufferByte) decodedImage.getRaster().getDataBuffer()).getData());
+		return true;
+	}
+
+	/**
+	 * @return a pooled copy of the decoded frame scaled to the view size
+	 */
+	private Mat toViewSize() {
+		final Dimension size = getViewSize();
+		final Mat mat = FramePool.acquireMat(getFrameAccount(), size.height, size.width, CvType.CV_8UC3);
+
+		if (decoded.rows() == size.height && decoded.cols() == size.width) {
+			decoded.copyTo(mat);
+		} else {
+			Imgproc.resize(decoded, mat, new Size(size.width, size.height), 0, 0, Imgproc.INTER_AREA);
+		}
+
+		return mat;
+	}
+
+	/**
+	 * Sleep until a frame is due according to the playback rate.
+	 *
+	 * @param positionNanos
+	 *            the position of the frame in the video
+	 * @return <code>false</code> if the camera was closed while waiting
+	 */
+	private boolean waitUntilDue(long positionNanos) {
+		final long now = CaptureClock.nanoTime();
+
+		long dueNanos;
+		switch (playback.getRate()) {
+		case NATIVE:
+			if (lastDueNanos < 0) {
+				anchorNanos = now;
+				anchorPosition = positionNanos;
+			} else if (positionNanos < lastPositionNanos) {
+				// The video started over, so the first frame follows the last
+				// one as if the video continued
+				anchorNanos = lastDueNanos + lastIntervalNanos;
+				anchorPosition = positionNanos;
+			} else if (positionNanos > lastPositionNanos) {
+				lastIntervalNanos = positionNanos - lastPositionNanos;
+			}
+
+			dueNanos = anchorNanos + (positionNanos - anchorPosition);
+			break;
+
+		case FIXED:
+			dueNanos = lastDueNanos < 0 ? now : lastDueNanos + (long) (1000000000d / playback.getFixedFPS());
+			break;
+
+		default:
+			dueNanos = now;
+		}
+
+		if (now - dueNanos > MAXIMUM_LAG) {
+			if (logger.isDebugEnabled())
+				logger.debug("Video camera {} is {} ms behind, skipping ahead", name, (now - dueNanos) / 1000000);
+
+			dueNanos = now;
+			anchorNanos = now;
+			anchorPosition = positionNanos;
+		}
+
+		lastDueNanos = dueNanos;
+		lastPositionNanos = positionNanos;
+
+		long remaining;
+		while ((remaining = dueNanos - CaptureClock.nanoTime()) > 0) {
+			if (!open || closing) return false;
+
+			LockSupport.parkNanos(this, remaining);
+
+			if (Thread.currentThread().isInterrupted()) return false;
+		}
+
+		return true;
+	}
+
+	private void openSource() throws IOException {
+		final File file = playback.getFile();
+		if (!file.isFile()) throw new IOException("Video file " + file.getPath() + " does not exist");
+
+		if (file.getName().toLowerCase(Locale.ENGLISH).endsWith(RAW_EXTENSION)) {
+			final DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+			try {
+				final int width = stream.readInt();
+				final int height = stream.readInt();
+				final double fps = stream.readDouble();
+
+				if (width <= 0 || height <= 0 || !(fps > 0)) {
+					throw new IOException(String.format("Raw video %s has an invalid header: %dx%d at %f FPS",
+							file.getPath(), width, height, fps));
+				}
+
+				nativeSize = new Dimension(width, height);
+				rawFPS = fps;
+				rawFrameIndex = 0;
+				if (rawPixels == null || rawPixels.length != width * height * 3) rawPixels = new byte[width * height * 3];
+				decoded.create(height, width, CvType.CV_8UC3);
+			} catch (final IOException e) {
+				stream.close();
+				throw e;
+			}
+
+			rawStream = stream;
+		} else {
+			final IMediaReader reader = ToolFactory.makeReader(file.getPath());
+			reader.setBufferedImageTypeToGenerate(BufferedImage.TYPE_3BYTE_BGR);
+			reader.addListener(new MediaListenerAdapter() {
+				@Override
+				public void onVideoPicture(IVideoPictureEvent event) {
+					decodedImage = event.getImage();
+					decodedPositionNanos = event.getTimeStamp(TimeUnit.NANOSECONDS);
+				}
+			});
+
+			try {
+				reader.open();
+			} catch (final RuntimeException e) {
+				throw new IOException("Failed to open video " + file.getPath(), e);
+			}
+
+			if (nativeSize == null) {
+				for (int i = 0; i < reader.getContainer().getNumStreams(); i++) {
+					final int width = reader.getContainer().getStream(i).getStreamCoder().getWidth();
+					final int height = reader.getContainer().getStream(i).getStreamCoder().getHeight();
+
+					if (width > 0 && height > 0) {
+						nativeSize = new Dimension(width, height);
+						break;
+					}
+				}
+			}
+
+			mediaReader = reader;
+		}
+	}
+
+	private void closeSource() {
+		if (mediaReader != null) {
+			mediaReader.close();
+			mediaReader = null;
+		}
+
+		if (rawStream != null) {
+			try {
+				rawStream.close();
+			} catch (final IOException e) {
+				logger.warn("Failed to close raw video " + playback.getFile().getPath(), e);
+			}
+			rawStream = null;
+		}
+
+		decodedImage = null;
+	}
+
+	@Override
+	public boolean open() {
+		synchronized (decodeLock) {
+			if (open && !closing) return true;
+
+			closeSource();
+
+			try {
+				openSource();
+			} catch (final IOException e) {
+				logger.error("Failed to open video camera " + name, e);
+				closeSource();
+				return false;
+			}
+
+			lastDueNanos = -1;
+			lastPositionNanos = -1;
+			lastReadPositionNanos = -1;
+			closing = false;
+			open = true;
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	public void close() {
+		if (!open || closing) return;
+
+		if (cameraEventListener.isPresent()) cameraEventListener.get().cameraClosed();
+
+		closing = true;
+
+		synchronized (decodeLock) {
+			closeSource();
+			decoded.release();
+			open = false;
+		}
+	}
+
+	@Override
+	public void run() {
+		while (isOpen() && !closing) {
+			final Frame frame = getFrame();
+
+			if (frame == null) {
+				// The video ended and doesn't loop, or the camera was closed
+				break;
+			}
+
+			if (cameraEventListener.isPresent())
+				cameraEventListener.get().newFrame(frame);
+			else
+				frame.release();
+
+			if (((int) (getFrameCount() % Math.min(getFPS(), 5)) == 0) && cameraState != CameraState.CALIBRATING) {
+				estimateCameraFPS();
+			}
+		}
+
+		latestFrame.clear();
+
+		if (!closing) close();
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public boolean isLocked() {
+		return false;
+	}
+
+	/**
+	 * Frames are scaled to the view size if it is different from the video's
+	 * size.
+	 */
+	@Override
+	public void setViewSize(Dimension size) {
+		viewSize = new Dimension(size);
+	}
+
+	@Override
+	public Dimension getViewSize() {
+		final Dimension view = viewSize;
+		if (view != null) return view;
+
+		final Dimension video = nativeSize;
+		return video != null ? video : DEFAULT_VIEW_SIZE;
+	}
+
+	@Override
+	public ShotDetector getPreferredShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
+		if (OpenCVShotDetector.isSystemSupported())
+			return new OpenCVShotDetector(cameraManager, cameraView);
+		else if (JavaShotDetector.isSystemSupported())
+			return new JavaShotDetector(cameraManager, cameraView);
+		else
+			return null;
+	}
+
+	@Override
+	public boolean supportsExposureAdjustment() {
+		return false;
+	}
+
+	@Override
+	public boolean decreaseExposure() {
+		return false;
+	}
+
+	@Override
+	public void resetExposure() {
+		return;
+	}
+
+	@Override
+	public boolean limitsFrames() {
+		return false;
+	}
+}
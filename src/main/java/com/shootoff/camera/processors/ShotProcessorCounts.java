@@ -0,0 +1,79 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.processors;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the shots each kind of {@link ShotProcessor} accepted and rejected
+ * since PhanMemBanSung started. Processors are recreated whenever their
+ * settings change, thus the counts are kept by processor type rather than on
+ * the processors themselves.
+ */
+public final class ShotProcessorCounts {
+	private static final Map<String, Counts> counts = new ConcurrentHashMap<>();
+
+	public static final class Counts {
+		private final AtomicLong acceptedCount = new AtomicLong();
+		private final AtomicLong rejectedCount = new AtomicLong();
+
+		public long getAcceptedCount() {
+			return acceptedCount.get();
+		}
+
+		public long getRejectedCount() {
+			return rejectedCount.get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d accepted, %d rejected", acceptedCount.get(), rejectedCount.get());
+		}
+	}
+
+	private ShotProcessorCounts() {}
+
+	/**
+	 * Count the result of <code>processor</code> processing one shot.
+	 * 
+	 * @return <code>accepted</code>
+	 */
+	public static boolean record(ShotProcessor processor, boolean accepted) {
+		final Counts processorCounts = counts.computeIfAbsent(processor.getClass().getSimpleName(),
+				name -> new Counts());
+
+		if (accepted)
+			processorCounts.acceptedCount.incrementAndGet();
+		else
+			processorCounts.rejectedCount.incrementAndGet();
+
+		return accepted;
+	}
+
+	/**
+	 * @return the counts of every processor that processed a shot, keyed by
+	 *         the processor's class name
+	 */
+	public static Map<String, Counts> getCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+}
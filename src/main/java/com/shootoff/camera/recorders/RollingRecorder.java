@@ -29,6 +29,8 @@ import org.slf4j.LoggerFactory;
 
 import com.shootoff.Closeable;
 import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CaptureClock;
+import com.shootoff.metrics.FlightRecorderEvents;
 import com.xuggle.mediatool.IMediaReader;
 import com.xuggle.mediatool.IMediaWriter;
 import com.xuggle.mediatool.MediaListenerAdapter;
@@ -74,7 +76,7 @@ public class RollingRecorder implements Closeable {
 		recordWidth = cameraManager.getFeedWidth();
 		recordHeight = cameraManager.getFeedHeight();
 
-		startTime = System.currentTimeMillis();
+		startTime = CaptureClock.currentTimeMillis();
 		relativeVideoFile = new File(
 				sessionName + File.separator + "rolling" + String.valueOf(System.nanoTime()) + extension);
 		videoFile = new File(System.getProperty("shootoff.sessions") + File.separator + relativeVideoFile.getPath());
@@ -85,11 +87,17 @@ public class RollingRecorder implements Closeable {
 		logger.debug("Started recording new rolling video: {}", videoFile.getName());
 	}
 
-	public void recordFrame(BufferedImage frame) {
+	/**
+	 * @param captureTime
+	 *            when the frame was captured in {@link CaptureClock}
+	 *            milliseconds, which places it in the video
+	 */
+	public void recordFrame(BufferedImage frame, long captureTime) {
 		final BufferedImage image = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
 		final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
 
-		timestamp = (System.currentTimeMillis() - startTime) + timeOffset;
+		// Frames captured just before the video started go at its start
+		timestamp = Math.max(0, captureTime - startTime) + timeOffset;
 
 		final IVideoPicture f = converter.toPicture(image, timestamp * 1000);
 		f.setKeyFrame(isFirstShotFrame);
@@ -115,6 +123,7 @@ public class RollingRecorder implements Closeable {
 	}
 
 	private ForkContext fork(boolean keepOld) {
+		final FlightRecorderEvents.ForkSpan forkEvent = FlightRecorderEvents.beginFork();
 		forking = true;
 
 		synchronized (videoWriterLock) {
@@ -191,7 +200,9 @@ public class RollingRecorder implements Closeable {
 			timeOffset = cutter.getLastTimestamp();
 		}
 
+		final int bufferedFrameCount;
 		synchronized (bufferedFrames) {
+			bufferedFrameCount = bufferedFrames.size();
 			final Iterator<IVideoPicture> it = bufferedFrames.iterator();
 
 			while (it.hasNext()) {
@@ -202,10 +213,12 @@ public class RollingRecorder implements Closeable {
 			}
 		}
 
-		startTime = System.currentTimeMillis();
+		startTime = CaptureClock.currentTimeMillis();
 
 		forking = false;
 
+		forkEvent.commit(cameraName, keepOld, bufferedFrameCount);
+
 		return context;
 	}
 
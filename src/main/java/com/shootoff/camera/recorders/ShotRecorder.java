@@ -25,6 +25,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.shootoff.Closeable;
+import com.shootoff.camera.CaptureClock;
 import com.xuggle.mediatool.IMediaWriter;
 import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IVideoPicture;
@@ -52,17 +53,22 @@ public class ShotRecorder implements Closeable {
 		this.videoWriter = videoWriter;
 		this.cameraName = cameraName;
 
-		startTime = System.currentTimeMillis();
+		startTime = CaptureClock.currentTimeMillis();
 		timeOffset = cutDuration;
 
 		logger.debug("Started recording shot video: {}, cut duration = {} ms", videoFile.getName(), cutDuration);
 	}
 
-	public void recordFrame(BufferedImage frame) {
+	/**
+	 * @param captureTime
+	 *            when the frame was captured in {@link CaptureClock}
+	 *            milliseconds, which places it in the video
+	 */
+	public void recordFrame(BufferedImage frame, long captureTime) {
 		final BufferedImage image = ConverterFactory.convertToType(frame, BufferedImage.TYPE_3BYTE_BGR);
 		final IConverter converter = ConverterFactory.createConverter(image, IPixelFormat.Type.YUV420P);
 
-		final long timestamp = (System.currentTimeMillis() - startTime) + timeOffset;
+		final long timestamp = Math.max(0, captureTime - startTime) + timeOffset;
 
 		final IVideoPicture f = converter.toPicture(image, timestamp * 1000);
 		f.setKeyFrame(isFirstShotFrame);
@@ -85,7 +91,7 @@ public class ShotRecorder implements Closeable {
 	}
 
 	public boolean isComplete() {
-		return System.currentTimeMillis() - startTime > RECORD_LENGTH;
+		return CaptureClock.currentTimeMillis() - startTime > RECORD_LENGTH;
 	}
 
 	@Override
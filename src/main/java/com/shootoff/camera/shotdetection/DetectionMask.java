@@ -0,0 +1,286 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A set of include and exclude polygons in camera coordinates that limit
+ * where shot detection looks for shots. If there are no include polygons the
+ * whole frame is included. Exclude polygons always win over include polygons.
+ *
+ * Masks are immutable. They are compiled into {@link RowSpans} for a specific
+ * frame size so that detectors can skip masked pixels entirely instead of
+ * testing every pixel against the polygons.
+ */
+public final class DetectionMask {
+	private static final Logger logger = LoggerFactory.getLogger(DetectionMask.class);
+
+	public static final DetectionMask EMPTY = new DetectionMask(Collections.emptyList());
+
+	private static final String REGION_SEPARATOR = "/";
+	private static final String TYPE_SEPARATOR = ":";
+	private static final String COORDINATE_SEPARATOR = " ";
+	private static final String INCLUDE = "include";
+	private static final String EXCLUDE = "exclude";
+
+	public static final class Region {
+		private final boolean include;
+		private final double[] xs;
+		private final double[] ys;
+
+		/**
+		 * @param include
+		 *            <code>true</code> if pixels inside the polygon should be
+		 *            processed, <code>false</code> if they should be skipped
+		 * @param xs
+		 *            the x coordinates of the polygon's vertices in camera
+		 *            space
+		 * @param ys
+		 *            the y coordinates of the polygon's vertices in camera
+		 *            space
+		 */
+		public Region(final boolean include, final double[] xs, final double[] ys) {
+			if (xs.length != ys.length) throw new IllegalArgumentException(
+					String.format("Polygon has %d x coordinates but %d y coordinates", xs.length, ys.length));
+			if (xs.length < 3)
+				throw new IllegalArgumentException("Polygon must have at least 3 vertices, got " + xs.length);
+
+			this.include = include;
+			this.xs = Arrays.copyOf(xs, xs.length);
+			this.ys = Arrays.copyOf(ys, ys.length);
+		}
+
+		public boolean isInclude() {
+			return include;
+		}
+
+		public int getVertexCount() {
+			return xs.length;
+		}
+
+		public double getX(final int vertex) {
+			return xs[vertex];
+		}
+
+		public double getY(final int vertex) {
+			return ys[vertex];
+		}
+
+		/**
+		 * Find where the horizontal line at <code>y</code> crosses this
+		 * polygon's edges.
+		 *
+		 * @return the sorted x coordinates of the crossings, paired up as
+		 *         inside intervals using the even-odd rule
+		 */
+		private double[] crossings(final double y) {
+			final double[] found = new double[xs.length];
+			int count = 0;
+
+			for (int i = 0, j = xs.length - 1; i < xs.length; j = i++) {
+				if ((ys[i] <= y) != (ys[j] <= y)) {
+					found[count++] = xs[i] + (y - ys[i]) * (xs[j] - xs[i]) / (ys[j] - ys[i]);
+				}
+			}
+
+			final double[] result = Arrays.copyOf(found, count);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+
+	private final List<Region> regions;
+	private final boolean hasIncludes;
+
+	public DetectionMask(final List<Region> regions) {
+		this.regions = Collections.unmodifiableList(new ArrayList<>(regions));
+
+		boolean includes = false;
+		for (final Region region : regions) {
+			if (region.isInclude()) {
+				includes = true;
+				break;
+			}
+		}
+
+		hasIncludes = includes;
+	}
+
+	public List<Region> getRegions() {
+		return regions;
+	}
+
+	public boolean isEmpty() {
+		return regions.isEmpty();
+	}
+
+	/**
+	 * Compile this mask for a frame of the given size.
+	 */
+	public RowSpans compile(final int width, final int height) {
+		return compile(0, 0, width, height);
+	}
+
+	/**
+	 * Compile this mask for a frame that is a <code>width</code> by
+	 * <code>height</code> window of the camera feed starting at
+	 * <code>(offsetX, offsetY)</code> (e.g. when detection is limited to the
+	 * projector arena). The spans are relative to the window.
+	 *
+	 * A pixel is covered by a polygon if its center is inside the polygon.
+	 */
+	public RowSpans compile(final int offsetX, final int offsetY, final int width, final int height) {
+		final int[] rowOffsets = new int[height + 1];
+		int[] spanStarts = new int[Math.max(height, 1)];
+		int[] spanEnds = new int[Math.max(height, 1)];
+		int spanCount = 0;
+
+		final boolean[] covered = new boolean[width];
+
+		for (int y = 0; y < height; y++) {
+			rowOffsets[y] = spanCount;
+
+			final double centerY = offsetY + y + .5;
+
+			Arrays.fill(covered, !hasIncludes);
+
+			// Apply every include before any exclude so that the order the
+			// user drew them in doesn't matter
+			for (final Region region : regions) {
+				if (region.isInclude()) fillRow(covered, region.crossings(centerY), offsetX, true);
+			}
+
+			for (final Region region : regions) {
+				if (!region.isInclude()) fillRow(covered, region.crossings(centerY), offsetX, false);
+			}
+
+			int x = 0;
+			while (x < width) {
+				if (!covered[x]) {
+					x++;
+					continue;
+				}
+
+				final int start = x;
+				while (x < width && covered[x])
+					x++;
+
+				if (spanCount == spanStarts.length) {
+					spanStarts = Arrays.copyOf(spanStarts, spanCount * 2);
+					spanEnds = Arrays.copyOf(spanEnds, spanCount * 2);
+				}
+
+				spanStarts[spanCount] = start;
+				spanEnds[spanCount] = x;
+				spanCount++;
+			}
+		}
+
+		rowOffsets[height] = spanCount;
+
+		return new RowSpans(width, height, rowOffsets, Arrays.copyOf(spanStarts, spanCount),
+				Arrays.copyOf(spanEnds, spanCount));
+	}
+
+	private static void fillRow(final boolean[] covered, final double[] crossings, final int offsetX,
+			final boolean value) {
+		for (int i = 0; i + 1 < crossings.length; i += 2) {
+			// First and last pixel whose center is inside [left, right)
+			final int start = Math.max((int) Math.ceil(crossings[i] - offsetX - .5), 0);
+			final int end = Math.min((int) Math.ceil(crossings[i + 1] - offsetX - .5), covered.length);
+
+			if (start < end) Arrays.fill(covered, start, end, value);
+		}
+	}
+
+	/**
+	 * Serialize this mask into a string that contains no commas or pipes so
+	 * that it can be embedded in the configuration file.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder mask = new StringBuilder();
+
+		for (final Region region : regions) {
+			if (mask.length() > 0) mask.append(REGION_SEPARATOR);
+
+			mask.append(region.isInclude() ? INCLUDE : EXCLUDE);
+			mask.append(TYPE_SEPARATOR);
+
+			for (int i = 0; i < region.getVertexCount(); i++) {
+				if (i > 0) mask.append(COORDINATE_SEPARATOR);
+				mask.append(region.getX(i));
+				mask.append(COORDINATE_SEPARATOR);
+				mask.append(region.getY(i));
+			}
+		}
+
+		return mask.toString();
+	}
+
+	/**
+	 * Parse a mask created by {@link #toString()}. Malformed regions are
+	 * logged and skipped.
+	 */
+	public static DetectionMask fromString(final String mask) {
+		final List<Region> regions = new ArrayList<>();
+
+		if (mask == null || mask.trim().isEmpty()) return EMPTY;
+
+		for (final String regionString : mask.split(REGION_SEPARATOR)) {
+			final String[] regionComponents = regionString.split(TYPE_SEPARATOR);
+
+			if (regionComponents.length != 2
+					|| (!INCLUDE.equals(regionComponents[0]) && !EXCLUDE.equals(regionComponents[0]))) {
+				logger.warn("Skipping malformed detection mask region: {}", regionString);
+				continue;
+			}
+
+			final String[] coordinates = regionComponents[1].trim().split(COORDINATE_SEPARATOR);
+
+			if (coordinates.length % 2 != 0) {
+				logger.warn("Skipping detection mask region with an odd number of coordinates: {}", regionString);
+				continue;
+			}
+
+			final double[] xs = new double[coordinates.length / 2];
+			final double[] ys = new double[coordinates.length / 2];
+
+			try {
+				for (int i = 0; i < xs.length; i++) {
+					xs[i] = Double.parseDouble(coordinates[i * 2]);
+					ys[i] = Double.parseDouble(coordinates[i * 2 + 1]);
+				}
+
+				regions.add(new Region(INCLUDE.equals(regionComponents[0]), xs, ys));
+			} catch (final IllegalArgumentException e) {
+				logger.warn("Skipping malformed detection mask region: " + regionString, e);
+			}
+		}
+
+		return new DetectionMask(regions);
+	}
+}
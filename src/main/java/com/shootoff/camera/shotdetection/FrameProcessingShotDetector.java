@@ -46,4 +46,12 @@ public abstract class FrameProcessingShotDetector extends ShotDetector {
 	 */
 	public abstract void processFrame(Frame frame, boolean isDetecting);
 
+	/**
+	 * @return the number of pixels that changed enough to possibly be part of
+	 *         a shot in the last processed frame, or -1 if the detector can't
+	 *         tell. Called by metrics from other threads.
+	 */
+	@Override
+	public abstract int getThresholdPixelCount();
+
 }
\ No newline at end of file
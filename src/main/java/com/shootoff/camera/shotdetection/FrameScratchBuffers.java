@@ -0,0 +1,253 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.Closeable;
+
+/**
+ * Per-detector storage for the intermediate images shot detection needs for
+ * every frame (the HSV conversion, its primitive copy, and debug images). The
+ * buffers are sized when the frame size is set and reused for every frame
+ * after that so that the detection loop does not generate garbage or churn
+ * native memory. OpenCV only reallocates a Mat passed as a destination if its
+ * size or type differs from what the operation produces, thus reusing the same
+ * Mats is enough to keep native allocations out of the steady state.
+ *
+ * This class also tracks how many bytes the detection thread and the workers
+ * processing its tiles allocate per frame so that we can verify the hot loop
+ * stays garbage free.
+ */
+final class FrameScratchBuffers implements Closeable, TileScheduler.TileListener {
+	private static final Logger logger = LoggerFactory.getLogger(FrameScratchBuffers.class);
+
+	private static final int ALLOCATION_REPORT_INTERVAL = 300; // frames
+
+	private final Mat hsvFrame = new Mat();
+	private final Mat debugFrame = new Mat();
+	private byte[] hsvBytes = new byte[0];
+
+	// Only used when frames are downsampled before detection
+	private final Mat pooledFrame = new Mat();
+	private final Mat downsampledFrame = new Mat();
+	private final Mat windowHSV = new Mat();
+	private byte[] windowBytes = new byte[0];
+
+	// Marks which pixels the motion and brightness overlays paint
+	private final Mat overlayMask = new Mat();
+	private byte[] overlayMaskBytes = new byte[0];
+
+	private boolean closed = false;
+
+	private final com.sun.management.ThreadMXBean allocationBean;
+	private long frameStartAllocatedBytes = -1;
+	private volatile Thread frameThread = null;
+	private final AtomicLong workerAllocatedBytes = new AtomicLong();
+	private long lastFrameAllocatedBytes = 0;
+	private long intervalAllocatedBytes = 0;
+	private int intervalFrames = 0;
+	private double averageAllocatedBytes = 0;
+
+	FrameScratchBuffers() {
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if (threadBean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+			allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (!allocationBean.isThreadAllocatedMemoryEnabled()) allocationBean.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			allocationBean = null;
+		}
+	}
+
+	/**
+	 * Allocate buffers large enough for frames of the given dimensions.
+	 */
+	public void setFrameSize(final int width, final int height) {
+		if (closed) return;
+
+		hsvFrame.create(height, width, CvType.CV_8UC3);
+		debugFrame.create(height, width, CvType.CV_8UC3);
+
+		final int hsvSize = width * height * hsvFrame.channels();
+		if (hsvBytes.length != hsvSize) hsvBytes = new byte[hsvSize];
+	}
+
+	public Mat getHSVFrame() {
+		return hsvFrame;
+	}
+
+	public Mat getDebugFrame() {
+		return debugFrame;
+	}
+
+	/**
+	 * @return storage for a full resolution frame after max pooling
+	 */
+	public Mat getPooledFrame() {
+		return pooledFrame;
+	}
+
+	/**
+	 * @return storage for the downsampled frame the filters are updated with
+	 */
+	public Mat getDownsampledFrame() {
+		return downsampledFrame;
+	}
+
+	/**
+	 * @return storage for the HSV conversion of a full resolution window
+	 *         around a candidate shot
+	 */
+	public Mat getWindowHSV() {
+		return windowHSV;
+	}
+
+	public Mat getOverlayMask() {
+		return overlayMask;
+	}
+
+	/**
+	 * Get a primitive buffer that can hold at least <code>size</code> bytes of
+	 * an overlay mask.
+	 */
+	public byte[] getOverlayMaskBytes(final int size) {
+		if (overlayMaskBytes.length < size) overlayMaskBytes = new byte[size];
+
+		return overlayMaskBytes;
+	}
+
+	/**
+	 * Get a primitive buffer that can hold at least <code>size</code> bytes of
+	 * a window around a candidate shot.
+	 */
+	public byte[] getWindowBytes(final int size) {
+		if (windowBytes.length < size) windowBytes = new byte[size];
+
+		return windowBytes;
+	}
+
+	/**
+	 * Get a primitive buffer that can hold at least <code>size</code> bytes.
+	 * The buffer is only reallocated if it is too small, thus it may be larger
+	 * than requested.
+	 */
+	public byte[] getHSVBytes(final int size) {
+		if (hsvBytes.length < size) hsvBytes = new byte[size];
+
+		return hsvBytes;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	public void frameStarted() {
+		if (allocationBean == null) return;
+
+		frameThread = Thread.currentThread();
+		workerAllocatedBytes.set(0);
+		frameStartAllocatedBytes = allocationBean.getThreadAllocatedBytes(frameThread.getId());
+	}
+
+	@Override
+	public long tileStarted(final int tile) {
+		if (allocationBean == null) return -1;
+
+		return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Tiles run on the detection thread itself are already covered by the
+	 * frame measurement, thus only other workers are added to the total.
+	 */
+	@Override
+	public void tileFinished(final int tile, final long started) {
+		if (allocationBean == null || started < 0) return;
+
+		final Thread current = Thread.currentThread();
+		if (current == frameThread) return;
+
+		workerAllocatedBytes.addAndGet(allocationBean.getThreadAllocatedBytes(current.getId()) - started);
+	}
+
+	public void frameFinished() {
+		if (allocationBean == null || frameStartAllocatedBytes < 0) return;
+
+		lastFrameAllocatedBytes = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+				- frameStartAllocatedBytes + workerAllocatedBytes.getAndSet(0);
+		frameStartAllocatedBytes = -1;
+		frameThread = null;
+
+		intervalAllocatedBytes += lastFrameAllocatedBytes;
+		intervalFrames++;
+
+		if (intervalFrames == ALLOCATION_REPORT_INTERVAL) {
+			averageAllocatedBytes = (double) intervalAllocatedBytes / (double) intervalFrames;
+
+			if (logger.isDebugEnabled()) logger.debug("Shot detection allocated {} bytes per frame on average over "
+					+ "the last {} frames", averageAllocatedBytes, intervalFrames);
+
+			intervalAllocatedBytes = 0;
+			intervalFrames = 0;
+		}
+	}
+
+	/**
+	 * @return the number of bytes allocated by the detection thread and its
+	 *         tile workers while processing the most recent frame, or -1 if
+	 *         the JVM can't measure allocations
+	 */
+	public long getLastFrameAllocatedBytes() {
+		return allocationBean == null ? -1 : lastFrameAllocatedBytes;
+	}
+
+	/**
+	 * @return the average number of bytes allocated by the detection thread and
+	 *         its tile workers per frame over the last completed reporting
+	 *         interval, or -1 if the JVM can't measure allocations
+	 */
+	public double getAverageFrameAllocatedBytes() {
+		return allocationBean == null ? -1 : averageAllocatedBytes;
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+
+		closed = true;
+		hsvFrame.release();
+		debugFrame.release();
+		pooledFrame.release();
+		downsampledFrame.release();
+		windowHSV.release();
+		overlayMask.release();
+		hsvBytes = new byte[0];
+		windowBytes = new byte[0];
+		overlayMaskBytes = new byte[0];
+	}
+}
@@ -19,25 +19,32 @@
 package com.shootoff.camera.shotdetection;
 
 import java.io.File;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
 import org.opencv.highgui.Highgui;
 import org.opencv.imgproc.Imgproc;
-import org.openimaj.util.function.Operation;
-import org.openimaj.util.parallel.GlobalExecutorPool;
-import org.openimaj.util.parallel.Parallel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
 import com.shootoff.camera.Frame;
+import com.shootoff.camera.StageLatencies;
 import com.shootoff.camera.shot.ShotColor;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.FlightRecorderEvents;
 
 public final class JavaShotDetector extends FrameProcessingShotDetector {
 	private static final Logger logger = LoggerFactory.getLogger(JavaShotDetector.class);
@@ -46,43 +53,74 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	public static final int SECTOR_ROWS = 3;
 
 	// These assume BGR format
-	private static final byte[] BLUE_MAT_PIXEL = { (byte) 255, (byte) 0, (byte) 0 };
-	private static final byte[] RED_MAT_PIXEL = { 0, (byte) 0, (byte) 255 };
+	private static final Scalar BLUE_MAT_PIXEL = new Scalar(255, 0, 0);
+	private static final Scalar RED_MAT_PIXEL = new Scalar(0, 0, 255);
+	private static final double[] GREEN_DEBUG_PIXEL = { 0, 255, 0 };
+	private static final double[] RED_DEBUG_PIXEL = { 0, 0, 255 };
 
 	private final CameraManager cameraManager;
 
 	private boolean filtersInitialized = false;
 
-	private int[][] lumsMovingAverage;
-	private int[][] colorDistanceFromRed;
+	// Per-pixel filter state stored flat in row-major order (index = y *
+	// filterWidth + x) so it is walked in the same order as the HSV frame
+	// buffer. Luminosity never exceeds MAXIMUM_LUM_VALUE, thus it fits in an
+	// unsigned 16-bit char with the top value reserved to mark pixels the
+	// filter hasn't seen yet.
+	private static final char UNINITIALIZED_LUM = Character.MAX_VALUE;
+	private int filterWidth;
+	private int filterHeight;
+	private char[] lumsMovingAverage;
+	private int[] colorDistanceFromRed;
 
 	private int avgThresholdPixels = -1;
 
+	// Read by metrics from other threads
+	private volatile int lastThresholdPixelCount = 0;
+
+	// Totals for the current frame's Flight Recorder event, clustering may
+	// run once per candidate window
+	private long frameClusteringNanos;
+	private int frameClusterCount;
+
 	private int initialFrameCount = -1;
 
-	private final static int INIT_FRAME_COUNT = 5;
+	final static int INIT_FRAME_COUNT = 5;
 	private int movingAveragePeriod = INIT_FRAME_COUNT;
 
-	private final static int MOTION_WARNING_FRAMECOUNT = 30;
+	final static int MOTION_WARNING_FRAMECOUNT = 30;
 	private int MOTION_WARNING_AVG_THRESHOLD;
 	private int MOTION_WARNING_THRESHOLD_PIXELS;
 	private int MAXIMUM_THRESHOLD_PIXELS_FOR_MOTION_AVG;
 
 	// Individual pixel threshold
-	private final static int MAXIMUM_LUM_VALUE = 65025;
-	private final static int EXCESSIVE_BRIGHTNESS_THRESHOLD = (int) (.96 * MAXIMUM_LUM_VALUE);
-	private final static int MINIMUM_BRIGHTNESS_INCREASE = (int) (.117 * MAXIMUM_LUM_VALUE);;
+	final static int MAXIMUM_LUM_VALUE = 65025;
+	final static int EXCESSIVE_BRIGHTNESS_THRESHOLD = (int) (.96 * MAXIMUM_LUM_VALUE);
+	final static int MINIMUM_BRIGHTNESS_INCREASE = (int) (.117 * MAXIMUM_LUM_VALUE);
 
 	// Aggregate # of pixel threshold
 	private int BRIGHTNESS_WARNING_AVG_THRESHOLD;
-	private final static int BRIGHTNESS_WARNING_FRAMECOUNT = 90;
+	final static int BRIGHTNESS_WARNING_FRAMECOUNT = 90;
 
 	private int MAXIMUM_THRESHOLD_PIXELS_FOR_AVG;
 
 	private int MINIMUM_SHOT_DIMENSION;
 
+	// Splits each frame into tiles that are processed in parallel
+	private final TileScheduler tileScheduler = new TileScheduler(SECTOR_COLUMNS, SECTOR_ROWS);
+
+	// Each tile collects candidate pixels into its own buffers and counts its
+	// own dynamically thresholded pixels so the parallel sieve never contends
+	// on shared state. The tile results are merged into the frame-wide
+	// buffers once every tile is done.
+	private ThresholdPixelBuffer[] tileThresholdPixels = new ThresholdPixelBuffer[0];
+	private ThresholdPixelBuffer[] tileBrightPixels = new ThresholdPixelBuffer[0];
+	private int[] tileDynamicallyThresholded = new int[0];
+
+	private final ThresholdPixelBuffer thresholdPixels = new ThresholdPixelBuffer();
+
 	// This is updated for every bright pixel
-	private final Set<Pixel> brightPixels = Collections.synchronizedSet(new HashSet<Pixel>());
+	private final ThresholdPixelBuffer brightPixels = new ThresholdPixelBuffer();
 
 	// The average is then calculated here
 	private int avgBrightPixels = -1;
@@ -95,8 +133,45 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	// red without having complicated math every pixel
 	private boolean shouldShowBrightnessWarningBool = false;
 
+	// The detection mask spans the filters were last updated with. Pixels
+	// outside of the mask aren't updated, thus their filter state is stale
+	// once the mask changes.
+	private RowSpans lastDetectionSpans = null;
+
+	// The last detection mask that didn't fit the frame, so the mismatch is
+	// only logged once per mask instead of once per frame
+	private RowSpans mismatchedDetectionSpans = null;
+
+	// HD frames are processed coarse-to-fine: the filters are updated and
+	// candidates are found on a copy of the frame that is downsampled by
+	// pyramidScale, then only windows around the candidates are thresholded
+	// and clustered at full resolution. The copy is max pooled so that a
+	// laser dot only a few pixels wide still stands out after downsampling.
+	private static final int PYRAMID_2X_PIXELS = 1280 * 720;
+	private static final int PYRAMID_4X_PIXELS = 1920 * 1080;
+	private static final int MAXIMUM_PYRAMID_WINDOWS = 8;
+	private static final Point PYRAMID_ANCHOR = new Point(0, 0);
+	private int pyramidScale = 1;
+	private Mat pyramidKernel = null;
+	private RowSpans pyramidSourceSpans = null;
+	private RowSpans pyramidSpans = null;
+
+	// The averages of the downsampled candidate pixels from before they were
+	// updated with the current frame, which the full resolution pass compares
+	// against. Only entries for the current frame's candidates are set.
+	private char[] candidateLumAverages = new char[0];
+
+	private final PixelClusterManager windowClusterManager = new PixelClusterManager(0, 0);
+	private final ThresholdPixelBuffer windowThresholdPixels = new ThresholdPixelBuffer();
+	private int[] windowColorDistance = new int[0];
+
+	// Reused for every frame so the detection loop doesn't allocate images
+	private final FrameScratchBuffers scratchBuffers = new FrameScratchBuffers();
+
 	final PixelClusterManager pixelClusterManager;
 
+	private final StageLatencies stageLatencies;
+
 	public static boolean isSystemSupported() {
 		return true;
 	}
@@ -104,33 +179,96 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	public JavaShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
 		super(cameraManager, cameraView);
 
-		GlobalExecutorPool.getPool().setRejectedExecutionHandler((r, p) -> {
-			if (!p.isShutdown()) {
-				logger.error("Shot detection thread was rejected but GlobalExecutorPool was not shutdown");
-			}
-		});
-
 		this.cameraManager = cameraManager;
+		stageLatencies = cameraManager.getStageLatencies();
 
 		setFrameSize(cameraManager.getFeedWidth(), cameraManager.getFeedHeight());
 
-		pixelClusterManager = new PixelClusterManager(cameraManager.getFeedWidth(), cameraManager.getFeedHeight());
+		pixelClusterManager = new PixelClusterManager(filterWidth, filterHeight);
 	}
 
+	/**
+	 * Decide how much frames of the given size are downsampled before
+	 * updating the filters. Frames are only downsampled if pyramid detection
+	 * is turned on in the configuration.
+	 */
+	private static int choosePyramidScale(final int width, final int height) {
+		final Configuration config = Configuration.getConfig();
+		if (config == null || !config.usePyramidDetection()) return 1;
+
+		final int pixels = width * height;
+
+		if (pixels >= PYRAMID_4X_PIXELS)
+			return 4;
+		else if (pixels >= PYRAMID_2X_PIXELS)
+			return 2;
+		else
+			return 1;
+	}
+
+	// Synchronized with processFrame because this replaces the filter state
+	// and tile layout that processFrame works on
 	@Override
-	public void setFrameSize(final int width, final int height) {
+	public synchronized void setFrameSize(final int feedWidth, final int feedHeight) {
+		pyramidScale = choosePyramidScale(feedWidth, feedHeight);
+
+		if (pyramidScale > 1) {
+			if (pyramidKernel != null) pyramidKernel.release();
+			pyramidKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(pyramidScale, pyramidScale));
+
+			if (logger.isDebugEnabled()) logger.debug("Detecting shots on {}x{} feed using {}x downsampling",
+					feedWidth, feedHeight, pyramidScale);
+		}
+
+		// The filters are kept at the downsampled resolution
+		final int width = feedWidth / pyramidScale;
+		final int height = feedHeight / pyramidScale;
+
 		if (pixelClusterManager != null) pixelClusterManager.updateFrameSize(width, height);
 
-		lumsMovingAverage = new int[width][height];
-		colorDistanceFromRed = new int[width][height];
+		final int filterSize = width * height;
 
-		for (int y = 0; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				lumsMovingAverage[x][y] = -1;
-			}
+		// Only reallocate if the existing filter state is too small for the
+		// new resolution, otherwise just reuse it
+		if (lumsMovingAverage == null || lumsMovingAverage.length < filterSize) {
+			lumsMovingAverage = new char[filterSize];
+			colorDistanceFromRed = new int[filterSize];
+		} else {
+			Arrays.fill(colorDistanceFromRed, 0, filterSize, 0);
+		}
+
+		Arrays.fill(lumsMovingAverage, 0, filterSize, UNINITIALIZED_LUM);
+
+		if (pyramidScale > 1) {
+			if (candidateLumAverages.length < filterSize) candidateLumAverages = new char[filterSize];
+			Arrays.fill(candidateLumAverages, 0, filterSize, UNINITIALIZED_LUM);
 		}
 
-		final double frameSize = width * height;
+		filterWidth = width;
+		filterHeight = height;
+
+		scratchBuffers.setFrameSize(width, height);
+
+		tileScheduler.layout(width, height);
+		ensureTileBuffers(tileScheduler.getTileCount());
+
+		// The filters were just reset, thus the next frame rescales the
+		// warning thresholds to its detection mask, if any
+		lastDetectionSpans = null;
+		updateWarningThresholds(width * height);
+
+		// Shots are always clustered at full resolution, thus this is in full
+		// resolution pixels. See getFilterMinimumShotDimension.
+		MINIMUM_SHOT_DIMENSION = (int) ((double) feedWidth * (double) feedHeight * .000025);
+	}
+
+	/**
+	 * Scale the motion and brightness warning thresholds to the number of
+	 * filter pixels that are watched: the whole frame or only what the
+	 * detection mask leaves of it.
+	 */
+	private void updateWarningThresholds(final int watchedPixels) {
+		final double frameSize = watchedPixels;
 
 		MOTION_WARNING_AVG_THRESHOLD = (int) (frameSize * .000395);
 		MOTION_WARNING_THRESHOLD_PIXELS = (int) (frameSize * 0.00195);
@@ -140,51 +278,64 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 		BRIGHTNESS_WARNING_AVG_THRESHOLD = (int) (frameSize * .000325);
 
 		MAXIMUM_THRESHOLD_PIXELS_FOR_AVG = (int) (frameSize * .000976);
-
-		MINIMUM_SHOT_DIMENSION = (int) (frameSize * .000025);
 	}
 
 	public CameraManager getCameraManager() {
 		return cameraManager;
 	}
 
-	private Pixel updateFilter(int currentH, int currentS, int currentV, int x, int y, boolean detectShots) {
-		Pixel result = null;
+	private void ensureTileBuffers(final int tileCount) {
+		if (tileThresholdPixels.length >= tileCount) return;
+
+		final int oldCount = tileThresholdPixels.length;
+
+		tileThresholdPixels = Arrays.copyOf(tileThresholdPixels, tileCount);
+		tileBrightPixels = Arrays.copyOf(tileBrightPixels, tileCount);
+		tileDynamicallyThresholded = Arrays.copyOf(tileDynamicallyThresholded, tileCount);
+
+		for (int i = oldCount; i < tileCount; i++) {
+			tileThresholdPixels[i] = new ThresholdPixelBuffer();
+			tileBrightPixels[i] = new ThresholdPixelBuffer();
+		}
+	}
 
+	private void updateFilter(int currentH, int currentS, int currentV, int x, int y, int filterIndex,
+			boolean detectShots, int tile) {
 		final int currentLum = (255 - currentS) * currentV;
+		final int lumAverage = lumsMovingAverage[filterIndex];
 
-		if (lumsMovingAverage[x][y] == -1) {
-			lumsMovingAverage[x][y] = currentLum;
-			colorDistanceFromRed[x][y] = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
+		if (lumAverage == UNINITIALIZED_LUM) {
+			lumsMovingAverage[filterIndex] = (char) currentLum;
+			colorDistanceFromRed[filterIndex] = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
 					- (Math.abs(60 - currentH) * currentS * currentV);
 
-			return result;
+			return;
 		}
 
-		if (detectShots && pixelAboveExcessiveBrightnessThreshold(lumsMovingAverage[x][y])) {
-			brightPixels.add(new Pixel(x, y));
-		} else if (detectShots && pixelAboveThreshold(currentLum, lumsMovingAverage[x][y])) {
-			result = new Pixel(x, y, currentH, currentLum, lumsMovingAverage[x][y], colorDistanceFromRed[x][y]);
+		final int colorAverage = colorDistanceFromRed[filterIndex];
+
+		if (detectShots && pixelAboveExcessiveBrightnessThreshold(lumAverage)) {
+			tileBrightPixels[tile].add(x, y);
+		} else if (detectShots && pixelAboveThreshold(currentLum, lumAverage, tile)) {
+			tileThresholdPixels[tile].add(x, y, currentH, currentLum, lumAverage, colorAverage);
 		}
 
 		final int tempColorDistanceFromRed = (Math.min(currentH, Math.abs(180 - currentH)) * currentS * currentV)
 				- (Math.abs(60 - currentH) * currentS * currentV);
 
 		// Update the average brightness
-		lumsMovingAverage[x][y] = ((lumsMovingAverage[x][y] * (movingAveragePeriod - 1)) + currentLum)
-				/ movingAveragePeriod;
-
-		colorDistanceFromRed[x][y] = ((colorDistanceFromRed[x][y] * (movingAveragePeriod - 1))
-				+ tempColorDistanceFromRed) / movingAveragePeriod;
+		lumsMovingAverage[filterIndex] = (char) (((lumAverage * (movingAveragePeriod - 1)) + currentLum)
+				/ movingAveragePeriod);
 
-		return result;
+		colorDistanceFromRed[filterIndex] = ((colorAverage * (movingAveragePeriod - 1)) + tempColorDistanceFromRed)
+				/ movingAveragePeriod;
 	}
 
 	private boolean pixelAboveExcessiveBrightnessThreshold(int lumsMovingAverage) {
 		return lumsMovingAverage > EXCESSIVE_BRIGHTNESS_THRESHOLD;
 	}
 
-	private boolean pixelAboveThreshold(int currentLum, int lumsMovingAverage) {
+	private boolean pixelAboveThreshold(int currentLum, int lumsMovingAverage, int tile) {
 		final int increase = (currentLum - lumsMovingAverage);
 
 		if (increase < MINIMUM_BRIGHTNESS_INCREASE) return false;
@@ -198,7 +349,9 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 		final int dynamic_threshold = threshold + dynamic_increase;
 
 		if (increase < dynamic_threshold) {
-			if (increase > threshold) dynamicallyThresholded++;
+			// Full resolution windows pass a negative tile because their
+			// pixels were already counted at the filters' resolution
+			if (increase > threshold && tile >= 0) tileDynamicallyThresholded[tile]++;
 			return false;
 		}
 
@@ -215,32 +368,91 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 	 *            whether or not to detect a shot
 	 */
 	@Override
-	public void processFrame(final Frame frame, final boolean detectShots) {
-		updateMovingAveragePeriod();
+	public synchronized void processFrame(final Frame frame, final boolean detectShots) {
+		if (scratchBuffers.isClosed()) return;
 
-		// Must reset before every updateFilter loop
-		brightPixels.clear();
+		final FlightRecorderEvents.FrameSpan frameEvent = FlightRecorderEvents.beginFrame();
+		final long sinceCaptureNanos = CaptureClock.nanoTime() - frame.getCaptureNanos();
+		frameClusteringNanos = 0;
+		frameClusterCount = 0;
+
+		scratchBuffers.frameStarted();
+
+		updateMovingAveragePeriod();
 
 		// Create a hue, saturation, value copy of the current frame used to
 		// detect
 		// the shots. The BGR version is just used by this implementation to
 		// show
 		// the user where bright/high motion pixels are
-		final Mat frameHSV = new Mat();
-		Imgproc.cvtColor(frame.getOriginalMat(), frameHSV, Imgproc.COLOR_BGR2HSV);
+		final Mat frameHSV = scratchBuffers.getHSVFrame();
+		final RowSpans detectionSpans = getDetectionSpans(frame.getOriginalMat());
+
+		// When frames are downsampled, frameBGR, frameHSV and filterSpans are
+		// all at the filters' resolution
+		final Mat frameBGR = pyramidScale > 1 ? downsample(frame.getOriginalMat()) : frame.getOriginalMat();
+		final RowSpans filterSpans = getFilterSpans(detectionSpans);
+
+		long stageStart = System.nanoTime();
+
+		if (filterSpans == null) {
+			Imgproc.cvtColor(frameBGR, frameHSV, Imgproc.COLOR_BGR2HSV);
+		} else if (!filterSpans.isEmpty()) {
+			// Only convert the part of the frame the mask covers plus a one
+			// pixel border for the color sampling around shots
+			frameHSV.create(frameBGR.rows(), frameBGR.cols(), CvType.CV_8UC3);
+
+			final int minRow = Math.max(filterSpans.getMinRow() - 1, 0);
+			final int maxRow = Math.min(filterSpans.getMaxRow() + 1, frameBGR.rows());
+			final int minColumn = Math.max(filterSpans.getMinColumn() - 1, 0);
+			final int maxColumn = Math.min(filterSpans.getMaxColumn() + 1, frameBGR.cols());
+
+			final Mat maskedBGR = frameBGR.submat(minRow, maxRow, minColumn, maxColumn);
+			final Mat maskedHSV = frameHSV.submat(minRow, maxRow, minColumn, maxColumn);
+			Imgproc.cvtColor(maskedBGR, maskedHSV, Imgproc.COLOR_BGR2HSV);
+			maskedBGR.release();
+			maskedHSV.release();
+		}
+
+		final long hsvConversionNanos = System.nanoTime() - stageStart;
+		stageLatencies.record(StageLatencies.Stage.HSV_CONVERSION, hsvConversionNanos);
+
+		if (detectionSpans != lastDetectionSpans) {
+			// Pixels that were masked out have stale averages, so start them
+			// over instead of treating the first frame they are seen in as a
+			// change in brightness
+			if (lastDetectionSpans != null) Arrays.fill(lumsMovingAverage, 0, filterWidth * filterHeight,
+					UNINITIALIZED_LUM);
+			lastDetectionSpans = detectionSpans;
 
-		final Set<Pixel> thresholdPixels = findThresholdPixelsAndUpdateFilter(frameHSV,
-				(detectShots && filtersInitialized));
+			updateWarningThresholds(filterSpans == null ? filterWidth * filterHeight : filterSpans.getPixelCount());
+		}
+
+		long thresholdNanos = 0;
+		if (filterSpans == null || !filterSpans.isEmpty()) {
+			stageStart = System.nanoTime();
+			findThresholdPixelsAndUpdateFilter(frameHSV, (detectShots && filtersInitialized), filterSpans);
+			thresholdNanos = System.nanoTime() - stageStart;
+			stageLatencies.record(StageLatencies.Stage.THRESHOLD, thresholdNanos);
+		} else {
+			dynamicallyThresholded = 0;
+			thresholdPixels.clear();
+			brightPixels.clear();
+		}
 
 		final int thresholdPixelsSize = thresholdPixels.size();
+		lastThresholdPixelCount = thresholdPixelsSize;
 
 		if (logger.isTraceEnabled() && checkIfInitialized()) {
 			if (thresholdPixelsSize >= 1) logger.trace("thresholdPixels {} getMinimumShotDimension {}",
 					thresholdPixelsSize, getMinimumShotDimension());
 
-			for (final Pixel pixel : thresholdPixels) {
-				logger.trace("thresholdPixel {} {} - from array {} from pixel cur {} avg {}", pixel.x, pixel.y,
-						lumsMovingAverage[pixel.x][pixel.y], pixel.getCurrentLum(), pixel.getLumAverage());
+			for (int i = 0; i < thresholdPixelsSize; i++) {
+				final int x = thresholdPixels.getX(i);
+				final int y = thresholdPixels.getY(i);
+
+				logger.trace("thresholdPixel {} {} - from array {} from pixel cur {} avg {}", x, y,
+						(int) lumsMovingAverage[y * filterWidth + x], thresholdPixels.getCurrentLum(i), thresholdPixels.getLumAverage(i));
 			}
 		}
 
@@ -255,16 +467,22 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 				cameraManager.showBrightnessWarning();
 			}
 
-			if (thresholdPixelsSize >= getMinimumShotDimension() && !isExcessiveMotion(thresholdPixelsSize)) {
-				final Set<PixelCluster> clusters = pixelClusterManager.clusterPixels(thresholdPixels,
-						getMinimumShotDimension());
+			if (thresholdPixelsSize >= getFilterMinimumShotDimension() && !isExcessiveMotion(thresholdPixelsSize)) {
+				if (pyramidScale > 1) {
+					detectShotsInWindows(frame, detectionSpans);
+				} else {
+					stageStart = System.nanoTime();
+					final Set<PixelCluster> clusters = pixelClusterManager.clusterPixels(thresholdPixels,
+							getMinimumShotDimension());
+					recordClustering(stageStart, clusters.size());
+
+					if (logger.isTraceEnabled()) {
+						logger.trace("thresholdPixels {}", thresholdPixelsSize);
+						logger.trace("clusters {}", clusters.size());
+					}
 
-				if (logger.isTraceEnabled()) {
-					logger.trace("thresholdPixels {}", thresholdPixelsSize);
-					logger.trace("clusters {}", clusters.size());
+					detectShots(new Frame(frameHSV, frame.getTimestamp()), clusters);
 				}
-
-				detectShots(new Frame(frameHSV, frame.getTimestamp()), clusters);
 			}
 
 			// Moved to after detectShots because otherwise we'll have changed
@@ -272,20 +490,300 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 			else if (isExcessiveMotion(thresholdPixelsSize)) {
 				if (shouldShowMotionWarning(thresholdPixelsSize)) cameraManager.showMotionWarning();
 
-				for (final Pixel pixel : thresholdPixels) {
-					frame.getOriginalMat().put(pixel.y, pixel.x, BLUE_MAT_PIXEL);
-				}
+				paintPixels(frame.getOriginalMat(), thresholdPixels, BLUE_MAT_PIXEL);
 			}
 
 			if (shouldShowBrightnessWarningBool && !brightPixels.isEmpty()) {
 				// Make the feed pixels red so the user can easily see what the
 				// problem pixels are
-				synchronized (brightPixels) {
-					for (final Pixel pixel : brightPixels) {
-						frame.getOriginalMat().put(pixel.y, pixel.x, RED_MAT_PIXEL);
+				paintPixels(frame.getOriginalMat(), brightPixels, RED_MAT_PIXEL);
+			}
+		}
+
+		scratchBuffers.frameFinished();
+
+		frameEvent.commit(cameraManager.getName(), frame.getFrameNumber(), sinceCaptureNanos,
+				hsvConversionNanos, thresholdNanos, frameClusteringNanos, thresholdPixelsSize, frameClusterCount);
+	}
+
+	private void recordClustering(final long clusteringStart, final int clusters) {
+		final long clusteringNanos = System.nanoTime() - clusteringStart;
+		stageLatencies.record(StageLatencies.Stage.CLUSTERING, clusteringNanos);
+		frameClusteringNanos += clusteringNanos;
+		frameClusterCount += clusters;
+	}
+
+	/**
+	 * Set the feed pixels covered by the filter pixels in <code>pixels</code>
+	 * to <code>color</code>. Every filter pixel covers a pyramidScale by
+	 * pyramidScale block of the feed.
+	 * 
+	 * The pixels are marked in a single channel mask that only spans their
+	 * bounding box, which is then applied with one native call instead of one
+	 * call per pixel. This runs when the machine is likely already struggling
+	 * with motion or brightness, thus it needs to be cheap.
+	 */
+	private void paintPixels(final Mat frame, final ThresholdPixelBuffer pixels, final Scalar color) {
+		final int size = pixels.size();
+		if (size == 0) return;
+
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (int i = 0; i < size; i++) {
+			final int x = pixels.getX(i);
+			final int y = pixels.getY(i);
+
+			if (x < minX) minX = x;
+			if (x > maxX) maxX = x;
+			if (y < minY) minY = y;
+			if (y > maxY) maxY = y;
+		}
+
+		final int startX = minX * pyramidScale;
+		final int startY = minY * pyramidScale;
+		final int endX = Math.min((maxX + 1) * pyramidScale, frame.cols());
+		final int endY = Math.min((maxY + 1) * pyramidScale, frame.rows());
+		if (startX >= endX || startY >= endY) return;
+
+		final int maskWidth = endX - startX;
+		final int maskSize = maskWidth * (endY - startY);
+		final byte[] maskBytes = scratchBuffers.getOverlayMaskBytes(maskSize);
+		Arrays.fill(maskBytes, 0, maskSize, (byte) 0);
+
+		for (int i = 0; i < size; i++) {
+			final int x = pixels.getX(i) * pyramidScale - startX;
+			final int y = pixels.getY(i) * pyramidScale - startY;
+
+			for (int blockY = y; blockY < y + pyramidScale; blockY++) {
+				for (int blockX = x; blockX < x + pyramidScale; blockX++) {
+					maskBytes[blockY * maskWidth + blockX] = (byte) 255;
+				}
+			}
+		}
+
+		final Mat mask = scratchBuffers.getOverlayMask();
+		mask.create(endY - startY, maskWidth, CvType.CV_8UC1);
+		mask.put(0, 0, maskBytes);
+
+		final Mat region = frame.submat(startY, endY, startX, endX);
+		region.setTo(color, mask);
+		region.release();
+	}
+
+	/**
+	 * Max pool <code>frame</code> down to the filters' resolution. Every
+	 * downsampled pixel holds the brightest value of each channel in the block
+	 * it covers, thus a small, bright dot is not averaged away.
+	 */
+	private Mat downsample(final Mat frame) {
+		final Mat pooled = scratchBuffers.getPooledFrame();
+		final Mat downsampled = scratchBuffers.getDownsampledFrame();
+
+		// Anchoring the kernel at its top left corner makes the pixel at
+		// (x * pyramidScale, y * pyramidScale) the max of the block that
+		// resize picks it for
+		Imgproc.dilate(frame, pooled, pyramidKernel, PYRAMID_ANCHOR, 1);
+		Imgproc.resize(pooled, downsampled, new Size(frame.cols() / pyramidScale, frame.rows() / pyramidScale), 0,
+				0, Imgproc.INTER_NEAREST);
+
+		return downsampled;
+	}
+
+	/**
+	 * @return <code>detectionSpans</code> at the filters' resolution
+	 */
+	private RowSpans getFilterSpans(final RowSpans detectionSpans) {
+		if (detectionSpans == null || pyramidScale == 1) return detectionSpans;
+
+		if (detectionSpans != pyramidSourceSpans) {
+			pyramidSpans = detectionSpans.downsample(pyramidScale);
+			pyramidSourceSpans = detectionSpans;
+		}
+
+		return pyramidSpans;
+	}
+
+	/**
+	 * The number of downsampled threshold pixels a region needs before it is
+	 * worth looking for a shot in it at full resolution.
+	 */
+	private int getFilterMinimumShotDimension() {
+		return Math.max(getMinimumShotDimension() / (pyramidScale * pyramidScale), 1);
+	}
+
+	/**
+	 * Look for shots at full resolution in windows around the regions of
+	 * downsampled threshold pixels. Every full resolution pixel in a window
+	 * is compared to the filter state of the downsampled pixel that covers it,
+	 * using the average from before the current frame for candidate pixels.
+	 */
+	private void detectShotsInWindows(final Frame frame, final RowSpans detectionSpans) {
+		final Mat frameBGR = frame.getOriginalMat();
+		final List<Rect> windows = findCandidateWindows(frameBGR.cols(), frameBGR.rows());
+
+		final int thresholdPixelsSize = thresholdPixels.size();
+		for (int i = 0; i < thresholdPixelsSize; i++) {
+			candidateLumAverages[thresholdPixels.getY(i) * filterWidth + thresholdPixels.getX(i)] = (char) thresholdPixels
+					.getLumAverage(i);
+		}
+
+		if (logger.isTraceEnabled()) logger.trace("thresholdPixels {} windows {}", thresholdPixelsSize, windows.size());
+
+		final Mat windowHSV = scratchBuffers.getWindowHSV();
+
+		for (final Rect window : windows) {
+			final Mat windowBGR = frameBGR.submat(window);
+			Imgproc.cvtColor(windowBGR, windowHSV, Imgproc.COLOR_BGR2HSV);
+			windowBGR.release();
+
+			final int channels = windowHSV.channels();
+			final byte[] windowBytes = scratchBuffers.getWindowBytes(window.width * window.height * channels);
+			windowHSV.get(0, 0, windowBytes);
+
+			if (windowColorDistance.length < window.width * window.height)
+				windowColorDistance = new int[window.width * window.height];
+
+			windowThresholdPixels.clear();
+
+			for (int y = 0; y < window.height; y++) {
+				final int frameY = window.y + y;
+				final int filterOffset = Math.min(frameY / pyramidScale, filterHeight - 1) * filterWidth;
+
+				for (int x = 0; x < window.width; x++) {
+					final int frameX = window.x + x;
+					final int filterIndex = filterOffset + Math.min(frameX / pyramidScale, filterWidth - 1);
+
+					windowColorDistance[y * window.width + x] = colorDistanceFromRed[filterIndex];
+
+					if (detectionSpans != null && !detectionSpans.contains(frameX, frameY)) continue;
+
+					final int lumAverage = candidateLumAverages[filterIndex] != UNINITIALIZED_LUM
+							? candidateLumAverages[filterIndex] : lumsMovingAverage[filterIndex];
+
+					if (lumAverage == UNINITIALIZED_LUM || pixelAboveExcessiveBrightnessThreshold(lumAverage))
+						continue;
+
+					final int offset = (y * window.width + x) * channels;
+					final int currentH = windowBytes[offset] & 0xFF;
+					final int currentS = windowBytes[offset + 1] & 0xFF;
+					final int currentV = windowBytes[offset + 2] & 0xFF;
+					final int currentLum = (255 - currentS) * currentV;
+
+					if (pixelAboveThreshold(currentLum, lumAverage, -1)) {
+						windowThresholdPixels.add(x, y, currentH, currentLum, lumAverage,
+								colorDistanceFromRed[filterIndex]);
 					}
 				}
 			}
+
+			if (windowThresholdPixels.size() < getMinimumShotDimension()) continue;
+
+			windowClusterManager.updateFrameSize(window.width, window.height);
+			final long clusteringStart = System.nanoTime();
+			final Set<PixelCluster> clusters = windowClusterManager.clusterPixels(windowThresholdPixels,
+					getMinimumShotDimension());
+			recordClustering(clusteringStart, clusters.size());
+
+			if (logger.isTraceEnabled()) logger.trace("window {} thresholdPixels {} clusters {}", window,
+					windowThresholdPixels.size(), clusters.size());
+
+			for (final PixelCluster cluster : clusters) {
+				addShot(new Frame(windowHSV, frame.getTimestamp()), cluster, windowColorDistance, window.width,
+						window.x, window.y);
+			}
+		}
+
+		for (int i = 0; i < thresholdPixelsSize; i++) {
+			candidateLumAverages[thresholdPixels.getY(i) * filterWidth + thresholdPixels.getX(i)] = UNINITIALIZED_LUM;
+		}
+	}
+
+	/**
+	 * Turn the regions of downsampled threshold pixels into full resolution
+	 * windows. Every region is grown by one downsampled pixel so the color
+	 * sampling around a shot has its border, and overlapping windows are
+	 * merged so no shot is detected twice.
+	 */
+	private List<Rect> findCandidateWindows(final int frameWidth, final int frameHeight) {
+		final List<Rect> windows = new ArrayList<>();
+
+		for (final Rect region : pixelClusterManager.findCandidateRegions(thresholdPixels,
+				getFilterMinimumShotDimension())) {
+			final int x = Math.max((region.x - 1) * pyramidScale, 0);
+			final int y = Math.max((region.y - 1) * pyramidScale, 0);
+			final int endX = Math.min((region.x + region.width + 1) * pyramidScale, frameWidth);
+			final int endY = Math.min((region.y + region.height + 1) * pyramidScale, frameHeight);
+
+			if (x < endX && y < endY) windows.add(new Rect(x, y, endX - x, endY - y));
+		}
+
+		boolean merged = true;
+		while (merged) {
+			merged = false;
+
+			for (int i = 0; i < windows.size() && !merged; i++) {
+				final Rect window = windows.get(i);
+
+				final Iterator<Rect> it = windows.listIterator(i + 1);
+				while (it.hasNext()) {
+					final Rect other = it.next();
+
+					if (window.x < other.x + other.width && other.x < window.x + window.width
+							&& window.y < other.y + other.height && other.y < window.y + window.height) {
+						final int endX = Math.max(window.x + window.width, other.x + other.width);
+						final int endY = Math.max(window.y + window.height, other.y + other.height);
+						window.x = Math.min(window.x, other.x);
+						window.y = Math.min(window.y, other.y);
+						window.width = endX - window.x;
+						window.height = endY - window.y;
+						it.remove();
+						merged = true;
+					}
+				}
+			}
+		}
+
+		// A real shot is a handful of small regions at most, many more is
+		// motion that the full resolution pass would only waste time on
+		if (windows.size() > MAXIMUM_PYRAMID_WINDOWS) {
+			if (logger.isDebugEnabled())
+				logger.debug("Ignoring {} candidate windows, more than {}", windows.size(), MAXIMUM_PYRAMID_WINDOWS);
+			windows.clear();
+		}
+
+		return windows;
+	}
+
+	/**
+	 * @return the number of bytes the detection thread allocated while
+	 *         processing the most recent frame, or -1 if this JVM can't
+	 *         measure thread allocations
+	 */
+	public long getLastFrameAllocatedBytes() {
+		return scratchBuffers.getLastFrameAllocatedBytes();
+	}
+
+	/**
+	 * @return the average number of bytes the detection thread allocated per
+	 *         frame over the last reporting interval, or -1 if this JVM can't
+	 *         measure thread allocations
+	 */
+	public double getAverageFrameAllocatedBytes() {
+		return scratchBuffers.getAverageFrameAllocatedBytes();
+	}
+
+	@Override
+	public void close() {
+		// Stop the tiles of a frame in progress at the end of their current
+		// row instead of waiting for the whole frame
+		tileScheduler.cancel();
+
+		synchronized (this) {
+			scratchBuffers.close();
+			if (pyramidKernel != null) pyramidKernel.release();
 		}
 	}
 
@@ -296,7 +794,7 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 
 	private void detectShots(final Frame workingFrame, final Set<PixelCluster> clusters) {
 		for (final PixelCluster cluster : clusters) {
-			addShot(workingFrame, cluster);
+			addShot(workingFrame, cluster, colorDistanceFromRed, filterWidth, 0, 0);
 		}
 	}
 
@@ -337,62 +835,121 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 		return cameraManager.getFrameCount() - initialFrameCount > INIT_FRAME_COUNT;
 	}
 
-	private Set<Pixel> findThresholdPixelsAndUpdateFilter(final Mat workingFrame, final boolean detectShots) {
-		dynamicallyThresholded = 0;
+	/**
+	 * @return the compiled detection mask for <code>frame</code>, or
+	 *         <code>null</code> if every pixel should be processed
+	 */
+	private RowSpans getDetectionSpans(final Mat frame) {
+		final Optional<RowSpans> spans = cameraManager.getDetectionSpans();
+
+		if (!spans.isPresent()) return null;
 
-		final Set<Pixel> thresholdPixels = Collections.synchronizedSet(new HashSet<Pixel>());
+		if (spans.get().getWidth() != frame.cols() || spans.get().getHeight() != frame.rows()) {
+			if (spans.get() != mismatchedDetectionSpans) {
+				logger.warn("Detection mask compiled for {}x{} but frame is {}x{}, ignoring the mask",
+						spans.get().getWidth(), spans.get().getHeight(), frame.cols(), frame.rows());
+				mismatchedDetectionSpans = spans.get();
+			}
 
-		if (!cameraManager.isDetecting()) return thresholdPixels;
+			return null;
+		}
 
-		final int subWidth = workingFrame.cols() / SECTOR_COLUMNS;
-		final int subHeight = workingFrame.rows() / SECTOR_ROWS;
+		return spans.get();
+	}
+
+	/**
+	 * Update the per-pixel filters and collect the pixels that are over the
+	 * brightness thresholds into <code>thresholdPixels</code> and
+	 * <code>brightPixels</code>. Both buffers are emptied first, thus their
+	 * contents are only valid until the next call.
+	 */
+	private void findThresholdPixelsAndUpdateFilter(final Mat workingFrame, final boolean detectShots,
+			final RowSpans detectionSpans) {
+		dynamicallyThresholded = 0;
+
+		// Must reset before every updateFilter loop
+		thresholdPixels.clear();
+		brightPixels.clear();
+
+		if (!cameraManager.isDetecting()) return;
 
 		final int cols = workingFrame.cols();
 		final int channels = workingFrame.channels();
 
-		final int size = (int) (workingFrame.total() * channels);
-		final byte[] workingFramePrimitive = new byte[size];
-		workingFrame.get(0, 0, workingFramePrimitive);
+		if (cols > filterWidth || workingFrame.rows() > filterHeight) {
+			logger.warn("Frame of size {}x{} is larger than the shot detection filters {}x{}", cols,
+					workingFrame.rows(), filterWidth, filterHeight);
+			return;
+		}
+
+		// The working frame is smaller than the filters when detection is
+		// limited to the projector arena
+		tileScheduler.layout(cols, workingFrame.rows());
+		final int tileCount = tileScheduler.getTileCount();
+		ensureTileBuffers(tileCount);
+
+		for (int i = 0; i < tileCount; i++) {
+			tileThresholdPixels[i].clear();
+			tileBrightPixels[i].clear();
+			tileDynamicallyThresholded[i] = 0;
+		}
+
+		// Only copy the rows the detection mask covers out of the frame
+		final int minRow = detectionSpans == null ? 0 : detectionSpans.getMinRow();
+		final int maxRow = detectionSpans == null ? workingFrame.rows() : detectionSpans.getMaxRow();
+
+		final int size = (maxRow - minRow) * cols * channels;
+		final byte[] workingFramePrimitive = scratchBuffers.getHSVBytes(size);
+		final Mat maskedRows = workingFrame.rowRange(minRow, maxRow);
+		maskedRows.get(0, 0, workingFramePrimitive);
+		maskedRows.release();
 
 		// In this loop we accomplish both MovingAverage updates AND threshold
 		// pixel detection
-		Parallel.forIndex(0, (SECTOR_ROWS * SECTOR_COLUMNS), 1, new Operation<Integer>() {
-			@Override
-			public void perform(Integer sector) {
-				final int sectorX = sector.intValue() % SECTOR_COLUMNS;
-				final int sectorY = sector.intValue() / SECTOR_ROWS;
-
-				if (!cameraManager.isSectorOn(sectorX, sectorY)) return;
-
-				final int startX = subWidth * sectorX;
-				final int startY = subHeight * sectorY;
-
-				for (int y = startY; y < startY + subHeight; y++) {
-					final int yOffset = y * cols;
-					for (int x = startX; x < startX + subWidth; x++) {
-						// If the thread is interrupted it's likely because the
-						// thread pool
-						// is being shutdown with shutdownNow. Thus cancel
-						// searching
-						// for a shot in the current frame.
-						if (Thread.currentThread().isInterrupted()) {
-							logger.trace("Shot detection sieve interrupted");
-							return;
-						}
-
-						final int currentH = workingFramePrimitive[(yOffset + x) * channels] & 0xFF;
-						final int currentS = workingFramePrimitive[(yOffset + x) * channels + 1] & 0xFF;
-						final int currentV = workingFramePrimitive[(yOffset + x) * channels + 2] & 0xFF;
-
-						final Pixel pixel = updateFilter(currentH, currentS, currentV, x, y, detectShots);
-
-						if (pixel != null) thresholdPixels.add(pixel);
-					}
-				}
+		tileScheduler.process(cameraManager::isSectorOn, (tile, y, startX, endX) -> {
+			if (detectionSpans == null) {
+				updateFilterRange(workingFramePrimitive, cols, channels, minRow, y, startX, endX, detectShots, tile);
+				return;
+			}
+
+			if (y < minRow || y >= maxRow) return;
+
+			for (int span = detectionSpans.getFirstSpan(y); span < detectionSpans.getEndSpan(y); span++) {
+				final int spanStart = Math.max(detectionSpans.getSpanStart(span), startX);
+				final int spanEnd = Math.min(detectionSpans.getSpanEnd(span), endX);
+
+				if (spanStart < spanEnd) updateFilterRange(workingFramePrimitive, cols, channels, minRow, y,
+						spanStart, spanEnd, detectShots, tile);
 			}
-		});
+		}, scratchBuffers);
+
+		// Merge on this thread now that the sieve is done, which is why the
+		// tile buffers need no locking
+		for (int i = 0; i < tileCount; i++) {
+			thresholdPixels.addAll(tileThresholdPixels[i]);
+			brightPixels.addAll(tileBrightPixels[i]);
+			dynamicallyThresholded += tileDynamicallyThresholded[i];
+		}
+	}
 
-		return thresholdPixels;
+	/**
+	 * Update the filters for the pixels in <code>[startX, endX)</code> of row
+	 * <code>y</code>. <code>workingFramePrimitive</code> holds the frame's
+	 * rows starting at <code>firstRow</code>.
+	 */
+	private void updateFilterRange(final byte[] workingFramePrimitive, final int cols, final int channels,
+			final int firstRow, final int y, final int startX, final int endX, final boolean detectShots,
+			final int tile) {
+		final int yOffset = (y - firstRow) * cols;
+		final int filterOffset = y * filterWidth;
+
+		for (int x = startX; x < endX; x++) {
+			final int currentH = workingFramePrimitive[(yOffset + x) * channels] & 0xFF;
+			final int currentS = workingFramePrimitive[(yOffset + x) * channels + 1] & 0xFF;
+			final int currentV = workingFramePrimitive[(yOffset + x) * channels + 2] & 0xFF;
+
+			updateFilter(currentH, currentS, currentV, x, y, filterOffset + x, detectShots, tile);
+		}
 	}
 
 	private void updateAvgThresholdPixels(final int thresholdPixels) {
@@ -413,47 +970,70 @@ public final class JavaShotDetector extends FrameProcessingShotDetector {
 					+ Math.min(brightPixels, MAXIMUM_THRESHOLD_PIXELS_FOR_AVG)) / movingAveragePeriod;
 	}
 
+	/**
+	 * @return the number of pixels that changed enough to possibly be part of
+	 *         a shot in the last frame
+	 */
+	@Override
+	public int getThresholdPixelCount() {
+		return lastThresholdPixelCount;
+	}
+
+	/**
+	 * @return the moving average of the number of changed pixels per frame
+	 *         used to detect motion, or -1 before shots are detected
+	 */
+	public int getAverageThresholdPixels() {
+		return avgThresholdPixels;
+	}
+
 	public int getMinimumShotDimension() {
 		return cameraManager.getMinimumShotDimension().isPresent() ? cameraManager.getMinimumShotDimension().get()
 				: MINIMUM_SHOT_DIMENSION;
 	}
 
-	private void addShot(Frame workingFrame, PixelCluster pc) {
-		final Optional<ShotColor> color = pc.getColor(workingFrame.getOriginalMat(), colorDistanceFromRed);
+	/**
+	 * @param offsetX
+	 *            the x coordinate of <code>workingFrame</code> in the feed,
+	 *            which is not 0 if it is a window around a candidate
+	 * @param offsetY
+	 *            the y coordinate of <code>workingFrame</code> in the feed
+	 */
+	private void addShot(Frame workingFrame, PixelCluster pc, int[] colorDistance, int colorDistanceStride,
+			int offsetX, int offsetY) {
+		final Optional<ShotColor> color = pc.getColor(workingFrame.getOriginalMat(), colorDistance,
+				colorDistanceStride);
 
 		if (!color.isPresent()) {
 			if (logger.isDebugEnabled()) logger.debug("Processing Shot: Shot Rejected By Lack Of Color Density");
 			return;
 		}
 
-		final double x = pc.centerPixelX;
-		final double y = pc.centerPixelY;
+		final double x = pc.centerPixelX + offsetX;
+		final double y = pc.centerPixelY + offsetY;
 
 		if (super.addShot(color.get(), x, y, workingFrame.getTimestamp(), true)
 				&& Configuration.getConfig().isDebugShotsRecordToFiles()) {
-			final Mat debugFrame = new Mat();
+			final Mat debugFrame = scratchBuffers.getDebugFrame();
 			Imgproc.cvtColor(workingFrame.getOriginalMat(), debugFrame, Imgproc.COLOR_HSV2BGR);
 
 			String filename = String.format("shot-%d-%d-%d_orig.png",
-					cameraManager.cameraTimeToShotTime(workingFrame.getTimestamp()), (int) pc.centerPixelX,
-					(int) pc.centerPixelY);
+					cameraManager.cameraTimeToShotTime(workingFrame.getTimestamp()), (int) x, (int) y);
 			final File file = new File(filename);
 			filename = file.toString();
 			Highgui.imwrite(filename, debugFrame);
 
 			for (final Pixel p : pc) {
 				if (javafx.scene.paint.Color.GREEN.equals(color.get())) {
-					final double[] greenColor = { 0, 255, 0 };
-					debugFrame.put(p.y, p.x, greenColor);
+					debugFrame.put(p.y, p.x, GREEN_DEBUG_PIXEL);
 				} else {
-					final double[] redColor = { 0, 0, 255 };
-					debugFrame.put(p.y, p.x, redColor);
+					debugFrame.put(p.y, p.x, RED_DEBUG_PIXEL);
 				}
 			}
 
 			final File outputfile = new File(
 					String.format("shot-%d-%d-%d.png", cameraManager.cameraTimeToShotTime(workingFrame.getTimestamp()),
-							(int) pc.centerPixelX, (int) pc.centerPixelY));
+							(int) x, (int) y));
 			filename = outputfile.toString();
 			Highgui.imwrite(filename, debugFrame);
 		}
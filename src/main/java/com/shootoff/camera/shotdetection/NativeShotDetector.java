@@ -45,6 +45,12 @@ public class NativeShotDetector extends FrameProcessingShotDetector {
 		if (isDetecting) analyzeFrame(frame.getOriginalMat().getNativeObjAddr());
 	}
 
+	@Override
+	public int getThresholdPixelCount() {
+		// The native detector doesn't report its threshold pixels
+		return -1;
+	}
+
 	@Override
 	public void setFrameSize(int width, int height) {
 		// TODO: Should this be a noop for native shot detection?
@@ -0,0 +1,601 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.imgproc.Moments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CameraView;
+import com.shootoff.camera.Frame;
+import com.shootoff.camera.StageLatencies;
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.config.Configuration;
+
+/**
+ * A shot detector that implements the same algorithm as
+ * {@link JavaShotDetector}, but does the per-pixel work with bulk OpenCV
+ * operations instead of Java loops. The background model is maintained with
+ * <code>accumulateWeighted</code>, candidate pixels are found with
+ * <code>threshold</code>/<code>inRange</code> masks, and candidate regions are
+ * extracted with <code>findContours</code> and measured with moments. Regions
+ * are then accepted or rejected using the same shape rules as
+ * {@link PixelClusterManager} and colored by {@link PixelCluster#getColor}.
+ *
+ * This lets OpenCV's native, vectorized code do the heavy lifting, which is
+ * significantly faster than interpreted per-pixel code on low end machines.
+ */
+public final class OpenCVShotDetector extends FrameProcessingShotDetector {
+	private static final Logger logger = LoggerFactory.getLogger(OpenCVShotDetector.class);
+
+	// These assume BGR format
+	private static final Scalar BLUE_PIXEL = new Scalar(255, 0, 0);
+	private static final Scalar RED_PIXEL = new Scalar(0, 0, 255);
+
+	// Counts the 8-connected neighbors of each pixel in a 0/1 mask
+	private static final Mat NEIGHBOR_KERNEL;
+
+	static {
+		NEIGHBOR_KERNEL = new Mat(3, 3, CvType.CV_32F, new Scalar(1));
+		NEIGHBOR_KERNEL.put(1, 1, 0);
+	}
+
+	private final CameraManager cameraManager;
+	private final StageLatencies stageLatencies;
+
+	private boolean filtersInitialized = false;
+	private boolean backgroundInitialized = false;
+	private int initialFrameCount = -1;
+	private int movingAveragePeriod = JavaShotDetector.INIT_FRAME_COUNT;
+
+	private int avgThresholdPixels = -1;
+
+	// Read by metrics from other threads
+	private volatile int lastThresholdPixelCount = 0;
+	private int avgBrightPixels = -1;
+	private int dynamicallyThresholded = 0;
+	private boolean shouldShowBrightnessWarningBool = false;
+
+	private int MOTION_WARNING_AVG_THRESHOLD;
+	private int MOTION_WARNING_THRESHOLD_PIXELS;
+	private int MAXIMUM_THRESHOLD_PIXELS_FOR_MOTION_AVG;
+	private int BRIGHTNESS_WARNING_AVG_THRESHOLD;
+	private int MAXIMUM_THRESHOLD_PIXELS_FOR_AVG;
+	private int MINIMUM_SHOT_DIMENSION;
+
+	// Working images, reused for every frame and released on close
+	private final Mat frameHSV = new Mat();
+	private final List<Mat> hsvChannels = new ArrayList<>(3);
+	private final Mat hue = new Mat();
+	private final Mat saturation = new Mat();
+	private final Mat value = new Mat();
+	private final Mat lum = new Mat();
+	private final Mat lumAverage = new Mat();
+	private final Mat colorDistance = new Mat();
+	private final Mat colorDistanceAverage = new Mat();
+	private final Mat hueFromRed = new Mat();
+	private final Mat hueFromGreen = new Mat();
+	private final Mat greenHue = new Mat();
+	private final Mat saturationValue = new Mat();
+	private final Mat increase = new Mat();
+	private final Mat difference = new Mat();
+	private final Mat floatMask = new Mat();
+	private final Mat increaseMask = new Mat();
+	private final Mat staticMask = new Mat();
+	private final Mat thresholdMask = new Mat();
+	private final Mat brightMask = new Mat();
+	private final Mat notBrightMask = new Mat();
+	private final Mat contourMask = new Mat();
+	private final Mat unitMask = new Mat();
+	private final Mat neighbors = new Mat();
+	private final Mat regionMask = new Mat();
+	private final Mat regionNeighbors = new Mat();
+	private final Mat hierarchy = new Mat();
+	private final List<MatOfPoint> contours = new ArrayList<>();
+
+	// The user's detection mask rendered as a 0/255 image, rebuilt only when
+	// the compiled mask changes
+	private final Mat detectionMaskImage = new Mat();
+	private RowSpans detectionMaskSpans = null;
+
+	private boolean closed = false;
+
+	public static boolean isSystemSupported() {
+		final Configuration config = Configuration.getConfig();
+		return config != null && config.useOpenCVShotDetector();
+	}
+
+	public OpenCVShotDetector(final CameraManager cameraManager, final CameraView cameraView) {
+		super(cameraManager, cameraView);
+
+		this.cameraManager = cameraManager;
+		stageLatencies = cameraManager.getStageLatencies();
+
+		setFrameSize(cameraManager.getFeedWidth(), cameraManager.getFeedHeight());
+	}
+
+	@Override
+	public synchronized void setFrameSize(final int width, final int height) {
+		updateWarningThresholds(width * height);
+		detectionMaskSpans = null;
+		MINIMUM_SHOT_DIMENSION = (int) ((double) width * (double) height * .000025);
+
+		if (closed) return;
+
+		greenHue.create(height, width, CvType.CV_32F);
+		greenHue.setTo(new Scalar(60));
+
+		// Restart the background model at the new resolution
+		backgroundInitialized = false;
+	}
+
+	/**
+	 * Scale the motion and brightness warning thresholds to the number of
+	 * pixels that are watched: the whole frame or only what the detection
+	 * mask leaves of it.
+	 */
+	private void updateWarningThresholds(final int watchedPixels) {
+		final double frameSize = watchedPixels;
+
+		MOTION_WARNING_AVG_THRESHOLD = (int) (frameSize * .000395);
+		MOTION_WARNING_THRESHOLD_PIXELS = (int) (frameSize * 0.00195);
+		MAXIMUM_THRESHOLD_PIXELS_FOR_MOTION_AVG = (int) (frameSize * 0.00195);
+		BRIGHTNESS_WARNING_AVG_THRESHOLD = (int) (frameSize * .000325);
+		MAXIMUM_THRESHOLD_PIXELS_FOR_AVG = (int) (frameSize * .000976);
+	}
+
+	@Override
+	public int getThresholdPixelCount() {
+		return lastThresholdPixelCount;
+	}
+
+	public int getMinimumShotDimension() {
+		return cameraManager.getMinimumShotDimension().isPresent() ? cameraManager.getMinimumShotDimension().get()
+				: MINIMUM_SHOT_DIMENSION;
+	}
+
+	/**
+	 * Frame is modified to have red pixels for brightness and blue for motion
+	 * at the conclusion of shot detection
+	 *
+	 * @param frame
+	 *            a Frame object
+	 * @param detectShots
+	 *            whether or not to detect a shot
+	 */
+	@Override
+	public synchronized void processFrame(final Frame frame, final boolean detectShots) {
+		if (closed) return;
+
+		updateMovingAveragePeriod();
+
+		long stageStart = System.nanoTime();
+		Imgproc.cvtColor(frame.getOriginalMat(), frameHSV, Imgproc.COLOR_BGR2HSV);
+		stageLatencies.recordSince(StageLatencies.Stage.HSV_CONVERSION, stageStart);
+
+		stageStart = System.nanoTime();
+		computeLumAndColorDistance();
+
+		if (!backgroundInitialized || lumAverage.rows() != lum.rows() || lumAverage.cols() != lum.cols()) {
+			lum.copyTo(lumAverage);
+			colorDistance.copyTo(colorDistanceAverage);
+			backgroundInitialized = true;
+			return;
+		}
+
+		final boolean detecting = detectShots && filtersInitialized && cameraManager.isDetecting();
+
+		int thresholdPixelsSize = 0;
+		int brightPixelsSize = 0;
+
+		if (detecting) {
+			findThresholdPixels();
+			thresholdPixelsSize = Core.countNonZero(thresholdMask);
+			brightPixelsSize = Core.countNonZero(brightMask);
+		}
+
+		lastThresholdPixelCount = thresholdPixelsSize;
+
+		// Update the background model only after thresholding against the
+		// previous average
+		final double alpha = 1.0 / movingAveragePeriod;
+		Imgproc.accumulateWeighted(lum, lumAverage, alpha);
+		Imgproc.accumulateWeighted(colorDistance, colorDistanceAverage, alpha);
+		stageLatencies.recordSince(StageLatencies.Stage.THRESHOLD, stageStart);
+
+		if (!filtersInitialized) filtersInitialized = checkIfInitialized();
+
+		if (!detecting) return;
+
+		updateAvgThresholdPixels(thresholdPixelsSize);
+		updateAvgBrightPixels(brightPixelsSize);
+
+		if (shouldShowBrightnessWarning()) {
+			cameraManager.showBrightnessWarning();
+		}
+
+		if (thresholdPixelsSize >= getMinimumShotDimension() && !isExcessiveMotion(thresholdPixelsSize)) {
+			detectShots(new Frame(frameHSV, frame.getTimestamp()));
+		} else if (isExcessiveMotion(thresholdPixelsSize)) {
+			if (shouldShowMotionWarning()) cameraManager.showMotionWarning();
+
+			frame.getOriginalMat().setTo(BLUE_PIXEL, thresholdMask);
+		}
+
+		if (shouldShowBrightnessWarningBool && brightPixelsSize > 0) {
+			// Make the feed pixels red so the user can easily see what the
+			// problem pixels are
+			frame.getOriginalMat().setTo(RED_PIXEL, brightMask);
+		}
+	}
+
+	/**
+	 * Compute the luminosity, (255 - S) * V, and the distance from red of
+	 * every pixel in frameHSV as 32-bit float images.
+	 */
+	private void computeLumAndColorDistance() {
+		hsvChannels.clear();
+		Core.split(frameHSV, hsvChannels);
+
+		hsvChannels.get(0).convertTo(hue, CvType.CV_32F);
+		hsvChannels.get(1).convertTo(saturation, CvType.CV_32F);
+		hsvChannels.get(2).convertTo(value, CvType.CV_32F);
+
+		for (final Mat channel : hsvChannels)
+			channel.release();
+
+		// (255 - S) * V
+		saturation.convertTo(lum, CvType.CV_32F, -1, 255);
+		Core.multiply(lum, value, lum);
+
+		// min(H, 180 - H) * S * V - |60 - H| * S * V
+		Core.multiply(saturation, value, saturationValue);
+		hue.convertTo(hueFromRed, CvType.CV_32F, -1, 180);
+		Core.min(hue, hueFromRed, hueFromRed);
+
+		if (greenHue.rows() != hue.rows() || greenHue.cols() != hue.cols()) {
+			greenHue.create(hue.rows(), hue.cols(), CvType.CV_32F);
+			greenHue.setTo(new Scalar(60));
+		}
+
+		Core.absdiff(hue, greenHue, hueFromGreen);
+		Core.subtract(hueFromRed, hueFromGreen, colorDistance);
+		Core.multiply(colorDistance, saturationValue, colorDistance);
+	}
+
+	/**
+	 * Fill thresholdMask with the pixels that brightened enough to be part of
+	 * a shot and brightMask with the pixels that are too bright to use.
+	 */
+	private void findThresholdPixels() {
+		// Pixels whose average is already close to the maximum are useless
+		// for detection
+		Core.inRange(lumAverage, new Scalar(JavaShotDetector.EXCESSIVE_BRIGHTNESS_THRESHOLD + 1),
+				new Scalar(Double.MAX_VALUE), brightMask);
+		Core.bitwise_not(brightMask, notBrightMask);
+
+		// increase = lum - avg >= MINIMUM_BRIGHTNESS_INCREASE
+		Core.subtract(lum, lumAverage, increase);
+		Imgproc.threshold(increase, floatMask, JavaShotDetector.MINIMUM_BRIGHTNESS_INCREASE - .5, 255,
+				Imgproc.THRESH_BINARY);
+		floatMask.convertTo(increaseMask, CvType.CV_8U);
+		Core.bitwise_and(increaseMask, notBrightMask, increaseMask);
+
+		// The per-pixel threshold from JavaShotDetector.pixelAboveThreshold
+		// is linear in the average:
+		// threshold = (MAX - avg) / 4
+		// dynamic = threshold + (MAX - threshold) * k
+		// thus increase >= dynamic can be computed as one weighted sum.
+		final double k = (double) avgThresholdPixels / (double) MAXIMUM_THRESHOLD_PIXELS_FOR_AVG;
+		final double max = JavaShotDetector.MAXIMUM_LUM_VALUE;
+
+		Core.addWeighted(lum, 1, lumAverage, -(1 - ((1 - k) / 4)), -max * (((1 - k) / 4) + k), difference);
+		Imgproc.threshold(difference, floatMask, -.5, 255, Imgproc.THRESH_BINARY);
+		floatMask.convertTo(thresholdMask, CvType.CV_8U);
+		Core.bitwise_and(thresholdMask, increaseMask, thresholdMask);
+
+		// Count the pixels only rejected because of the dynamic part of the
+		// threshold so that they are kept in the average
+		Core.addWeighted(lum, 1, lumAverage, -.75, -max / 4, difference);
+		Imgproc.threshold(difference, floatMask, 0, 255, Imgproc.THRESH_BINARY);
+		floatMask.convertTo(staticMask, CvType.CV_8U);
+		Core.bitwise_and(staticMask, increaseMask, staticMask);
+		dynamicallyThresholded = Math.max(Core.countNonZero(staticMask) - Core.countNonZero(thresholdMask), 0);
+
+		maskDisabledSectors(thresholdMask);
+		maskDisabledSectors(brightMask);
+
+		applyDetectionMask(thresholdMask);
+		applyDetectionMask(brightMask);
+	}
+
+	/**
+	 * Clear the pixels of <code>mask</code> that are outside of the user's
+	 * detection mask. The bulk operations here run over whole images, thus
+	 * unlike JavaShotDetector this detector still computes masked pixels
+	 * before discarding them.
+	 */
+	private void applyDetectionMask(final Mat mask) {
+		final Optional<RowSpans> spans = cameraManager.getDetectionSpans();
+
+		if (!spans.isPresent() || spans.get().getWidth() != mask.cols() || spans.get().getHeight() != mask.rows()) {
+			if (detectionMaskSpans != null) {
+				detectionMaskSpans = null;
+				updateWarningThresholds(mask.rows() * mask.cols());
+			}
+
+			return;
+		}
+
+		if (spans.get() != detectionMaskSpans) {
+			final RowSpans detectionSpans = spans.get();
+			final int width = detectionSpans.getWidth();
+			final byte[] maskBytes = new byte[width * detectionSpans.getHeight()];
+
+			for (int y = detectionSpans.getMinRow(); y < detectionSpans.getMaxRow(); y++) {
+				for (int span = detectionSpans.getFirstSpan(y); span < detectionSpans.getEndSpan(y); span++) {
+					Arrays.fill(maskBytes, y * width + detectionSpans.getSpanStart(span),
+							y * width + detectionSpans.getSpanEnd(span), (byte) 255);
+				}
+			}
+
+			detectionMaskImage.create(detectionSpans.getHeight(), width, CvType.CV_8U);
+			detectionMaskImage.put(0, 0, maskBytes);
+			detectionMaskSpans = detectionSpans;
+
+			updateWarningThresholds(detectionSpans.getPixelCount());
+		}
+
+		Core.bitwise_and(mask, detectionMaskImage, mask);
+	}
+
+	private void maskDisabledSectors(final Mat mask) {
+		final int subWidth = mask.cols() / JavaShotDetector.SECTOR_COLUMNS;
+		final int subHeight = mask.rows() / JavaShotDetector.SECTOR_ROWS;
+
+		for (int sectorY = 0; sectorY < JavaShotDetector.SECTOR_ROWS; sectorY++) {
+			for (int sectorX = 0; sectorX < JavaShotDetector.SECTOR_COLUMNS; sectorX++) {
+				if (cameraManager.isSectorOn(sectorX, sectorY)) continue;
+
+				// The last sector in each direction absorbs the leftover
+				// pixels, like TileScheduler's layout
+				final int endY = sectorY == JavaShotDetector.SECTOR_ROWS - 1 ? mask.rows() : subHeight * (sectorY + 1);
+				final int endX = sectorX == JavaShotDetector.SECTOR_COLUMNS - 1 ? mask.cols()
+						: subWidth * (sectorX + 1);
+				final Mat sector = mask.submat(subHeight * sectorY, endY, subWidth * sectorX, endX);
+				sector.setTo(Scalar.all(0));
+				sector.release();
+			}
+		}
+	}
+
+	private void detectShots(final Frame workingFrame) {
+		// Clustering is timed without the shots it hands to addShot, which
+		// are timed as shot processing
+		long clusteringStart = System.nanoTime();
+		long clusteringNanos = 0;
+
+		final int minimumShotDimension = getMinimumShotDimension();
+
+		// Per-pixel connectedness, zeroed outside of the candidates
+		thresholdMask.convertTo(unitMask, CvType.CV_32F, 1.0 / 255.0);
+		Imgproc.filter2D(unitMask, neighbors, CvType.CV_32F, NEIGHBOR_KERNEL, new Point(-1, -1), 0,
+				Imgproc.BORDER_CONSTANT);
+		Core.multiply(neighbors, unitMask, neighbors);
+
+		// findContours modifies its input
+		thresholdMask.copyTo(contourMask);
+
+		for (final MatOfPoint contour : contours)
+			contour.release();
+		contours.clear();
+
+		Imgproc.findContours(contourMask, contours, hierarchy, Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+
+		if (logger.isTraceEnabled()) logger.trace("contours {}", contours.size());
+
+		final Mat workingMat = workingFrame.getOriginalMat();
+
+		for (int region = 0; region < contours.size(); region++) {
+			final Rect bounds = Imgproc.boundingRect(contours.get(region));
+
+			// The region plus a 1 pixel border for the color sampling
+			final int windowX = Math.max(bounds.x - 1, 0);
+			final int windowY = Math.max(bounds.y - 1, 0);
+			final Rect window = new Rect(windowX, windowY,
+					Math.min(bounds.x + bounds.width + 1, workingMat.cols()) - windowX,
+					Math.min(bounds.y + bounds.height + 1, workingMat.rows()) - windowY);
+
+			measureRegion(region, window);
+
+			final int clustersize = Core.countNonZero(regionMask);
+			final double connectednessSum = Core.sumElems(regionNeighbors).val[0];
+
+			if (!PixelClusterManager.isShotShaped(region, clustersize, (long) connectednessSum, bounds.x, bounds.y,
+					bounds.x + bounds.width - 1, bounds.y + bounds.height - 1, minimumShotDimension)) {
+				continue;
+			}
+
+			// Connectedness weighted center, like PixelClusterManager
+			final Moments moments = Imgproc.moments(regionNeighbors, false);
+			final double centerX = window.x + (moments.m10 / moments.m00);
+			final double centerY = window.y + (moments.m01 / moments.m00);
+
+			clusteringNanos += System.nanoTime() - clusteringStart;
+			addShot(workingFrame, window, centerX, centerY);
+			clusteringStart = System.nanoTime();
+		}
+
+		stageLatencies.record(StageLatencies.Stage.CLUSTERING, clusteringNanos + System.nanoTime() - clusteringStart);
+	}
+
+	/**
+	 * Fill regionMask and regionNeighbors, both the size of
+	 * <code>window</code>, with only the candidate pixels of the contour at
+	 * <code>region</code>. Other blobs that fall inside the contour's
+	 * bounding rectangle are left out so the region is measured the same way
+	 * {@link PixelClusterManager} measures a cluster.
+	 */
+	private void measureRegion(final int region, final Rect window) {
+		regionMask.create(window.height, window.width, CvType.CV_8U);
+		regionMask.setTo(Scalar.all(0));
+		Imgproc.drawContours(regionMask, contours, region, Scalar.all(255), -1, Core.LINE_8, hierarchy, 0,
+				new Point(-window.x, -window.y));
+
+		// The filled contour also covers the holes inside the region
+		final Mat thresholdWindow = thresholdMask.submat(window);
+		Core.bitwise_and(regionMask, thresholdWindow, regionMask);
+		thresholdWindow.release();
+
+		regionNeighbors.create(window.height, window.width, CvType.CV_32F);
+		regionNeighbors.setTo(Scalar.all(0));
+		final Mat neighborsWindow = neighbors.submat(window);
+		neighborsWindow.copyTo(regionNeighbors, regionMask);
+		neighborsWindow.release();
+	}
+
+	/**
+	 * Build a PixelCluster for the region measured into regionMask and
+	 * submit it as a shot if it has a color. The cluster is built in the
+	 * coordinates of <code>window</code> so that only that window's pixels
+	 * and color averages need to be copied out of OpenCV.
+	 */
+	private void addShot(final Frame workingFrame, final Rect window, final double centerX, final double centerY) {
+		final Mat hsv = workingFrame.getOriginalMat();
+		final int windowWidth = window.width;
+		final int windowHeight = window.height;
+
+		final byte[] windowMask = new byte[windowWidth * windowHeight];
+		final float[] windowNeighbors = new float[windowWidth * windowHeight];
+		final float[] windowColorAverages = new float[windowWidth * windowHeight];
+
+		final Mat colorWindow = colorDistanceAverage.submat(window);
+		regionMask.get(0, 0, windowMask);
+		regionNeighbors.get(0, 0, windowNeighbors);
+		colorWindow.get(0, 0, windowColorAverages);
+		colorWindow.release();
+
+		final int[] colorDistanceFromRed = new int[windowColorAverages.length];
+		final PixelCluster cluster = new PixelCluster();
+
+		for (int i = 0; i < windowColorAverages.length; i++) {
+			colorDistanceFromRed[i] = (int) windowColorAverages[i];
+
+			if (windowMask[i] != 0) {
+				final Pixel pixel = new Pixel(i % windowWidth, i / windowWidth);
+				pixel.setConnectedness((int) windowNeighbors[i]);
+				cluster.add(pixel);
+			}
+		}
+
+		final Mat hsvWindow = hsv.submat(window);
+		final Optional<ShotColor> color = cluster.getColor(hsvWindow, colorDistanceFromRed, windowWidth);
+		hsvWindow.release();
+
+		if (!color.isPresent()) {
+			if (logger.isDebugEnabled()) logger.debug("Processing Shot: Shot Rejected By Lack Of Color Density");
+			return;
+		}
+
+		super.addShot(color.get(), centerX, centerY, workingFrame.getTimestamp(), true);
+	}
+
+	private void updateMovingAveragePeriod() {
+		if (cameraManager.getFrameCount() % 5 == 0) movingAveragePeriod = Math
+				.max((int) (cameraManager.getFPS() / 5.0), JavaShotDetector.INIT_FRAME_COUNT);
+	}
+
+	private boolean checkIfInitialized() {
+		if (initialFrameCount == -1) initialFrameCount = cameraManager.getFrameCount();
+
+		return cameraManager.getFrameCount() - initialFrameCount > JavaShotDetector.INIT_FRAME_COUNT;
+	}
+
+	private boolean isExcessiveMotion(final int thresholdPixels) {
+		return thresholdPixels > MOTION_WARNING_THRESHOLD_PIXELS || avgThresholdPixels > MOTION_WARNING_AVG_THRESHOLD;
+	}
+
+	private boolean shouldShowMotionWarning() {
+		return avgThresholdPixels > MOTION_WARNING_AVG_THRESHOLD
+				&& cameraManager.getFrameCount() - initialFrameCount > JavaShotDetector.MOTION_WARNING_FRAMECOUNT;
+	}
+
+	private boolean shouldShowBrightnessWarning() {
+		shouldShowBrightnessWarningBool = avgBrightPixels >= BRIGHTNESS_WARNING_AVG_THRESHOLD
+				&& cameraManager.getFrameCount() - initialFrameCount > JavaShotDetector.BRIGHTNESS_WARNING_FRAMECOUNT;
+
+		return shouldShowBrightnessWarningBool;
+	}
+
+	private void updateAvgThresholdPixels(final int thresholdPixels) {
+		if (avgThresholdPixels == -1)
+			avgThresholdPixels = Math.min(thresholdPixels + dynamicallyThresholded, MAXIMUM_THRESHOLD_PIXELS_FOR_AVG);
+		else {
+			avgThresholdPixels = (((movingAveragePeriod - 1) * avgThresholdPixels)
+					+ Math.min(thresholdPixels + dynamicallyThresholded, MAXIMUM_THRESHOLD_PIXELS_FOR_MOTION_AVG))
+					/ movingAveragePeriod;
+		}
+	}
+
+	private void updateAvgBrightPixels(final int brightPixels) {
+		if (avgBrightPixels == -1)
+			avgBrightPixels = Math.min(brightPixels, MAXIMUM_THRESHOLD_PIXELS_FOR_AVG);
+		else
+			avgBrightPixels = (((movingAveragePeriod - 1) * avgBrightPixels)
+					+ Math.min(brightPixels, MAXIMUM_THRESHOLD_PIXELS_FOR_AVG)) / movingAveragePeriod;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) return;
+
+		closed = true;
+
+		for (final MatOfPoint contour : contours)
+			contour.release();
+		contours.clear();
+
+		final Mat[] mats = { frameHSV, hue, saturation, value, lum, lumAverage, colorDistance, colorDistanceAverage,
+				hueFromRed, hueFromGreen, greenHue, saturationValue, increase, difference, floatMask, increaseMask,
+				staticMask, thresholdMask, brightMask, notBrightMask, contourMask, unitMask, neighbors, regionMask,
+				regionNeighbors, hierarchy, detectionMaskImage };
+
+		for (final Mat mat : mats)
+			mat.release();
+	}
+
+	@Override
+	protected boolean handlesBounds() {
+		return true;
+	}
+}
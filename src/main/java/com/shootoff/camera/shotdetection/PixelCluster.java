@@ -19,10 +19,7 @@
 package com.shootoff.camera.shotdetection;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 
 import org.opencv.core.Mat;
@@ -52,14 +49,45 @@ public class PixelCluster extends HashSet<Pixel> {
 	// Usually the pixels in the shot are max brightness which are biased green
 	// So we look around the shot instead
 	@SuppressWarnings("unused")
-	public int getColorDifference(final Mat workingFrame, final int[][] colorDistanceFromRed) {
+	public int getColorDifference(final Mat workingFrame, final int[] colorDistanceFromRed,
+			final int colorDistanceStride) {
+		if (isEmpty()) return 0;
 
 		Mat traceMat = null;
 		if (logger.isTraceEnabled() && debugColorsToFile) {
 			traceMat = Mat.zeros(workingFrame.size(), workingFrame.type());
 		}
 
-		final Map<Pixel, byte[]> visited = new HashMap<>();
+		// Read the cluster's bounding box plus the one pixel border around it
+		// out of the frame in a single call instead of one call per neighbor
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+
+		for (final Pixel pixel : this) {
+			if (pixel.x < minX) minX = pixel.x;
+			if (pixel.x > maxX) maxX = pixel.x;
+			if (pixel.y < minY) minY = pixel.y;
+			if (pixel.y > maxY) maxY = pixel.y;
+		}
+
+		final int boxX = Math.max(minX - 1, 0);
+		final int boxY = Math.max(minY - 1, 0);
+		final int boxEndX = Math.min(maxX + 2, workingFrame.cols());
+		final int boxEndY = Math.min(maxY + 2, workingFrame.rows());
+		if (boxX >= boxEndX || boxY >= boxEndY) return 0;
+
+		final int boxWidth = boxEndX - boxX;
+		final int channels = workingFrame.channels();
+		final byte[] box = new byte[boxWidth * (boxEndY - boxY) * channels];
+		final Mat boxMat = workingFrame.submat(boxY, boxEndY, boxX, boxEndX);
+		boxMat.get(0, 0, box);
+		boxMat.release();
+
+		// Indexed like box, without the channels
+		final boolean[] visited = new boolean[boxWidth * (boxEndY - boxY)];
+		int pixelCount = 0;
 		int avgSaturation = 0;
 		int avgLum = 0;
 
@@ -74,27 +102,24 @@ public class PixelCluster extends HashSet<Pixel> {
 
 						if (rx < 0 || ry < 0 || rx >= workingFrame.cols() || ry >= workingFrame.rows()) continue;
 
-						final Pixel nearPoint = new Pixel(rx, ry);
+						final int boxIndex = (ry - boxY) * boxWidth + (rx - boxX);
 
 						// && !this.contains(nearPoint)
-						if (!visited.containsKey(nearPoint)) {
-							final byte[] np = { 0, 0, 0 };
-							workingFrame.get(ry, rx, np);
-
-							final int npSaturation = np[1] & 0xFF;
+						if (!visited[boxIndex]) {
+							final int npSaturation = box[boxIndex * channels + 1] & 0xFF;
 							avgSaturation += npSaturation;
 
-							final int npLum = np[2] & 0xFF;
+							final int npLum = box[boxIndex * channels + 2] & 0xFF;
 							avgLum += npLum;
 
-							visited.put(nearPoint, np);
+							visited[boxIndex] = true;
+							pixelCount++;
 						}
 					}
 				}
 			}
 		}
 
-		final int pixelCount = visited.size();
 		if (pixelCount == 0) return 0;
 
 		avgSaturation /= pixelCount;
@@ -107,22 +132,21 @@ public class PixelCluster extends HashSet<Pixel> {
 		int avgColorDistance = 0;
 		int tempColorDistance = 0;
 
-		for (final Entry<Pixel, byte[]> pixelEntry : visited.entrySet()) {
+		for (int boxIndex = 0; boxIndex < visited.length; boxIndex++) {
+			if (!visited[boxIndex]) continue;
 
-			final byte[] np = pixelEntry.getValue();
+			final int npColor = box[boxIndex * channels] & 0xFF;
+			final int npSaturation = box[boxIndex * channels + 1] & 0xFF;
+			final int npLum = box[boxIndex * channels + 2] & 0xFF;
 
 			if (logger.isTraceEnabled() && debugColorsToFile) {
 
 				System.out.println(String.format("x %d y %d pc %d - %d %d %d - %d - %d", (int) centerPixelX,
-						(int) centerPixelY, pixelCount, np[0] & 0xFF, np[1], np[2] & 0xFF, avgSaturation, avgLum));
+						(int) centerPixelY, pixelCount, npColor, box[boxIndex * channels + 1], npLum,
+						avgSaturation, avgLum));
 			}
 
-			final int npSaturation = np[1] & 0xFF;
-			final int npLum = np[2] & 0xFF;
-
 			if (npSaturation > avgSaturation && npLum < avgLum) {
-				final int npColor = np[0] & 0xFF;
-
 				final int thisDFromRed = Math.min(npColor, Math.abs(180 - npColor)) * npLum * npSaturation;
 				final int thisDFromGreen = Math.abs(60 - npColor) * npLum * npSaturation;
 
@@ -131,25 +155,26 @@ public class PixelCluster extends HashSet<Pixel> {
 
 				final int currentCol = thisDFromRed - thisDFromGreen;
 
-				final Pixel pixel = pixelEntry.getKey();
+				final int x = boxX + boxIndex % boxWidth;
+				final int y = boxY + boxIndex / boxWidth;
 
 				// logger.trace("red {} green {} diff {} CDFR {}", thisDFromRed,
 				// thisDFromGreen, currentCol,
 				// colorDistanceFromRed[pixel.x][pixel.y]);
 
 				colorDistance += currentCol
-						- (int) (CURRENT_COLOR_BIAS_MULTIPLIER * colorDistanceFromRed[pixel.x][pixel.y]);
+						- (int) (CURRENT_COLOR_BIAS_MULTIPLIER * colorDistanceFromRed[y * colorDistanceStride + x]);
 
 				if (logger.isTraceEnabled() && debugColorsToFile) {
-					traceMat.put(pixelEntry.getKey().y, pixelEntry.getKey().x,
-							workingFrame.get(pixelEntry.getKey().y, pixelEntry.getKey().x));
+					traceMat.put(y, x, new byte[] { box[boxIndex * channels], box[boxIndex * channels + 1],
+							box[boxIndex * channels + 2] });
 
 					// logger.trace("pixel cD {} cC {} cD {}", colorDistance,
 					// currentCol, CURRENT_COLOR_BIAS_MULTIPLIER *
 					// colorDistanceFromRed[pixel.x][pixel.y]);
 
 					tempColorDistance += currentCol;
-					avgColorDistance += colorDistanceFromRed[pixel.x][pixel.y];
+					avgColorDistance += colorDistanceFromRed[y * colorDistanceStride + x];
 				}
 			}
 		}
@@ -173,8 +198,20 @@ public class PixelCluster extends HashSet<Pixel> {
 		return colorDistance / pixelCount;
 	}
 
-	public Optional<ShotColor> getColor(final Mat workingFrame, final int[][] colorDistanceFromRed) {
-		final int colorDist = getColorDifference(workingFrame, colorDistanceFromRed);
+	/**
+	 * Determine the color of the laser that created this cluster.
+	 * 
+	 * @param workingFrame
+	 *            the HSV frame the cluster was found in
+	 * @param colorDistanceFromRed
+	 *            the shot detector's flat, row-major color filter state
+	 * @param colorDistanceStride
+	 *            the width of one row in <code>colorDistanceFromRed</code>
+	 * @return the detected shot color
+	 */
+	public Optional<ShotColor> getColor(final Mat workingFrame, final int[] colorDistanceFromRed,
+			final int colorDistanceStride) {
+		final int colorDist = getColorDifference(workingFrame, colorDistanceFromRed, colorDistanceStride);
 
 		// Sometimes it's better to guess than to return nothing
 		if (colorDist < 1000)
@@ -18,13 +18,13 @@
 
 package com.shootoff.camera.shotdetection;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.List;
 import java.util.Set;
-import java.util.Stack;
 
+import org.opencv.core.Rect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,6 +52,25 @@ public class PixelClusterManager {
 	private final static int EXCESSIVE_PIXEL_CUTOFF = 300;
 	private final static int EXCESSIVE_PIXEL_REGION_COUNT = 1;
 
+	// Reusable labeling state. pixelLabels is a bitmap of the whole frame that
+	// holds (candidate index + 1) for every candidate pixel and 0 everywhere
+	// else. Only the entries set for a frame are cleared afterwards, thus the
+	// cost of clustering is linear in the number of candidates rather than
+	// in the size of the frame. The remaining arrays are indexed by candidate
+	// and only grow when a frame has more candidates than any frame before it.
+	private int[] pixelLabels;
+	private int[] parents = new int[0];
+	private int[] connectedness = new int[0];
+	private int[] regionSizes = new int[0];
+	private int[] regionMinX = new int[0];
+	private int[] regionMinY = new int[0];
+	private int[] regionMaxX = new int[0];
+	private int[] regionMaxY = new int[0];
+	private long[] regionSumX = new long[0];
+	private long[] regionSumY = new long[0];
+	private long[] regionConnectedness = new long[0];
+	private PixelCluster[] regionClusters = new PixelCluster[0];
+
 	protected PixelClusterManager(int feedWidth, int feedHeight) {
 		this.feedWidth = feedWidth;
 		this.feedHeight = feedHeight;
@@ -60,147 +79,335 @@ public class PixelClusterManager {
 	public void updateFrameSize(int feedWidth, int feedHeight) {
 		this.feedWidth = feedWidth;
 		this.feedHeight = feedHeight;
+
+		if (pixelLabels != null && pixelLabels.length < feedWidth * feedHeight) pixelLabels = null;
+	}
+
+	private void ensureCapacity(int candidates) {
+		if (parents.length >= candidates) return;
+
+		final int capacity = Math.max(candidates, parents.length + (parents.length >> 1));
+
+		parents = new int[capacity];
+		connectedness = new int[capacity];
+		regionSizes = new int[capacity];
+		regionMinX = new int[capacity];
+		regionMinY = new int[capacity];
+		regionMaxX = new int[capacity];
+		regionMaxY = new int[capacity];
+		regionSumX = new long[capacity];
+		regionSumY = new long[capacity];
+		regionConnectedness = new long[capacity];
+		regionClusters = new PixelCluster[capacity];
 	}
 
-	private int preprocessClusterablePixels(Set<Pixel> clusterablePixels, Map<Pixel, Integer> pixelMapping) {
-		final Stack<Pixel> mustExamine = new Stack<>();
-		int numberOfRegions = -1;
+	private int findRoot(int candidate) {
+		int root = candidate;
+		while (parents[root] != root)
+			root = parents[root];
 
-		for (final Pixel pixel : clusterablePixels) {
-			if (!pixelMapping.containsKey(pixel)) {
-				numberOfRegions++;
-				mustExamine.add(pixel);
-				pixelMapping.put(pixel, numberOfRegions);
-			}
+		// Path compression
+		while (parents[candidate] != root) {
+			final int next = parents[candidate];
+			parents[candidate] = root;
+			candidate = next;
+		}
+
+		return root;
+	}
+
+	private void union(int a, int b) {
+		final int rootA = findRoot(a);
+		final int rootB = findRoot(b);
+
+		if (rootA == rootB) return;
 
-			if (numberOfRegions > EXCESSIVE_PIXEL_REGION_COUNT && clusterablePixels.size() > EXCESSIVE_PIXEL_CUTOFF)
-				break;
+		// Keep the lowest candidate index as the root so regions are numbered
+		// in the order their first pixel was found
+		if (rootA < rootB)
+			parents[rootB] = rootA;
+		else
+			parents[rootA] = rootB;
+	}
+
+	/**
+	 * Label the 8-connected regions formed by the candidate pixels and
+	 * compute each pixel's connectedness (the number of neighboring
+	 * candidates). After this call parents[i] is the root candidate of the
+	 * region candidate i belongs to.
+	 */
+	private void labelRegions(ThresholdPixelBuffer thresholdPixels) {
+		final int size = thresholdPixels.size();
+
+		if (pixelLabels == null) pixelLabels = new int[feedWidth * feedHeight];
+
+		for (int i = 0; i < size; i++) {
+			pixelLabels[thresholdPixels.getY(i) * feedWidth + thresholdPixels.getX(i)] = i + 1;
+			parents[i] = i;
+		}
+
+		for (int i = 0; i < size; i++) {
+			final int x = thresholdPixels.getX(i);
+			final int y = thresholdPixels.getY(i);
 
-			while (!mustExamine.isEmpty()) {
-				final Pixel thisPoint = mustExamine.pop();
+			int pixelConnectedness = 0;
 
-				int connectedness = 0;
+			for (int h = -1; h <= 1; h++) {
+				final int ry = y + h;
+				if (ry < 0 || ry >= feedHeight) continue;
 
-				for (int h = -1; h <= 1; h++) {
-					for (int w = -1; w <= 1; w++) {
-						if (h == 0 && w == 0) continue;
+				final int rowOffset = ry * feedWidth;
 
-						final int rx = thisPoint.x + w;
-						final int ry = thisPoint.y + h;
+				for (int w = -1; w <= 1; w++) {
+					if (h == 0 && w == 0) continue;
 
-						if (rx < 0 || ry < 0 || rx >= feedWidth || ry >= feedHeight) continue;
+					final int rx = x + w;
+					if (rx < 0 || rx >= feedWidth) continue;
 
-						final Pixel nearPoint = new Pixel(rx, ry);
-						if (clusterablePixels.contains(nearPoint)) {
-							if (!pixelMapping.containsKey(nearPoint)) {
-								mustExamine.push(nearPoint);
-								pixelMapping.put(nearPoint, numberOfRegions);
-							}
+					final int neighbor = pixelLabels[rowOffset + rx] - 1;
 
-							connectedness++;
-						}
+					if (neighbor >= 0) {
+						pixelConnectedness++;
+						if (neighbor < i) union(i, neighbor);
 					}
 				}
-
-				thisPoint.setConnectedness(connectedness);
 			}
+
+			connectedness[i] = pixelConnectedness;
 		}
 
-		return numberOfRegions;
+		// Only clear what we set to keep the bitmap ready for the next frame
+		for (int i = 0; i < size; i++) {
+			pixelLabels[thresholdPixels.getY(i) * feedWidth + thresholdPixels.getX(i)] = 0;
+		}
 	}
 
-	public Set<PixelCluster> clusterPixels(Set<Pixel> clusterablePixels, int minimumShotDimension) {
-		final Map<Pixel, Integer> pixelMapping = new HashMap<>();
-
-		final int numberOfRegions = preprocessClusterablePixels(clusterablePixels, pixelMapping);
-
+	/**
+	 * Cluster the candidate pixels collected by shot detection and keep the
+	 * clusters that are shaped like a shot. Regions are labeled with a
+	 * union-find over a frame-sized bitmap and each region's bounding box,
+	 * connectedness-weighted center, and size are accumulated in one pass, so
+	 * clustering is linear in the number of candidates. Pixel objects are
+	 * only built for clusters that are accepted.
+	 */
+	public Set<PixelCluster> clusterPixels(ThresholdPixelBuffer thresholdPixels, int minimumShotDimension) {
 		final Set<PixelCluster> clusters = new HashSet<>();
+		final int size = thresholdPixels.size();
 
-		for (int i = 0; i <= numberOfRegions; i++) {
-			final PixelCluster cluster = new PixelCluster();
+		if (size == 0) return clusters;
 
-			double averageX = 0;
-			double averageY = 0;
+		ensureCapacity(size);
+		labelRegions(thresholdPixels);
 
-			int minX = feedWidth;
-			int minY = feedHeight;
-			int maxX = 0, maxY = 0;
+		// Accumulate per region statistics on the root candidate
+		int numberOfRegions = 0;
 
-			double avgconnectedness = 0;
+		for (int i = 0; i < size; i++) {
+			final int root = findRoot(i);
+			final int x = thresholdPixels.getX(i);
+			final int y = thresholdPixels.getY(i);
 
-			for (final Entry<Pixel, Integer> pixelEntry : pixelMapping.entrySet()) {
-				if (pixelEntry.getValue() == i) {
-					final Pixel nextPixel = pixelEntry.getKey();
+			if (root == i) {
+				numberOfRegions++;
+				regionSizes[root] = 0;
+				regionMinX[root] = x;
+				regionMaxX[root] = x;
+				regionMinY[root] = y;
+				regionMaxY[root] = y;
+				regionSumX[root] = 0;
+				regionSumY[root] = 0;
+				regionConnectedness[root] = 0;
+				regionClusters[root] = null;
+			}
 
-					if (nextPixel.x < minX)
-						minX = nextPixel.x;
-					else if (nextPixel.x > maxX) maxX = nextPixel.x;
+			regionSizes[root]++;
 
-					if (nextPixel.y < minY)
-						minY = nextPixel.y;
-					else if (nextPixel.y > maxY) maxY = nextPixel.y;
+			if (x < regionMinX[root]) regionMinX[root] = x;
+			if (x > regionMaxX[root]) regionMaxX[root] = x;
+			if (y < regionMinY[root]) regionMinY[root] = y;
+			if (y > regionMaxY[root]) regionMaxY[root] = y;
 
-					cluster.add(nextPixel);
+			regionSumX[root] += (long) x * connectedness[i];
+			regionSumY[root] += (long) y * connectedness[i];
+			regionConnectedness[root] += connectedness[i];
+		}
 
-					final int connectedness = nextPixel.getConnectedness();
+		// When there is a lot of noise only the first few regions are
+		// considered, otherwise a noisy frame can take a long time to process
+		final int regionLimit = size > EXCESSIVE_PIXEL_CUTOFF ? EXCESSIVE_PIXEL_REGION_COUNT + 1 : numberOfRegions;
+		int region = -1;
+		boolean acceptedCluster = false;
 
-					averageX += nextPixel.x * connectedness;
-					averageY += nextPixel.y * connectedness;
+		for (int i = 0; i < size && region + 1 < regionLimit; i++) {
+			if (parents[i] != i) continue;
 
-					avgconnectedness += connectedness;
-				}
-			}
+			region++;
 
-			final int clustersize = cluster.size();
+			final PixelCluster cluster = checkRegion(region, i, minimumShotDimension);
 
-			if (clustersize < minimumShotDimension) continue;
+			if (cluster != null) {
+				regionClusters[i] = cluster;
+				acceptedCluster = true;
+			}
+		}
 
-			averageX /= avgconnectedness;
-			averageY /= avgconnectedness;
+		if (acceptedCluster) {
+			for (int i = 0; i < size; i++) {
+				final PixelCluster cluster = regionClusters[parents[i]];
+				if (cluster == null) continue;
 
-			avgconnectedness = avgconnectedness / clustersize;
+				final Pixel pixel = thresholdPixels.toPixel(i);
+				pixel.setConnectedness(connectedness[i]);
+				cluster.add(pixel);
+			}
 
-			// We scale up the minimum in a linear scale as the cluster size
-			// increases. This is an approximate density
-			final double scaled_minimum = Math.min(
-					MINIMUM_CONNECTEDNESS + ((clustersize - minimumShotDimension) * MINIMUM_CONNECTEDNESS_FACTOR),
-					MAXIMUM_CONNECTEDNESS_SCALE);
+			for (int i = 0; i < size; i++) {
+				if (regionClusters[i] != null) clusters.add(regionClusters[i]);
+			}
 
-			if (logger.isTraceEnabled()) logger.trace("Cluster {}: size {} connectedness {} scaled_minimum {} - {} {}",
-					i, clustersize, avgconnectedness, scaled_minimum, averageX, averageY);
+			Arrays.fill(regionClusters, 0, size, null);
+		}
 
-			if (avgconnectedness < scaled_minimum) continue;
+		if (logger.isTraceEnabled())
+			logger.trace("---- Detected {} shots from {} regions ------", clusters.size(), numberOfRegions);
 
-			final int shotWidth = (maxX - minX) + 1;
-			final int shotHeight = (maxY - minY) + 1;
-			final double shotRatio = (double) shotWidth / (double) shotHeight;
+		return clusters;
+	}
 
-			if (logger.isTraceEnabled()) logger.trace("Cluster {}: shotRatio {} {} - {} - {} {} {} {}", i, shotWidth,
-					shotHeight, shotRatio, minX, minY, maxX, maxY);
+	/**
+	 * Find the bounding boxes of the regions formed by the candidate pixels
+	 * without applying any of the shot shape filters. This is used to find
+	 * where to look for shots at full resolution when candidates were found
+	 * on a downsampled frame.
+	 * 
+	 * @param minimumSize
+	 *            regions with fewer pixels than this are ignored
+	 * @return the bounding box of every region with at least
+	 *         <code>minimumSize</code> pixels
+	 */
+	public List<Rect> findCandidateRegions(ThresholdPixelBuffer thresholdPixels, int minimumSize) {
+		final List<Rect> regions = new ArrayList<>();
+		final int size = thresholdPixels.size();
+
+		if (size == 0) return regions;
+
+		ensureCapacity(size);
+		labelRegions(thresholdPixels);
+
+		for (int i = 0; i < size; i++) {
+			final int root = findRoot(i);
+			final int x = thresholdPixels.getX(i);
+			final int y = thresholdPixels.getY(i);
+
+			if (root == i) {
+				regionSizes[root] = 0;
+				regionMinX[root] = x;
+				regionMaxX[root] = x;
+				regionMinY[root] = y;
+				regionMaxY[root] = y;
+			}
 
-			if ((shotWidth + shotHeight) > SMALL_SHOT_THRESHOLD
-					&& (shotRatio < MINIMUM_SHOT_RATIO || shotRatio > MAXIMUM_SHOT_RATIO))
-				continue;
-			else if (shotRatio < MINIMUM_SHOT_RATIO_SMALL || shotRatio > MAXIMUM_SHOT_RATIO_SMALL) continue;
+			regionSizes[root]++;
 
-			final double r = (double) (shotWidth + shotHeight) / 4.0f;
-			final double circleArea = Math.PI * r * r;
-			final double density = (clustersize) / circleArea;
+			if (x < regionMinX[root]) regionMinX[root] = x;
+			if (x > regionMaxX[root]) regionMaxX[root] = x;
+			if (y < regionMinY[root]) regionMinY[root] = y;
+			if (y > regionMaxY[root]) regionMaxY[root] = y;
+		}
 
-			if (logger.isTraceEnabled()) logger.trace("Cluster {}: density {} {} - {} {} - {}", i, shotWidth,
-					shotHeight, circleArea, cluster.size(), density);
+		for (int i = 0; i < size; i++) {
+			if (parents[i] != i || regionSizes[i] < minimumSize) continue;
 
-			if (density < MINIMUM_DENSITY) continue;
+			regions.add(new Rect(regionMinX[i], regionMinY[i], regionMaxX[i] - regionMinX[i] + 1,
+					regionMaxY[i] - regionMinY[i] + 1));
+		}
 
-			cluster.centerPixelX = averageX;
-			cluster.centerPixelY = averageY;
+		return regions;
+	}
 
-			clusters.add(cluster);
-		}
+	/**
+	 * Apply the shape filters to the region rooted at candidate
+	 * <code>root</code>.
+	 * 
+	 * @return an empty cluster centered on the region if the region looks like
+	 *         a shot, otherwise <code>null</code>
+	 */
+	private PixelCluster checkRegion(int region, int root, int minimumShotDimension) {
+		if (!isShotShaped(region, regionSizes[root], regionConnectedness[root], regionMinX[root], regionMinY[root],
+				regionMaxX[root], regionMaxY[root], minimumShotDimension))
+			return null;
+
+		final PixelCluster cluster = new PixelCluster();
+		cluster.centerPixelX = (double) regionSumX[root] / (double) regionConnectedness[root];
+		cluster.centerPixelY = (double) regionSumY[root] / (double) regionConnectedness[root];
 
 		if (logger.isTraceEnabled())
-			logger.trace("---- Detected {} shots from {} regions ------", clusters.size(), numberOfRegions + 1);
+			logger.trace("Cluster {}: center {} {}", region, cluster.centerPixelX, cluster.centerPixelY);
 
-		return clusters;
+		return cluster;
+	}
+
+	/**
+	 * Decide whether or not a region of threshold pixels is shaped like a
+	 * laser shot. This is shared by every shot detector that finds regions of
+	 * bright pixels so that they all accept the same shapes.
+	 * 
+	 * @param region
+	 *            the region's number, only used for logging
+	 * @param clustersize
+	 *            the number of pixels in the region
+	 * @param connectednessSum
+	 *            the sum of the number of neighbors each pixel in the region
+	 *            has that are also in the region
+	 * @param minX
+	 *            the left edge of the region's bounding box
+	 * @param minY
+	 *            the top edge of the region's bounding box
+	 * @param maxX
+	 *            the right edge of the region's bounding box
+	 * @param maxY
+	 *            the bottom edge of the region's bounding box
+	 * @param minimumShotDimension
+	 *            the minimum number of pixels a shot can have
+	 * @return <code>true</code> if the region passes the connectedness, ratio,
+	 *         and density filters
+	 */
+	static boolean isShotShaped(int region, int clustersize, long connectednessSum, int minX, int minY, int maxX,
+			int maxY, int minimumShotDimension) {
+		if (clustersize < minimumShotDimension) return false;
+
+		final double avgconnectedness = (double) connectednessSum / clustersize;
+
+		// We scale up the minimum in a linear scale as the cluster size
+		// increases. This is an approximate density
+		final double scaled_minimum = Math.min(
+				MINIMUM_CONNECTEDNESS + ((clustersize - minimumShotDimension) * MINIMUM_CONNECTEDNESS_FACTOR),
+				MAXIMUM_CONNECTEDNESS_SCALE);
+
+		if (logger.isTraceEnabled()) logger.trace("Cluster {}: size {} connectedness {} scaled_minimum {}", region,
+				clustersize, avgconnectedness, scaled_minimum);
+
+		if (avgconnectedness < scaled_minimum) return false;
+
+		final int shotWidth = (maxX - minX) + 1;
+		final int shotHeight = (maxY - minY) + 1;
+		final double shotRatio = (double) shotWidth / (double) shotHeight;
+
+		if (logger.isTraceEnabled()) logger.trace("Cluster {}: shotRatio {} {} - {} - {} {} {} {}", region, shotWidth,
+				shotHeight, shotRatio, minX, minY, maxX, maxY);
+
+		if ((shotWidth + shotHeight) > SMALL_SHOT_THRESHOLD
+				&& (shotRatio < MINIMUM_SHOT_RATIO || shotRatio > MAXIMUM_SHOT_RATIO))
+			return false;
+		else if (shotRatio < MINIMUM_SHOT_RATIO_SMALL || shotRatio > MAXIMUM_SHOT_RATIO_SMALL) return false;
+
+		final double r = (double) (shotWidth + shotHeight) / 4.0f;
+		final double circleArea = Math.PI * r * r;
+		final double density = (clustersize) / circleArea;
+
+		if (logger.isTraceEnabled()) logger.trace("Cluster {}: density {} {} - {} {} - {}", region, shotWidth,
+				shotHeight, circleArea, clustersize, density);
+
+		return density >= MINIMUM_DENSITY;
 	}
 }
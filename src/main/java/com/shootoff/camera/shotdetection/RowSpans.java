@@ -0,0 +1,221 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Arrays;
+
+/**
+ * A compiled {@link DetectionMask}: for every row of a frame, the sorted,
+ * non-overlapping <code>[start, end)</code> column ranges that shot detection
+ * should process. Spans for row <code>y</code> are the indexes from
+ * <code>getFirstSpan(y)</code> (inclusive) to <code>getEndSpan(y)</code>
+ * (exclusive).
+ *
+ * Instances are immutable, thus they can be shared between the thread that
+ * compiles them and the shot detection threads.
+ */
+public final class RowSpans {
+	private final int width;
+	private final int height;
+
+	// rowOffsets[y] is the index of the first span of row y, rowOffsets[height]
+	// is the total number of spans
+	private final int[] rowOffsets;
+	private final int[] spanStarts;
+	private final int[] spanEnds;
+
+	private final int minRow;
+	private final int maxRow;
+	private final int minColumn;
+	private final int maxColumn;
+	private final int pixelCount;
+
+	RowSpans(final int width, final int height, final int[] rowOffsets, final int[] spanStarts,
+			final int[] spanEnds) {
+		this.width = width;
+		this.height = height;
+		this.rowOffsets = rowOffsets;
+		this.spanStarts = spanStarts;
+		this.spanEnds = spanEnds;
+
+		int firstRow = height;
+		int lastRow = 0;
+		int firstColumn = width;
+		int lastColumn = 0;
+		int pixels = 0;
+
+		for (int y = 0; y < height; y++) {
+			if (rowOffsets[y] == rowOffsets[y + 1]) continue;
+
+			firstRow = Math.min(firstRow, y);
+			lastRow = y + 1;
+
+			for (int span = rowOffsets[y]; span < rowOffsets[y + 1]; span++) {
+				firstColumn = Math.min(firstColumn, spanStarts[span]);
+				lastColumn = Math.max(lastColumn, spanEnds[span]);
+				pixels += spanEnds[span] - spanStarts[span];
+			}
+		}
+
+		if (pixels == 0) {
+			firstRow = 0;
+			lastRow = 0;
+			firstColumn = 0;
+			lastColumn = 0;
+		}
+
+		minRow = firstRow;
+		maxRow = lastRow;
+		minColumn = firstColumn;
+		maxColumn = lastColumn;
+		pixelCount = pixels;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getFirstSpan(final int y) {
+		return rowOffsets[y];
+	}
+
+	public int getEndSpan(final int y) {
+		return rowOffsets[y + 1];
+	}
+
+	public int getSpanStart(final int span) {
+		return spanStarts[span];
+	}
+
+	public int getSpanEnd(final int span) {
+		return spanEnds[span];
+	}
+
+	/**
+	 * @return the first row that has any spans
+	 */
+	public int getMinRow() {
+		return minRow;
+	}
+
+	/**
+	 * @return one past the last row that has any spans
+	 */
+	public int getMaxRow() {
+		return maxRow;
+	}
+
+	public int getMinColumn() {
+		return minColumn;
+	}
+
+	/**
+	 * @return one past the last column covered by any span
+	 */
+	public int getMaxColumn() {
+		return maxColumn;
+	}
+
+	/**
+	 * @return the number of pixels that will be processed
+	 */
+	public int getPixelCount() {
+		return pixelCount;
+	}
+
+	public boolean isEmpty() {
+		return pixelCount == 0;
+	}
+
+	/**
+	 * Create the spans for a frame downsampled by <code>factor</code> in both
+	 * directions. A downsampled pixel is covered if any of the pixels it was
+	 * created from are covered, thus nothing that is covered at full
+	 * resolution is lost.
+	 */
+	public RowSpans downsample(final int factor) {
+		if (factor == 1) return this;
+
+		final int coarseWidth = width / factor;
+		final int coarseHeight = height / factor;
+
+		final int[] coarseOffsets = new int[coarseHeight + 1];
+		int[] coarseStarts = new int[Math.max(coarseHeight, 1)];
+		int[] coarseEnds = new int[Math.max(coarseHeight, 1)];
+		int spanCount = 0;
+
+		final boolean[] covered = new boolean[coarseWidth];
+
+		for (int y = 0; y < coarseHeight; y++) {
+			coarseOffsets[y] = spanCount;
+
+			Arrays.fill(covered, false);
+
+			for (int fineY = y * factor; fineY < (y + 1) * factor; fineY++) {
+				for (int span = rowOffsets[fineY]; span < rowOffsets[fineY + 1]; span++) {
+					final int start = spanStarts[span] / factor;
+					final int end = Math.min((spanEnds[span] + factor - 1) / factor, coarseWidth);
+					for (int x = start; x < end; x++)
+						covered[x] = true;
+				}
+			}
+
+			int x = 0;
+			while (x < coarseWidth) {
+				if (!covered[x]) {
+					x++;
+					continue;
+				}
+
+				final int start = x;
+				while (x < coarseWidth && covered[x])
+					x++;
+
+				if (spanCount == coarseStarts.length) {
+					coarseStarts = Arrays.copyOf(coarseStarts, spanCount * 2);
+					coarseEnds = Arrays.copyOf(coarseEnds, spanCount * 2);
+				}
+
+				coarseStarts[spanCount] = start;
+				coarseEnds[spanCount] = x;
+				spanCount++;
+			}
+		}
+
+		coarseOffsets[coarseHeight] = spanCount;
+
+		return new RowSpans(coarseWidth, coarseHeight, coarseOffsets, Arrays.copyOf(coarseStarts, spanCount),
+				Arrays.copyOf(coarseEnds, spanCount));
+	}
+
+	public boolean contains(final int x, final int y) {
+		if (y < 0 || y >= height) return false;
+
+		for (int span = rowOffsets[y]; span < rowOffsets[y + 1]; span++) {
+			if (x < spanStarts[span]) return false;
+			if (x < spanEnds[span]) return true;
+		}
+
+		return false;
+	}
+}
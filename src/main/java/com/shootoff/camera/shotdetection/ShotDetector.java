@@ -6,10 +6,15 @@ import org.slf4j.LoggerFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.Shot;
+import com.shootoff.camera.StageLatencies;
+import com.shootoff.camera.processors.DeduplicationProcessor;
+import com.shootoff.camera.processors.ShotProcessorCounts;
 import com.shootoff.camera.shot.BoundsShot;
 import com.shootoff.camera.shot.DisplayShot;
 import com.shootoff.camera.shot.ShotColor;
 import com.shootoff.config.Configuration;
+import com.shootoff.metrics.FlightRecorderEvents;
+import com.shootoff.metrics.FlightRecorderEvents.ShotStage;
 import javafx.geometry.Bounds;
 
 /**
@@ -34,6 +39,21 @@ public abstract class ShotDetector {
 
 	public void reset() {}
 
+	/**
+	 * Release any resources held by this detector (e.g. native image buffers).
+	 * The detector must not be used after this is called.
+	 */
+	public void close() {}
+
+	/**
+	 * @return the number of pixels that changed enough to possibly be part of
+	 *         a shot in the last frame, or -1 if this detector doesn't
+	 *         threshold frames itself
+	 */
+	public int getThresholdPixelCount() {
+		return -1;
+	}
+
 	/**
 	 * Notify the shot detector of the dimensions of webcam frames (e.g. the
 	 * webcam's resolution). This method may be called at any time if the
@@ -72,6 +92,16 @@ public abstract class ShotDetector {
 	 *         preprocessing
 	 */
 	public boolean addShot(ShotColor color, double x, double y, long timestamp, boolean scaleShot) {
+		final long start = System.nanoTime();
+
+		try {
+			return preprocessShot(color, x, y, timestamp, scaleShot);
+		} finally {
+			cameraManager.getStageLatencies().recordSince(StageLatencies.Stage.SHOT_PROCESSING, start);
+		}
+	}
+
+	private boolean preprocessShot(ShotColor color, double x, double y, long timestamp, boolean scaleShot) {
 		if (!checkIgnoreColor(color)) return false;
 
 		final Shot shot = new Shot(color, x, y, cameraManager.cameraTimeToShotTime(timestamp),
@@ -98,9 +128,15 @@ public abstract class ShotDetector {
 			if (handlesBounds()) {
 				bShot.adjustBounds(b.getMinX(), b.getMinY());
 			} else {
-				if (cameraManager.isLimitingDetectionToProjection() && !b.contains(x, y)) return false;
+				if (cameraManager.isLimitingDetectionToProjection() && !b.contains(x, y)) {
+					FlightRecorderEvents.shot(ShotStage.DETECTED, cameraManager.getName(), shot, false,
+							"outside projection", 0);
+					return false;
+				}
 			}
 		}
+
+		FlightRecorderEvents.shot(ShotStage.DETECTED, cameraManager.getName(), shot, true, null, 0);
 		
 		DisplayShot dShot = new DisplayShot(bShot, config.getMarkerRadius());
 		
@@ -113,7 +149,13 @@ public abstract class ShotDetector {
 					cameraManager.getFeedHeight());
 		}
 
-		if (!checkDuplicate(dShot)) return false;
+		final long deduplicationStart = System.nanoTime();
+		final boolean isUnique = checkDuplicate(dShot);
+		FlightRecorderEvents.shot(ShotStage.DEDUPED, cameraManager.getName(), dShot, isUnique,
+				isUnique ? null : cameraManager.getDeduplicationProcessor().getClass().getSimpleName(),
+				System.nanoTime() - deduplicationStart);
+
+		if (!isUnique) return false;
 
 		submitShot(dShot);
 
@@ -131,9 +173,11 @@ public abstract class ShotDetector {
 	}
 
 	protected boolean checkDuplicate(final Shot shot) {
-		if (!cameraManager.getDeduplicationProcessor().processShot(shot)) {
+		final DeduplicationProcessor deduplicationProcessor = cameraManager.getDeduplicationProcessor();
+
+		if (!ShotProcessorCounts.record(deduplicationProcessor, deduplicationProcessor.processShot(shot))) {
 			if (logger.isDebugEnabled()) logger.debug("Processing Shot: Shot Rejected By {}",
-					cameraManager.getDeduplicationProcessor().getClass().getName());
+					deduplicationProcessor.getClass().getName());
 			return false;
 		}
 		return true;
@@ -0,0 +1,170 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.Arrays;
+
+/**
+ * A growable, primitive-backed list of candidate pixels found while
+ * thresholding a frame. Coordinates are packed into a single int (x in the low
+ * 16 bits, y in the high 16 bits) and the per-pixel filter values are stored
+ * in parallel arrays. Buffers are cleared and reused frame after frame, so once
+ * they have grown to fit the busiest frame seen no further allocation occurs.
+ *
+ * Instances are not thread safe. Shot detection gives every tile its own buffer
+ * and merges them on the detection thread after the parallel pass completes.
+ */
+final class ThresholdPixelBuffer {
+	private static final int INITIAL_CAPACITY = 256;
+	private static final int COORDINATE_MASK = 0xFFFF;
+
+	private int[] coordinates;
+	private int[] colors;
+	private int[] currentLums;
+	private int[] lumAverages;
+	private int[] colorAverages;
+
+	private int size = 0;
+
+	ThresholdPixelBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	ThresholdPixelBuffer(final int initialCapacity) {
+		final int capacity = Math.max(initialCapacity, 1);
+
+		coordinates = new int[capacity];
+		colors = new int[capacity];
+		currentLums = new int[capacity];
+		lumAverages = new int[capacity];
+		colorAverages = new int[capacity];
+	}
+
+	public static int pack(final int x, final int y) {
+		return (y << 16) | (x & COORDINATE_MASK);
+	}
+
+	public static int unpackX(final int packed) {
+		return packed & COORDINATE_MASK;
+	}
+
+	public static int unpackY(final int packed) {
+		return packed >>> 16;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Add a pixel we only care about the location of (e.g. a pixel that is too
+	 * bright to be used for shot detection).
+	 */
+	public void add(final int x, final int y) {
+		add(x, y, 0, 0, 0, 0);
+	}
+
+	public void add(final int x, final int y, final int color, final int currentLum, final int lumAverage,
+			final int colorAverage) {
+		if (size == coordinates.length) grow(size + 1);
+
+		coordinates[size] = pack(x, y);
+		colors[size] = color;
+		currentLums[size] = currentLum;
+		lumAverages[size] = lumAverage;
+		colorAverages[size] = colorAverage;
+
+		size++;
+	}
+
+	/**
+	 * Append every pixel in <code>other</code> to this buffer using bulk array
+	 * copies.
+	 */
+	public void addAll(final ThresholdPixelBuffer other) {
+		final int otherSize = other.size;
+		if (otherSize == 0) return;
+
+		if (size + otherSize > coordinates.length) grow(size + otherSize);
+
+		System.arraycopy(other.coordinates, 0, coordinates, size, otherSize);
+		System.arraycopy(other.colors, 0, colors, size, otherSize);
+		System.arraycopy(other.currentLums, 0, currentLums, size, otherSize);
+		System.arraycopy(other.lumAverages, 0, lumAverages, size, otherSize);
+		System.arraycopy(other.colorAverages, 0, colorAverages, size, otherSize);
+
+		size += otherSize;
+	}
+
+	public int getPackedCoordinate(final int index) {
+		return coordinates[index];
+	}
+
+	public int getX(final int index) {
+		return unpackX(coordinates[index]);
+	}
+
+	public int getY(final int index) {
+		return unpackY(coordinates[index]);
+	}
+
+	public int getColor(final int index) {
+		return colors[index];
+	}
+
+	public int getCurrentLum(final int index) {
+		return currentLums[index];
+	}
+
+	public int getLumAverage(final int index) {
+		return lumAverages[index];
+	}
+
+	public int getColorAverage(final int index) {
+		return colorAverages[index];
+	}
+
+	/**
+	 * Build a full <code>Pixel</code> object for the pixel at
+	 * <code>index</code>. This allocates and is only meant to be used once a
+	 * pixel has survived clustering.
+	 */
+	public Pixel toPixel(final int index) {
+		return new Pixel(getX(index), getY(index), colors[index], currentLums[index], lumAverages[index],
+				colorAverages[index]);
+	}
+
+	private void grow(final int minimumCapacity) {
+		final int newCapacity = Math.max(minimumCapacity, coordinates.length + (coordinates.length >> 1));
+
+		coordinates = Arrays.copyOf(coordinates, newCapacity);
+		colors = Arrays.copyOf(colors, newCapacity);
+		currentLums = Arrays.copyOf(currentLums, newCapacity);
+		lumAverages = Arrays.copyOf(lumAverages, newCapacity);
+		colorAverages = Arrays.copyOf(colorAverages, newCapacity);
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits frames into tiles and processes them in parallel on a shared
+ * work-stealing pool. The user-visible sector grid (
+ * {@link JavaShotDetector#SECTOR_COLUMNS} by
+ * {@link JavaShotDetector#SECTOR_ROWS}) is kept as the outer layout so that
+ * disabled sectors can be skipped, but every sector is further divided into
+ * horizontal strips so that the number of tiles scales with the number of
+ * cores and the resolution of the frame. Idle workers steal the remaining
+ * tiles from busy ones, thus a slow tile doesn't leave cores idle.
+ *
+ * Work is handed to a {@link RowOperation} one row at a time, which lets the
+ * scheduler check for cancellation once per row instead of once per pixel.
+ */
+public final class TileScheduler {
+	private static final Logger logger = LoggerFactory.getLogger(TileScheduler.class);
+
+	// Aim for a few tiles per core so that stealing can balance the load
+	private static final int TILES_PER_CORE = 4;
+
+	// Smaller tiles cost more to schedule than they save
+	private static final int MINIMUM_TILE_PIXELS = 8192;
+
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+			new DetectionWorkerThreadFactory(), (t, e) -> logger.error("Uncaught exception in shot detection worker", e),
+			false);
+
+	/**
+	 * Processes one row of a tile. Implementations must only touch state owned
+	 * by <code>tile</code> (or state that is otherwise thread safe) because
+	 * tiles run concurrently.
+	 */
+	public interface RowOperation {
+		void processRow(int tile, int y, int startX, int endX);
+	}
+
+	/**
+	 * Notified around each tile on the worker that processes it.
+	 */
+	public interface TileListener {
+		/**
+		 * @return a value that is passed back to
+		 *         {@link #tileFinished(int, long)} for the same tile
+		 */
+		long tileStarted(int tile);
+
+		void tileFinished(int tile, long started);
+	}
+
+	/**
+	 * Decides whether or not a sector of the frame should be processed.
+	 */
+	public interface SectorFilter {
+		boolean isSectorOn(int sectorX, int sectorY);
+	}
+
+	private final int sectorColumns;
+	private final int sectorRows;
+
+	private int layoutWidth = -1;
+	private int layoutHeight = -1;
+	private int tileCount = 0;
+
+	// Indexed by tile
+	private int[] tileSectors = new int[0];
+	private int[] tileStartX = new int[0];
+	private int[] tileEndX = new int[0];
+	private int[] tileStartY = new int[0];
+	private int[] tileEndY = new int[0];
+
+	private int[] activeTiles = new int[0];
+	private final boolean[] sectorsOn;
+
+	private volatile boolean cancelled = false;
+
+	public TileScheduler(final int sectorColumns, final int sectorRows) {
+		this.sectorColumns = sectorColumns;
+		this.sectorRows = sectorRows;
+		this.sectorsOn = new boolean[sectorColumns * sectorRows];
+	}
+
+	/**
+	 * Shutdown the pool shared by every scheduler. Running tiles stop at the
+	 * end of their current row.
+	 */
+	public static void close() {
+		pool.shutdownNow();
+	}
+
+	public static int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Compute the tile layout for frames of the given dimensions. The layout is
+	 * cached, thus calling this with unchanged dimensions is cheap. This must
+	 * not run while {@link #process} is running on this scheduler, thus
+	 * callers hold the same lock around both.
+	 */
+	public void layout(final int width, final int height) {
+		if (width == layoutWidth && height == layoutHeight) return;
+
+		final int sectorHeight = height / sectorRows;
+		final int sectorPixels = (width / sectorColumns) * sectorHeight;
+		final int sectorCount = sectorColumns * sectorRows;
+
+		final int targetTiles = pool.getParallelism() * TILES_PER_CORE;
+		int stripsPerSector = Math.max((targetTiles + sectorCount - 1) / sectorCount, 1);
+		stripsPerSector = Math.min(stripsPerSector, Math.max(sectorPixels / MINIMUM_TILE_PIXELS, 1));
+		stripsPerSector = Math.min(stripsPerSector, Math.max(sectorHeight, 1));
+
+		tileCount = sectorCount * stripsPerSector;
+
+		if (tileSectors.length < tileCount) {
+			tileSectors = new int[tileCount];
+			tileStartX = new int[tileCount];
+			tileEndX = new int[tileCount];
+			tileStartY = new int[tileCount];
+			tileEndY = new int[tileCount];
+			activeTiles = new int[tileCount];
+		}
+
+		int tile = 0;
+		for (int sectorY = 0; sectorY < sectorRows; sectorY++) {
+			final int[] sectorRowBounds = sectorBounds(sectorY, sectorRows, height);
+
+			for (int sectorX = 0; sectorX < sectorColumns; sectorX++) {
+				final int[] sectorColumnBounds = sectorBounds(sectorX, sectorColumns, width);
+				final int rows = sectorRowBounds[1] - sectorRowBounds[0];
+
+				for (int strip = 0; strip < stripsPerSector; strip++) {
+					tileSectors[tile] = sectorY * sectorColumns + sectorX;
+					tileStartX[tile] = sectorColumnBounds[0];
+					tileEndX[tile] = sectorColumnBounds[1];
+					tileStartY[tile] = sectorRowBounds[0] + (rows * strip) / stripsPerSector;
+					tileEndY[tile] = sectorRowBounds[0] + (rows * (strip + 1)) / stripsPerSector;
+					tile++;
+				}
+			}
+		}
+
+		layoutWidth = width;
+		layoutHeight = height;
+
+		if (logger.isDebugEnabled()) logger.debug("Shot detection tiles for {}x{}: {} tiles on {} workers", width,
+				height, tileCount, pool.getParallelism());
+	}
+
+	/**
+	 * The last sector in each direction absorbs the pixels left over when the
+	 * frame doesn't divide evenly so that the edges of the frame are
+	 * processed.
+	 */
+	private static int[] sectorBounds(final int sector, final int sectors, final int length) {
+		final int size = length / sectors;
+		final int start = size * sector;
+		final int end = sector == sectors - 1 ? length : start + size;
+
+		return new int[] { start, end };
+	}
+
+	public int getTileCount() {
+		return tileCount;
+	}
+
+	public int getSector(final int tile) {
+		return tileSectors[tile];
+	}
+
+	/**
+	 * Stop processing the current frame (if any) at the end of the current
+	 * row. Every following call to {@link #process} returns immediately.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Process every tile in an enabled sector in parallel and block until they
+	 * are all done. {@link #layout} must have been called for the frame's
+	 * dimensions first.
+	 *
+	 * @return <code>true</code> if every enabled tile was completely
+	 *         processed, <code>false</code> if processing was cancelled
+	 */
+	public boolean process(final SectorFilter sectorFilter, final RowOperation operation) {
+		return process(sectorFilter, operation, null);
+	}
+
+	/**
+	 * Like {@link #process(SectorFilter, RowOperation)}, but
+	 * <code>listener</code> is notified before and after each tile on the
+	 * worker that processes it.
+	 */
+	public boolean process(final SectorFilter sectorFilter, final RowOperation operation,
+			final TileListener listener) {
+		if (cancelled || pool.isShutdown()) return false;
+
+		for (int sector = 0; sector < sectorsOn.length; sector++) {
+			sectorsOn[sector] = sectorFilter.isSectorOn(sector % sectorColumns, sector / sectorColumns);
+		}
+
+		int activeCount = 0;
+		for (int tile = 0; tile < tileCount; tile++) {
+			if (sectorsOn[tileSectors[tile]]) activeTiles[activeCount++] = tile;
+		}
+
+		if (activeCount == 0) return true;
+
+		final TileTask task = new TileTask(operation, listener, 0, activeCount);
+
+		try {
+			pool.invoke(task);
+		} catch (final RejectedExecutionException e) {
+			if (!pool.isShutdown()) logger.error("Shot detection tiles were rejected but the pool was not shutdown", e);
+			return false;
+		}
+
+		return task.completed;
+	}
+
+	private boolean isCancelled() {
+		return cancelled || pool.isShutdown() || Thread.currentThread().isInterrupted();
+	}
+
+	/**
+	 * Recursively halves a range of active tiles so that idle workers can
+	 * steal the unprocessed half.
+	 */
+	private class TileTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final RowOperation operation;
+		private final TileListener listener;
+		private final int start;
+		private final int end;
+		private boolean completed = true;
+
+		TileTask(final RowOperation operation, final TileListener listener, final int start, final int end) {
+			this.operation = operation;
+			this.listener = listener;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start > 1) {
+				final int middle = (start + end) >>> 1;
+				final TileTask left = new TileTask(operation, listener, start, middle);
+				final TileTask right = new TileTask(operation, listener, middle, end);
+				invokeAll(left, right);
+				completed = left.completed && right.completed;
+				return;
+			}
+
+			final int tile = activeTiles[start];
+
+			if (listener == null) {
+				processTile(tile);
+				return;
+			}
+
+			final long started = listener.tileStarted(tile);
+			try {
+				processTile(tile);
+			} finally {
+				listener.tileFinished(tile, started);
+			}
+		}
+
+		private void processTile(final int tile) {
+			final int startX = tileStartX[tile];
+			final int endX = tileEndX[tile];
+
+			for (int y = tileStartY[tile]; y < tileEndY[tile]; y++) {
+				// If the pool is being shutdown or the detector closed, stop
+				// searching for a shot in the current frame
+				if (isCancelled()) {
+					logger.trace("Shot detection sieve interrupted");
+					completed = false;
+					return;
+				}
+
+				operation.processRow(tile, y, startX, endX);
+			}
+		}
+	}
+
+	private static class DetectionWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+		private final AtomicInteger counter = new AtomicInteger();
+
+		@Override
+		public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+			final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName(String.format("ShotDetectionWorker-%d", counter.incrementAndGet()));
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
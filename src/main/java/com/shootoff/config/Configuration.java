@@ -53,9 +53,11 @@ import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.camera.cameratypes.IpCamera;
+import com.shootoff.camera.cameratypes.VideoFileCamera;
 import com.shootoff.camera.processors.MalfunctionsProcessor;
 import com.shootoff.camera.processors.ShotProcessor;
 import com.shootoff.camera.processors.VirtualMagazineProcessor;
+import com.shootoff.camera.shotdetection.DetectionMask;
 import com.shootoff.gui.CalibrationOption;
 import com.shootoff.gui.controller.VideoPlayerController;
 import com.shootoff.plugins.TrainingExercise;
@@ -101,10 +103,14 @@ public class Configuration {
 	private static final String ARENA_POSITION_Y_PROP = "shootoff.arena.y";
 	private static final String MUTED_CHIME_MESSAGES = "shootoff.diagnosticmessages.chime.muted";
 	private static final String PERSPECTIVE_WEBCAM_DISTANCES = WEBCAMS_PROP + ".distances";
+	private static final String DETECTION_MASKS_PROP = WEBCAMS_PROP + ".masks";
 	private static final String CALIBRATED_FEED_BEHAVIOR_PROP = "shootoff.arena.calibrated.behavior";
 	private static final String SHOW_ARENA_SHOT_MARKERS = "shootoff.arena.show.markers";
 	private static final String CALIBRATE_AUTO_ADJUST_EXPOSURE = "shootoff.arena.calibrated.exposure";
 	private static final String SHOWED_PERSPECTIVE_USAGE_MESSAGE = "shootoff.arena.notified.perspective";
+	private static final String USE_OPENCV_SHOT_DETECTOR_PROP = "shootoff.shotdetection.opencv.use";
+	private static final String USE_PYRAMID_DETECTION_PROP = "shootoff.shotdetection.pyramid.use";
+	private static final String METRICS_PORT_PROP = "shootoff.metrics.port";
 
 	private static final String POI_ADJUSTMENT_X = "shootoff.poiadjust.x";
 	private static final String POI_ADJUSTMENT_Y = "shootoff.poiadjust.y";
@@ -118,6 +124,8 @@ public class Configuration {
 			+ "between 1 and 45.";
 	protected static final String INJECT_MALFUNCTIONS_MESSAGE = "INJECT_MALFUNCTIONS has an invalid value: %f. Acceptable values are "
 			+ "between 0.1 and 99.9.";
+	protected static final String METRICS_PORT_MESSAGE = "METRICS_PORT has an invalid value: %d. Acceptable values are "
+			+ "between 0 (off) and 65535.";
 
 	private static final String DEFAULT_CONFIG_FILE = "phanmembansung.properties";
 
@@ -145,6 +153,8 @@ public class Configuration {
 	private float malfunctionsProbability = (float) 10.0;
 	private boolean debugMode = false;
 	private boolean headless = false;
+	private final List<VideoFileCamera.Playback> videoPlaybacks = new ArrayList<>();
+	private final List<Camera> videoCameras = new ArrayList<>();
 	private Set<Camera> recordingCameras = new HashSet<>();
 	private final Set<CameraManager> recordingManagers = new HashSet<>();
 	private final Set<VideoPlayerController> videoPlayers = new HashSet<>();
@@ -154,6 +164,7 @@ public class Configuration {
 	private Optional<Color> shotRowColor = Optional.empty();
 	private Optional<Point2D> arenaPosition = Optional.empty();
 	private final Map<String, Integer> cameraDistances = new HashMap<>();
+	private final Map<String, DetectionMask> detectionMasks = new HashMap<>();
 	private final Set<String> messagesChimeMuted = new HashSet<>();
 	private boolean showedPerspectiveMessage = false;
 
@@ -169,6 +180,11 @@ public class Configuration {
 	private CalibrationOption calibratedFeedBehavior = CalibrationOption.ONLY_IN_BOUNDS;
 	private boolean showArenaShotMarkers = false;
 	private boolean autoAdjustExposure = true;
+	private boolean useOpenCVShotDetector = false;
+	// Off until replaying real clips shows downsampled detection finds the
+	// same shots as full resolution detection
+	private boolean usePyramidDetection = false;
+	private int metricsPort = 0;
 
 	private Optional<Double> poiAdjustmentX = Optional.empty();
 	private Optional<Double> poiAdjustmentY = Optional.empty();
@@ -376,6 +392,16 @@ public class Configuration {
 			}
 		}
 
+		if (prop.containsKey(DETECTION_MASKS_PROP)) {
+			for (final String maskString : prop.getProperty(DETECTION_MASKS_PROP).split(",")) {
+				final String[] maskComponents = maskString.split("\\|");
+				if (maskComponents.length == 2) {
+					final DetectionMask mask = DetectionMask.fromString(maskComponents[1]);
+					if (!mask.isEmpty()) detectionMasks.put(maskComponents[0], mask);
+				}
+			}
+		}
+
 		if (prop.containsKey(MUTED_CHIME_MESSAGES)) {
 			for (final String message : prop.getProperty(MUTED_CHIME_MESSAGES).split("\\|")) {
 				muteMessageChime(message);
@@ -398,6 +424,18 @@ public class Configuration {
 			setAutoAdjustExposure(Boolean.parseBoolean(prop.getProperty(CALIBRATE_AUTO_ADJUST_EXPOSURE)));
 		}
 
+		if (prop.containsKey(USE_OPENCV_SHOT_DETECTOR_PROP)) {
+			setUseOpenCVShotDetector(Boolean.parseBoolean(prop.getProperty(USE_OPENCV_SHOT_DETECTOR_PROP)));
+		}
+
+		if (prop.containsKey(USE_PYRAMID_DETECTION_PROP)) {
+			setUsePyramidDetection(Boolean.parseBoolean(prop.getProperty(USE_PYRAMID_DETECTION_PROP)));
+		}
+
+		if (prop.containsKey(METRICS_PORT_PROP)) {
+			setMetricsPort(Integer.parseInt(prop.getProperty(METRICS_PORT_PROP)));
+		}
+
 		if (prop.containsKey(POI_ADJUSTMENT_X) && prop.containsKey(POI_ADJUSTMENT_Y)) {
 			poiAdjustmentX = Optional.of(Double.parseDouble(prop.getProperty(POI_ADJUSTMENT_X)));
 			poiAdjustmentY = Optional.of(Double.parseDouble(prop.getProperty(POI_ADJUSTMENT_Y)));
@@ -469,6 +507,14 @@ public class Configuration {
 			cameraDistancesList.append(distanceEntry.getValue());
 		}
 
+		final StringBuilder detectionMasksList = new StringBuilder();
+		for (final Entry<String, DetectionMask> maskEntry : detectionMasks.entrySet()) {
+			if (detectionMasksList.length() > 0) detectionMasksList.append(",");
+			detectionMasksList.append(maskEntry.getKey());
+			detectionMasksList.append("|");
+			detectionMasksList.append(maskEntry.getValue().toString());
+		}
+
 		prop.setProperty(FIRST_RUN_PROP, String.valueOf(isFirstRun));
 		prop.setProperty(ERROR_REPORTING_PROP, String.valueOf(useErrorReporting));
 		prop.setProperty(IPCAMS_PROP, ipcamList.toString());
@@ -494,10 +540,14 @@ public class Configuration {
 		}
 
 		prop.setProperty(PERSPECTIVE_WEBCAM_DISTANCES, cameraDistancesList.toString());
+		prop.setProperty(DETECTION_MASKS_PROP, detectionMasksList.toString());
 		prop.setProperty(CALIBRATED_FEED_BEHAVIOR_PROP, calibratedFeedBehavior.name());
 		prop.setProperty(SHOW_ARENA_SHOT_MARKERS, String.valueOf(showArenaShotMarkers));
 		prop.setProperty(CALIBRATE_AUTO_ADJUST_EXPOSURE, String.valueOf(autoAdjustExposure));
 		prop.setProperty(SHOWED_PERSPECTIVE_USAGE_MESSAGE, String.valueOf(showedPerspectiveMessage));
+		prop.setProperty(USE_OPENCV_SHOT_DETECTOR_PROP, String.valueOf(useOpenCVShotDetector));
+		prop.setProperty(USE_PYRAMID_DETECTION_PROP, String.valueOf(usePyramidDetection));
+		prop.setProperty(METRICS_PORT_PROP, String.valueOf(metricsPort));
 
 		if (isAdjustingPOI() && poiAdjustmentX.isPresent() && poiAdjustmentY.isPresent()) {
 			prop.setProperty(POI_ADJUSTMENT_X, String.valueOf(poiAdjustmentX.get()));
@@ -531,6 +581,11 @@ public class Configuration {
 				"turns on the virtual magazine and sets the number rounds it holds [1,45]");
 		options.addOption("f", "use-malfunctions", true,
 				"turns on malfunctions and sets the probability of them happening");
+		options.addOption("v", "video-camera", true,
+				"adds a camera that plays a video file, given as file[,native|max|fps][,once]. Can be used "
+						+ "several times to add several cameras");
+		options.addOption("p", "metrics-port", true,
+				"serves metrics in the Prometheus text format on this localhost port (0 turns it off)");
 
 		try {
 			final CommandLineParser parser = new DefaultParser();
@@ -556,6 +611,21 @@ public class Configuration {
 				setMalfunctions(true);
 				setMalfunctionsProbability(Float.parseFloat(cmd.getOptionValue("f")));
 			}
+
+			if (cmd.hasOption("p")) setMetricsPort(Integer.parseInt(cmd.getOptionValue("p")));
+
+			// The command line is parsed twice, thus start over to not add
+			// every camera twice
+			videoPlaybacks.clear();
+			if (cmd.hasOption("v")) {
+				for (final String description : cmd.getOptionValues("v")) {
+					try {
+						videoPlaybacks.add(VideoFileCamera.Playback.parse(description));
+					} catch (final IllegalArgumentException e) {
+						throw new ConfigurationException(e.getMessage());
+					}
+				}
+			}
 		} catch (final ParseException e) {
 			System.err.println(e.getMessage());
 			final HelpFormatter formatter = new HelpFormatter();
@@ -596,6 +666,10 @@ public class Configuration {
 		if (malfunctionsProbability < (float) 0.1 || malfunctionsProbability > (float) 99.9) {
 			throw new ConfigurationException(String.format(INJECT_MALFUNCTIONS_MESSAGE, malfunctionsProbability));
 		}
+
+		if (metricsPort < 0 || metricsPort > 65535) {
+			throw new ConfigurationException(String.format(METRICS_PORT_MESSAGE, metricsPort));
+		}
 	}
 
 	public int getDisplayWidth() {
@@ -854,6 +928,18 @@ public class Configuration {
 		autoAdjustExposure = autoAdjust;
 	}
 
+	public void setUseOpenCVShotDetector(boolean useOpenCVShotDetector) {
+		this.useOpenCVShotDetector = useOpenCVShotDetector;
+	}
+
+	public void setUsePyramidDetection(boolean usePyramidDetection) {
+		this.usePyramidDetection = usePyramidDetection;
+	}
+
+	public void setMetricsPort(int metricsPort) {
+		this.metricsPort = metricsPort;
+	}
+
 	public Set<Camera> getRecordingCameras() {
 		return recordingCameras;
 	}
@@ -892,6 +978,13 @@ public class Configuration {
 		cameraDistances.put(webcamName, distance);
 	}
 
+	public void setDetectionMask(String cameraName, DetectionMask mask) {
+		if (mask == null || mask.isEmpty())
+			detectionMasks.remove(cameraName);
+		else
+			detectionMasks.put(cameraName, mask);
+	}
+
 	public void setShowedPerspectiveMessage(boolean showedPerspectiveMessage) {
 		this.showedPerspectiveMessage = showedPerspectiveMessage;
 	}
@@ -980,6 +1073,26 @@ public class Configuration {
 		return headless;
 	}
 
+	/**
+	 * Create and register a camera for each video file given on the command
+	 * line. Only the first call registers cameras.
+	 */
+	public void registerVideoCameras() {
+		if (!videoCameras.isEmpty()) return;
+
+		for (final VideoFileCamera.Playback playback : videoPlaybacks) {
+			videoCameras.add(VideoFileCamera.registerVideoFileCamera(playback));
+		}
+	}
+
+	/**
+	 * @return the cameras playing video files, which are used instead of the
+	 *         configured cameras if there are any
+	 */
+	public List<Camera> getVideoCameras() {
+		return videoCameras;
+	}
+
 	public Optional<SessionRecorder> getSessionRecorder() {
 		return sessionRecorder;
 	}
@@ -1008,6 +1121,21 @@ public class Configuration {
 		return debugShotsRecordToFiles;
 	}
 
+	public boolean useOpenCVShotDetector() {
+		return useOpenCVShotDetector;
+	}
+
+	public boolean usePyramidDetection() {
+		return usePyramidDetection;
+	}
+
+	/**
+	 * @return the localhost port metrics are served on, or 0 if they aren't
+	 */
+	public int getMetricsPort() {
+		return metricsPort;
+	}
+
 	public Optional<Point2D> getArenaPosition() {
 		return arenaPosition;
 	}
@@ -1016,6 +1144,10 @@ public class Configuration {
 		return Optional.ofNullable(cameraDistances.get(cameraName));
 	}
 
+	public Optional<DetectionMask> getDetectionMask(String cameraName) {
+		return Optional.ofNullable(detectionMasks.get(cameraName));
+	}
+
 	public boolean isChimeMuted(String message) {
 		return messagesChimeMuted.contains(message);
 	}
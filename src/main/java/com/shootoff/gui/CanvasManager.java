@@ -37,14 +37,19 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import org.opencv.core.Rect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
+import com.shootoff.camera.CaptureClock;
+import com.shootoff.camera.Frame;
 import com.shootoff.camera.Shot;
+import com.shootoff.camera.StageLatencies;
 import com.shootoff.camera.processors.MalfunctionsProcessor;
 import com.shootoff.camera.processors.ShotProcessor;
+import com.shootoff.camera.processors.ShotProcessorCounts;
 import com.shootoff.camera.processors.VirtualMagazineProcessor;
 import com.shootoff.camera.recorders.ShotRecorder;
 import com.shootoff.camera.shot.ArenaShot;
@@ -55,6 +60,8 @@ import com.shootoff.gui.pane.ProjectorArenaPane;
 import com.shootoff.gui.targets.MirroredTarget;
 import com.shootoff.gui.targets.TargetCommands;
 import com.shootoff.gui.targets.TargetView;
+import com.shootoff.metrics.FlightRecorderEvents;
+import com.shootoff.metrics.FlightRecorderEvents.ShotStage;
 import com.shootoff.plugins.TrainingExercise;
 import com.shootoff.plugins.TrainingExerciseBase;
 import com.shootoff.targets.Hit;
@@ -105,6 +112,7 @@ public class CanvasManager implements CameraView {
 	private final String cameraName;
 	private final ObservableList<ShotEntry> shotEntries;
 	private final ImageView background = new ImageView();
+	private final FrameDisplayBuffer displayBuffer = new FrameDisplayBuffer(background::setImage);
 	private final List<DisplayShot> shots = Collections.synchronizedList(new ArrayList<DisplayShot>());
 	private final List<Target> targets = new ArrayList<>();
 
@@ -165,7 +173,7 @@ public class CanvasManager implements CameraView {
 				// addArenaShot when they go through the arena camera feed's
 				// canvas manager
 				if (this instanceof MirroredCanvasManager) {
-					final long shotTimestamp = System.currentTimeMillis();
+					final long shotTimestamp = CaptureClock.currentTimeMillis();
 
 					addShot(new DisplayShot(new Shot(shotColor, event.getX(), event.getY(), shotTimestamp), config.getMarkerRadius()), false);
 				} else {
@@ -181,6 +189,7 @@ public class CanvasManager implements CameraView {
 	@Override
 	public void close() {
 		diagnosticExecutorService.shutdownNow();
+		displayBuffer.close();
 	}
 
 	@Override
@@ -334,6 +343,41 @@ public class CanvasManager implements CameraView {
 		Platform.runLater(() -> background.setImage(img));
 	}
 
+	@Override
+	public void showFrame(Frame frame, Optional<Bounds> projectionBounds) {
+		updateCanvasGroup();
+
+		// Check the frame rate before touching the frame so skipped frames
+		// are never converted
+		if (System.currentTimeMillis() - lastFrameTime < MINIMUM_FRAME_DELTA)
+			return;
+		else
+			lastFrameTime = System.currentTimeMillis();
+
+		final long start = System.nanoTime();
+
+		// Scaled and converted straight from the frame's Mat into a reused
+		// image, so no AWT images or FX images are created per frame
+		if (projectionBounds.isPresent()) {
+			final Bounds b = projectionBounds.get();
+			final Bounds translatedBounds = translateCameraToCanvas(b);
+			background.setX(translatedBounds.getMinX());
+			background.setY(translatedBounds.getMinY());
+
+			final Rect crop = new Rect((int) b.getMinX(), (int) b.getMinY(), (int) b.getWidth(), (int) b.getHeight());
+
+			displayBuffer.show(frame.getCroppedMat(crop), (int) translatedBounds.getWidth(),
+					(int) translatedBounds.getHeight());
+		} else {
+			background.setX(0);
+			background.setY(0);
+
+			displayBuffer.show(frame.getOriginalMat(), config.getDisplayWidth(), config.getDisplayHeight());
+		}
+
+		if (cameraManager != null) cameraManager.getStageLatencies().recordSince(StageLatencies.Stage.DISPLAY, start);
+	}
+
 	public void updateBackground(Image img) {
 		updateCanvasGroup();
 		background.setX(0);
@@ -528,7 +572,7 @@ public class CanvasManager implements CameraView {
 		Optional<ShotProcessor> rejectingProcessor = Optional.empty();
 
 		for (final ShotProcessor processor : config.getShotProcessors()) {
-			if (!processor.processShot(shot)) {
+			if (!ShotProcessorCounts.record(processor, processor.processShot(shot))) {
 				if (processor instanceof MalfunctionsProcessor) {
 					hadMalfunction = true;
 				} else if (processor instanceof VirtualMagazineProcessor) {
@@ -569,7 +613,12 @@ public class CanvasManager implements CameraView {
 	@Override
 	public void addShot(DisplayShot shot, boolean isMirroredShot) {
 		if (!isMirroredShot) {
+			final long processingStart = System.nanoTime();
 			final Optional<ShotProcessor> rejectingProcessor = processShot(shot);
+			FlightRecorderEvents.shot(ShotStage.PROCESSED, cameraName, shot, !rejectingProcessor.isPresent(),
+					rejectingProcessor.map(p -> p.getClass().getSimpleName()).orElse(null),
+					System.nanoTime() - processingStart);
+
 			if (rejectingProcessor.isPresent()) {
 				recordRejectedShot(shot, rejectingProcessor.get());
 				return;
@@ -644,7 +693,7 @@ public class CanvasManager implements CameraView {
 		if (passedToArena || processedShot) return;
 
 		final Optional<TrainingExercise> currentExercise = config.getExercise();
-		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		final Optional<Hit> hit = hitTest(shot, videoString, isMirroredShot);
 		if (hit.isPresent() && hit.get().getHitRegion().tagExists("command")) executeRegionCommands(hit.get(), isMirroredShot);
 
 		if (currentExercise.isPresent() && !processedShot) {
@@ -654,9 +703,9 @@ public class CanvasManager implements CameraView {
 			// copies and will not be the versions of the targets added
 			// by exercises.
 			if ((this instanceof MirroredCanvasManager) && cameraManager == null) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 			} else if (!(this instanceof MirroredCanvasManager)) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 			}
 		}
 	}
@@ -685,14 +734,14 @@ public class CanvasManager implements CameraView {
 		drawShot(shot);
 
 		final Optional<TrainingExercise> currentExercise = config.getExercise();
-		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		final Optional<Hit> hit = hitTest(shot, videoString, isMirroredShot);
 		if (hit.isPresent() && hit.get().getHitRegion().tagExists("command")) {
 			executeRegionCommands(hit.get(), isMirroredShot);
 		}
 
 		if (!isMirroredShot) {
 			if (currentExercise.isPresent()) {
-				currentExercise.get().shotListener(shot, hit);
+				notifyExercise(currentExercise.get(), shot, hit);
 				return true;
 			}
 		}
@@ -700,6 +749,22 @@ public class CanvasManager implements CameraView {
 		return false;
 	}
 
+	private Optional<Hit> hitTest(DisplayShot shot, Optional<String> videoString, boolean isMirroredShot) {
+		final long hitTestStart = System.nanoTime();
+		final Optional<Hit> hit = checkHit(shot, videoString, isMirroredShot);
+		FlightRecorderEvents.shot(ShotStage.HIT_TESTED, cameraName, shot, hit.isPresent(), null,
+				System.nanoTime() - hitTestStart);
+
+		return hit;
+	}
+
+	private void notifyExercise(TrainingExercise exercise, DisplayShot shot, Optional<Hit> hit) {
+		final long notifyStart = System.nanoTime();
+		exercise.shotListener(shot, hit);
+		FlightRecorderEvents.shot(ShotStage.EXERCISE_NOTIFIED, cameraName, shot, true,
+				exercise.getClass().getSimpleName(), System.nanoTime() - notifyStart);
+	}
+
 	private void drawShot(DisplayShot shot) {
 		final Runnable drawShotAction = () -> {
 			canvasGroup.getChildren().add(shot.getMarker());
@@ -268,7 +268,10 @@ public class CheckableImageListCell extends TextFieldListCell<String> {
 
 			Image webcamImg = null;
 			if (webcam.isOpen()) {
-				final BufferedImage img = webcam.getBufferedImage();
+				// A camera that is already streaming is read by its detection
+				// stage, thus only a camera opened just for this can be read
+				// directly
+				final BufferedImage img = cameraOpened ? webcam.getBufferedImage() : webcam.getLatestImage();
 
 				if (img != null) {
 					webcamImg = SwingFXUtils.toFXImage(img, null);
@@ -0,0 +1,170 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import com.shootoff.Closeable;
+
+import javafx.application.Platform;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Shows camera frames on a canvas without going through AWT. A frame is
+ * scaled and converted to RGB with OpenCV into one of two reused pixel
+ * buffers on the camera's display thread, then copied into a reused
+ * {@link WritableImage} on the JavaFX thread. The camera thread always writes
+ * to the buffer the JavaFX thread isn't reading, thus neither side waits on
+ * the other and nothing is allocated per frame once the display size is
+ * stable. If the JavaFX thread falls behind, only the newest frame is shown.
+ */
+final class FrameDisplayBuffer implements Closeable {
+	private static final PixelFormat<ByteBuffer> RGB_FORMAT = PixelFormat.getByteRgbInstance();
+
+	private final Consumer<WritableImage> imageConsumer;
+
+	// Only used by the camera's display thread
+	private final Mat scaled = new Mat();
+
+	// Guarded by this
+	private final byte[][] pixels = new byte[2][];
+	private final int[] widths = new int[2];
+	private final int[] heights = new int[2];
+	private int writeIndex = 0;
+	private int readyIndex = -1;
+	private int readingIndex = -1;
+	private boolean presentScheduled = false;
+	private boolean closed = false;
+
+	// Only used on the JavaFX thread
+	private WritableImage image = null;
+
+	/**
+	 * @param imageConsumer
+	 *            called on the JavaFX thread with the image each frame was
+	 *            written to. The image is only replaced when the display size
+	 *            changes.
+	 */
+	FrameDisplayBuffer(Consumer<WritableImage> imageConsumer) {
+		this.imageConsumer = imageConsumer;
+	}
+
+	/**
+	 * Scale <code>source</code> to the given size and show it. Must only be
+	 * called from one thread at a time.
+	 */
+	public void show(Mat source, int width, int height) {
+		if (width <= 0 || height <= 0 || source.empty()) return;
+
+		final int index;
+		synchronized (this) {
+			if (closed) {
+				scaled.release();
+				return;
+			}
+
+			if (writeIndex == readingIndex) writeIndex = 1 - writeIndex;
+			// Overwriting a frame that hasn't been shown yet, so it must not
+			// be shown until it's complete again
+			if (writeIndex == readyIndex) readyIndex = -1;
+			index = writeIndex;
+		}
+
+		if (source.cols() == width && source.rows() == height) {
+			toRGB(source, scaled);
+		} else {
+			Imgproc.resize(source, scaled, new Size(width, height), 0, 0, Imgproc.INTER_LINEAR);
+			toRGB(scaled, scaled);
+		}
+
+		final int size = width * height * 3;
+		if (pixels[index] == null || pixels[index].length != size) pixels[index] = new byte[size];
+		scaled.get(0, 0, pixels[index]);
+
+		final boolean schedule;
+		synchronized (this) {
+			widths[index] = width;
+			heights[index] = height;
+			readyIndex = index;
+			writeIndex = 1 - index;
+
+			schedule = !presentScheduled;
+			presentScheduled = true;
+		}
+
+		if (schedule) Platform.runLater(this::present);
+	}
+
+	private static void toRGB(Mat source, Mat destination) {
+		switch (source.channels()) {
+		case 1:
+			Imgproc.cvtColor(source, destination, Imgproc.COLOR_GRAY2RGB);
+			break;
+		case 4:
+			Imgproc.cvtColor(source, destination, Imgproc.COLOR_BGRA2RGB);
+			break;
+		default:
+			Imgproc.cvtColor(source, destination, Imgproc.COLOR_BGR2RGB);
+		}
+	}
+
+	private void present() {
+		final int index;
+		synchronized (this) {
+			presentScheduled = false;
+			if (closed || readyIndex < 0) return;
+
+			index = readyIndex;
+			readyIndex = -1;
+			readingIndex = index;
+		}
+
+		try {
+			final int width = widths[index];
+			final int height = heights[index];
+
+			if (image == null || (int) image.getWidth() != width || (int) image.getHeight() != height) {
+				image = new WritableImage(width, height);
+			}
+
+			image.getPixelWriter().setPixels(0, 0, width, height, RGB_FORMAT, pixels[index], 0, width * 3);
+			imageConsumer.accept(image);
+		} finally {
+			synchronized (this) {
+				readingIndex = -1;
+			}
+		}
+	}
+
+	/**
+	 * Stop showing frames. The scaling buffer is released by the display
+	 * thread the next time it tries to show a frame because it may be using it
+	 * right now.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+	}
+}
@@ -5,6 +5,7 @@ import java.io.File;
 import java.util.Map;
 import java.util.Optional;
 
+import com.shootoff.camera.Frame;
 import com.shootoff.camera.shot.ArenaShot;
 import com.shootoff.camera.shot.DisplayShot;
 import com.shootoff.config.Configuration;
@@ -156,6 +157,16 @@ public class MirroredCanvasManager extends CanvasManager {
 		super.updateBackground(frame, projectionBounds);
 	}
 
+	@Override
+	public void showFrame(Frame frame, Optional<Bounds> projectionBounds) {
+		mirroredManager.mirrorShowFrame(frame, projectionBounds);
+		super.showFrame(frame, projectionBounds);
+	}
+
+	public void mirrorShowFrame(Frame frame, Optional<Bounds> projectionBounds) {
+		super.showFrame(frame, projectionBounds);
+	}
+
 	@Override
 	public void updateBackground(Image img) {
 		mirroredManager.mirrorUpdateBackground(img);
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import com.shootoff.camera.CameraDiscoveryListener;
 import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.config.Configuration;
@@ -71,7 +72,7 @@ import javafx.stage.Stage;
 import javafx.util.Callback;
 
 public class PreferencesController implements DesignateShotRecorderListener, CameraSelectionListener,
-CameraRenamedListener {
+CameraRenamedListener, CameraDiscoveryListener {
 	@FXML private ScrollPane preferencesPane;
 	@FXML private ListView<String> webcamListView;
 	@FXML private Slider markerRadiusSlider;
@@ -157,6 +158,7 @@ CameraRenamedListener {
 		}
 
 		webcamListView.setItems(cameras);
+		CameraFactory.addDiscoveryListener(this);
 
 		markerRadiusSlider.setValue(config.getMarkerRadius());
 		ignoreLaserColorChoiceBox.setValue(config.getIgnoreLaserColorName());
@@ -219,6 +221,27 @@ CameraRenamedListener {
 		}
 	}
 
+	@Override
+	public void cameraAdded(Camera camera) {
+		Platform.runLater(() -> {
+			CheckableImageListCell.cacheCamera(camera, this);
+
+			if (!configuredCameras.contains(camera)) {
+				webcamListView.setItems(null);
+				cameras.add(camera.getName());
+				webcamListView.setItems(cameras);
+			}
+		});
+	}
+
+	@Override
+	public void cameraRemoved(Camera camera) {
+		// Configured cameras stay listed so the user can see they are missing
+		Platform.runLater(() -> {
+			if (!configuredCameras.contains(camera)) cameras.remove(camera.getName());
+		});
+	}
+
 	public void prepareToShow() {
 		cameraConfigChanged = false;
 		cameraRenamed = false;
@@ -37,7 +37,6 @@ import javax.imageio.ImageIO;
 import java.util.Optional;
 import java.util.Set;
 
-import org.openimaj.util.parallel.GlobalExecutorPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,8 +47,10 @@ import com.shootoff.camera.CameraFactory;
 import com.shootoff.camera.CameraManager;
 import com.shootoff.camera.CameraView;
 import com.shootoff.camera.CamerasSupervisor;
+import com.shootoff.camera.FramePool;
 import com.shootoff.camera.cameratypes.Camera;
 import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.camera.shotdetection.TileScheduler;
 import com.shootoff.config.Configuration;
 import com.shootoff.gui.CalibrationManager;
 import com.shootoff.gui.CameraConfigListener;
@@ -57,11 +58,13 @@ import com.shootoff.gui.CanvasManager;
 import com.shootoff.gui.ExerciseListener;
 import com.shootoff.gui.Resetter;
 import com.shootoff.gui.ShotEntry;
+import com.shootoff.gui.pane.DetectionMaskPane;
 import com.shootoff.gui.pane.ExerciseSlide;
 import com.shootoff.gui.pane.FileSlide;
 import com.shootoff.gui.pane.ProjectorSlide;
 import com.shootoff.gui.pane.ShotSectorPane;
 import com.shootoff.gui.pane.TargetSlide;
+import com.shootoff.metrics.StationMetrics;
 import com.shootoff.plugins.ExerciseMetadata;
 import com.shootoff.plugins.ProjectorTrainingExerciseBase;
 import com.shootoff.plugins.TrainingExercise;
@@ -137,6 +140,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 
 	private String defaultWindowTitle;
 	private CamerasSupervisor camerasSupervisor;
+	private StationMetrics stationMetrics;
 	private Configuration config;
 	private PluginEngine pluginEngine;
 	private static final Logger logger = LoggerFactory.getLogger(ShootOFFController.class);
@@ -161,6 +165,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	public void init(Configuration config) throws IOException {
 		this.config = config;
 		camerasSupervisor = new CamerasSupervisor(config);
+		stationMetrics = StationMetrics.start(config, camerasSupervisor);
 
 		shootOFFStage = (Stage) controlsContainer.getScene().getWindow();
 
@@ -395,6 +400,7 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	public void close() {
 		shootOFFStage.close();
 		camerasSupervisor.closeAll();
+		stationMetrics.close();
 		pluginEngine.stopWatching();
 
 		if (config.getExercise().isPresent()) config.getExercise().get().destroy();
@@ -410,7 +416,8 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 		}
 
 		TimerPool.close();
-		GlobalExecutorPool.getPool().shutdownNow();
+		TileScheduler.close();
+		FramePool.clear();
 
 		if (!config.getVideoPlayers().isEmpty()) {
 			for (final VideoPlayerController videoPlayer : config.getVideoPlayers()) {
@@ -499,12 +506,21 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 	@Override
 	public void cameraConfigUpdated() {
 		config.unregisterAllRecordingCameraManagers();
-		addConfiguredCameras();
+		// Video cameras replace the configured cameras for the whole session
+		if (config.getVideoCameras().isEmpty()) addConfiguredCameras();
 	}
 
 	private final Map<Tab, CameraManager> cameraManagerTabs = new HashMap<>();
 
 	private void addCameraTabs() {
+		if (!config.getVideoCameras().isEmpty()) {
+			for (final Camera c : config.getVideoCameras()) {
+				if (!addCameraTab(c.getName(), c)) showCameraLockError(c, false);
+			}
+
+			return;
+		}
+
 		if (!config.getWebcams().isEmpty()) {
 			addConfiguredCameras();
 			return;
@@ -790,6 +806,23 @@ public class ShootOFFController implements CameraConfigListener, CameraErrorView
 
 		contextMenu.getItems().add(toggleDetectionSectors);
 
+		final MenuItem editDetectionMask = new MenuItem("Edit Shot Detection Mask");
+
+		editDetectionMask.setOnAction((event) -> {
+			final HBox tabAnchor = (HBox) cameraTabPane.getSelectionModel().getSelectedItem().getContent();
+
+			// Only add the pane if it isn't already open
+			for (final Node node : tabAnchor.getChildren()) {
+				if (node instanceof DetectionMaskPane) return;
+			}
+
+			final int cameraIndex = cameraTabPane.getSelectionModel().getSelectedIndex();
+			new DetectionMaskPane(tabAnchor, camerasSupervisor.getCameraManager(cameraIndex),
+					(CanvasManager) camerasSupervisor.getCameraView(cameraIndex));
+		});
+
+		contextMenu.getItems().add(editDetectionMask);
+
 		if (SystemInfo.isWindows()) {
 			final MenuItem cameraMenuItem = new MenuItem("Configure Camera");
 
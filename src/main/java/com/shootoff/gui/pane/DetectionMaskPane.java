@@ -0,0 +1,205 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.gui.pane;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.shotdetection.DetectionMask;
+import com.shootoff.config.Configuration;
+import com.shootoff.config.ConfigurationException;
+import com.shootoff.gui.CanvasManager;
+
+import javafx.event.EventHandler;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.scene.Group;
+import javafx.scene.control.Button;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+
+/**
+ * Lets the user draw include and exclude polygons over a camera feed to limit
+ * where shots are detected. Vertices are added by left clicking on the feed and
+ * a polygon is finished with a right click. Polygons are stored in camera
+ * coordinates and saved per camera when the user is done.
+ */
+public class DetectionMaskPane extends BorderPane {
+	private static final Logger logger = LoggerFactory.getLogger(DetectionMaskPane.class);
+
+	private static final Color INCLUDE_COLOR = Color.LIMEGREEN;
+	private static final Color EXCLUDE_COLOR = Color.RED;
+	private static final double REGION_OPACITY = .25;
+
+	private final CameraManager cameraManager;
+	private final CanvasManager canvasManager;
+
+	private final List<DetectionMask.Region> regions;
+	private final Group overlay = new Group();
+	private final Polyline currentPolygon = new Polyline();
+	private final List<Double> currentXs = new ArrayList<>();
+	private final List<Double> currentYs = new ArrayList<>();
+
+	private final RadioButton includeButton = new RadioButton("Include");
+	private final EventHandler<MouseEvent> clickHandler = this::handleClick;
+
+	public DetectionMaskPane(Pane parent, CameraManager cameraManager, CanvasManager canvasManager) {
+		this.cameraManager = cameraManager;
+		this.canvasManager = canvasManager;
+		this.regions = new ArrayList<>(cameraManager.getDetectionMask().getRegions());
+
+		final ToggleGroup regionType = new ToggleGroup();
+		final RadioButton excludeButton = new RadioButton("Exclude");
+		includeButton.setToggleGroup(regionType);
+		excludeButton.setToggleGroup(regionType);
+		excludeButton.setSelected(true);
+
+		includeButton.setOnAction((event) -> updateCurrentPolygonColor());
+		excludeButton.setOnAction((event) -> updateCurrentPolygonColor());
+
+		final Button undoButton = new Button("Undo");
+		undoButton.setOnAction((event) -> {
+			if (!currentXs.isEmpty()) {
+				clearCurrentPolygon();
+			} else if (!regions.isEmpty()) {
+				regions.remove(regions.size() - 1);
+				cameraManager.setDetectionMask(new DetectionMask(regions));
+				drawRegions();
+			}
+		});
+
+		final Button clearButton = new Button("Clear");
+		clearButton.setOnAction((event) -> {
+			clearCurrentPolygon();
+			regions.clear();
+			cameraManager.setDetectionMask(DetectionMask.EMPTY);
+			drawRegions();
+		});
+
+		final Button doneButton = new Button("Done");
+		doneButton.setOnAction((event) -> {
+			canvasManager.getCanvasGroup().removeEventHandler(MouseEvent.MOUSE_CLICKED, clickHandler);
+			canvasManager.removeChild(overlay);
+			parent.getChildren().remove(this);
+
+			final Configuration config = Configuration.getConfig();
+			try {
+				config.writeConfigurationFile();
+			} catch (ConfigurationException | IOException e) {
+				logger.error("Failed to persist detection mask", e);
+			}
+		});
+
+		final VBox controls = new VBox(5, includeButton, excludeButton, undoButton, clearButton, doneButton);
+		controls.setPadding(new Insets(5));
+		setTop(controls);
+
+		currentPolygon.setStrokeWidth(2);
+		updateCurrentPolygonColor();
+		drawRegions();
+
+		canvasManager.addChild(overlay);
+		canvasManager.getCanvasGroup().addEventHandler(MouseEvent.MOUSE_CLICKED, clickHandler);
+
+		parent.getChildren().add(this);
+	}
+
+	private void handleClick(MouseEvent event) {
+		event.consume();
+
+		if (event.getButton() == MouseButton.PRIMARY) {
+			currentXs.add(event.getX());
+			currentYs.add(event.getY());
+			currentPolygon.getPoints().addAll(event.getX(), event.getY());
+		} else if (event.getButton() == MouseButton.SECONDARY) {
+			finishCurrentPolygon();
+		}
+	}
+
+	private void finishCurrentPolygon() {
+		if (currentXs.size() < 3) {
+			clearCurrentPolygon();
+			return;
+		}
+
+		final double[] xs = new double[currentXs.size()];
+		final double[] ys = new double[currentYs.size()];
+
+		for (int i = 0; i < xs.length; i++) {
+			final Bounds cameraPoint = canvasManager
+					.translateCanvasToCamera(new BoundingBox(currentXs.get(i), currentYs.get(i), 0, 0));
+			xs[i] = cameraPoint.getMinX();
+			ys[i] = cameraPoint.getMinY();
+		}
+
+		regions.add(new DetectionMask.Region(includeButton.isSelected(), xs, ys));
+		cameraManager.setDetectionMask(new DetectionMask(regions));
+
+		clearCurrentPolygon();
+		drawRegions();
+	}
+
+	private void clearCurrentPolygon() {
+		currentXs.clear();
+		currentYs.clear();
+		currentPolygon.getPoints().clear();
+	}
+
+	private void updateCurrentPolygonColor() {
+		currentPolygon.setStroke(includeButton.isSelected() ? INCLUDE_COLOR : EXCLUDE_COLOR);
+	}
+
+	private void drawRegions() {
+		overlay.getChildren().clear();
+
+		for (final DetectionMask.Region region : regions) {
+			final Polygon polygon = new Polygon();
+
+			for (int i = 0; i < region.getVertexCount(); i++) {
+				final Bounds canvasPoint = canvasManager
+						.translateCameraToCanvas(new BoundingBox(region.getX(i), region.getY(i), 0, 0));
+				polygon.getPoints().addAll(canvasPoint.getMinX(), canvasPoint.getMinY());
+			}
+
+			final Color color = region.isInclude() ? INCLUDE_COLOR : EXCLUDE_COLOR;
+			polygon.setFill(color.deriveColor(0, 1, 1, REGION_OPACITY));
+			polygon.setStroke(color);
+			polygon.setMouseTransparent(true);
+
+			overlay.getChildren().add(polygon);
+		}
+
+		currentPolygon.setMouseTransparent(true);
+		overlay.getChildren().add(currentPolygon);
+	}
+}
@@ -43,6 +43,7 @@ import com.shootoff.camera.CameraView;
 import com.shootoff.camera.CamerasSupervisor;
 import com.shootoff.camera.Shot;
 import com.shootoff.camera.cameratypes.Camera;
+import com.shootoff.camera.shotdetection.TileScheduler;
 import com.shootoff.config.Configuration;
 import com.shootoff.config.ConfigurationException;
 import com.shootoff.courses.Course;
@@ -92,6 +93,7 @@ import com.shootoff.headless.protocol.SetExerciseMessage;
 import com.shootoff.headless.protocol.StartCalibrationMessage;
 import com.shootoff.headless.protocol.StopCalibrationMessage;
 import com.shootoff.headless.protocol.TargetMessage;
+import com.shootoff.metrics.StationMetrics;
 import com.shootoff.plugins.ExerciseMetadata;
 import com.shootoff.plugins.ProjectorTrainingExerciseBase;
 import com.shootoff.plugins.TrainingExercise;
@@ -132,6 +134,7 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 	private final Configuration config;
 	private final ProjectorArenaPane arenaPane;
 	private final CamerasSupervisor camerasSupervisor;
+	private final StationMetrics stationMetrics;
 	private final CanvasManager arenaCanvasManager;
 	private final Map<UUID, Target> targets = new HashMap<>();
 	private final Set<TrainingExercise> trainingExercises = new HashSet<>();
@@ -183,11 +186,18 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		arenaStage.setFullScreenExitHint("");
 
 		camerasSupervisor = new CamerasSupervisor(config);
+		stationMetrics = StationMetrics.start(config, camerasSupervisor);
+
+		// Headless stations are stopped by the operating system rather than
+		// from a window, thus they clean up from a shutdown hook
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close, "Headless Shutdown"));
 
 		final Map<String, Camera> configuredCameras = config.getWebcams();
 		final Optional<Camera> camera;
 
-		if (configuredCameras.isEmpty()) {
+		if (!config.getVideoCameras().isEmpty()) {
+			camera = Optional.of(config.getVideoCameras().get(0));
+		} else if (configuredCameras.isEmpty()) {
 			camera = CameraFactory.getDefault();
 		} else {
 			camera = Optional.of(configuredCameras.values().iterator().next());
@@ -252,6 +262,12 @@ public class HeadlessController implements AutocalibrationListener, CameraErrorV
 		}
 	}
 
+	private void close() {
+		camerasSupervisor.closeAll();
+		stationMetrics.close();
+		TileScheduler.close();
+	}
+
 	@Override
 	public void reset() {
 		camerasSupervisor.reset();
@@ -0,0 +1,177 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.StageLatencies;
+import com.shootoff.camera.shotdetection.ShotDetector;
+
+/**
+ * Reads a camera's metrics from its {@link CameraManager} every time they are
+ * requested, thus nothing is collected unless someone is looking.
+ */
+public final class CameraMetrics implements CameraMetricsMXBean {
+	private static final Logger logger = LoggerFactory.getLogger(CameraMetrics.class);
+
+	private final CameraManager cameraManager;
+
+	public CameraMetrics(CameraManager cameraManager) {
+		this.cameraManager = cameraManager;
+	}
+
+	// Cameras can share a name, thus each registered camera remembers the name
+	// it was given so it unregisters its own MBean
+	private static final Map<CameraManager, ObjectName> registeredNames = new HashMap<>();
+
+	/**
+	 * Register an MBean for <code>cameraManager</code>. Cameras with the same
+	 * name are told apart by an index in their object name. Failures are
+	 * logged because metrics must never keep a camera from being used.
+	 */
+	public static synchronized void register(CameraManager cameraManager) {
+		if (registeredNames.containsKey(cameraManager)) return;
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			final ObjectName name = freeObjectName(server, cameraManager);
+			server.registerMBean(new CameraMetrics(cameraManager), name);
+			registeredNames.put(cameraManager, name);
+		} catch (final JMException e) {
+			logger.warn("Failed to register metrics for camera " + cameraManager.getName(), e);
+		}
+	}
+
+	public static synchronized void unregister(CameraManager cameraManager) {
+		final ObjectName name = registeredNames.remove(cameraManager);
+		if (name == null) return;
+
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			if (server.isRegistered(name)) server.unregisterMBean(name);
+		} catch (final JMException e) {
+			logger.warn("Failed to unregister metrics for camera " + cameraManager.getName(), e);
+		}
+	}
+
+	private static ObjectName freeObjectName(MBeanServer server, CameraManager cameraManager) throws JMException {
+		final String base = "com.shootoff:type=Camera,name=" + ObjectName.quote(cameraManager.getName());
+
+		ObjectName name = new ObjectName(base);
+		for (int index = 1; server.isRegistered(name); index++)
+			name = new ObjectName(base + ",index=" + index);
+
+		return name;
+	}
+
+	@Override
+	public String getName() {
+		return cameraManager.getName();
+	}
+
+	@Override
+	public double getCameraFPS() {
+		return cameraManager.getFPS();
+	}
+
+	@Override
+	public double getMedianFPS() {
+		return cameraManager.getFrameTiming().getMedianFPS();
+	}
+
+	@Override
+	public long getStallCount() {
+		return cameraManager.getFrameTiming().getStallCount();
+	}
+
+	@Override
+	public long getDetectionDroppedFrames() {
+		return cameraManager.getDetectionQueue().getDroppedCount();
+	}
+
+	@Override
+	public long getRecordingDroppedFrames() {
+		return cameraManager.getRecordingQueue().getDroppedCount();
+	}
+
+	@Override
+	public long getDisplayDroppedFrames() {
+		return cameraManager.getDisplayQueue().getDroppedCount();
+	}
+
+	@Override
+	public int getRecordingQueueDepth() {
+		return cameraManager.getRecordingQueue().getDepth();
+	}
+
+	@Override
+	public int getThresholdPixelCount() {
+		return getThresholdPixelCount(cameraManager);
+	}
+
+	static int getThresholdPixelCount(CameraManager cameraManager) {
+		final ShotDetector shotDetector = cameraManager.getShotDetector();
+
+		return shotDetector == null ? -1 : shotDetector.getThresholdPixelCount();
+	}
+
+	@Override
+	public Map<String, Double> getStageLatencyP50Millis() {
+		return getStageLatencyMillis(50);
+	}
+
+	@Override
+	public Map<String, Double> getStageLatencyP95Millis() {
+		return getStageLatencyMillis(95);
+	}
+
+	@Override
+	public Map<String, Double> getStageLatencyP99Millis() {
+		return getStageLatencyMillis(99);
+	}
+
+	private Map<String, Double> getStageLatencyMillis(double percentile) {
+		final StageLatencies latencies = cameraManager.getStageLatencies();
+		final Map<String, Double> stageMillis = new LinkedHashMap<>();
+
+		for (final StageLatencies.Stage stage : StageLatencies.Stage.values()) {
+			stageMillis.put(stage.name().toLowerCase(), latencies.get(stage).getPercentileNanos(percentile) / 1e6);
+		}
+
+		return stageMillis;
+	}
+
+	@Override
+	public long getFrameBytesInUse() {
+		return cameraManager.getFrameMemory().getBytesInUse();
+	}
+}
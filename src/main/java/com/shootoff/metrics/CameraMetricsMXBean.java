@@ -0,0 +1,74 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.util.Map;
+
+/**
+ * Operational metrics for one camera, registered with the platform MBean
+ * server as <code>com.shootoff:type=Camera,name=&lt;camera name&gt;</code>.
+ * Further cameras with the same name get <code>,index=1</code>,
+ * <code>,index=2</code> and so on.
+ */
+public interface CameraMetricsMXBean {
+	String getName();
+
+	/**
+	 * @return the frame rate the camera reports
+	 */
+	double getCameraFPS();
+
+	/**
+	 * @return the frame rate implied by the median interval between the
+	 *         frames the pipeline received
+	 */
+	double getMedianFPS();
+
+	/**
+	 * @return how often the camera took much longer than usual to deliver a
+	 *         frame
+	 */
+	long getStallCount();
+
+	long getDetectionDroppedFrames();
+
+	long getRecordingDroppedFrames();
+
+	long getDisplayDroppedFrames();
+
+	int getRecordingQueueDepth();
+
+	/**
+	 * @return the number of pixels that could be part of a shot in the last
+	 *         frame, or -1 if the shot detector doesn't count them
+	 */
+	int getThresholdPixelCount();
+
+	/**
+	 * @return the median duration of each pipeline stage in milliseconds,
+	 *         keyed by stage
+	 */
+	Map<String, Double> getStageLatencyP50Millis();
+
+	Map<String, Double> getStageLatencyP95Millis();
+
+	Map<String, Double> getStageLatencyP99Millis();
+
+	long getFrameBytesInUse();
+}
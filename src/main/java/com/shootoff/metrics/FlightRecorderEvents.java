@@ -0,0 +1,178 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.camera.Shot;
+
+/**
+ * Emits PhanMemBanSung's Java Flight Recorder events: one per processed frame,
+ * one per step of a shot's life, one per fork of a rolling recording and one
+ * per sound or phrase that starts playing. A continuous recording of them
+ * alongside the JVM's own events (e.g. started with
+ * <code>-XX:StartFlightRecording=disk=true,maxage=1h,settings=default</code>)
+ * lets garbage collection pauses, encoding stalls and missed shots from a bad
+ * session be lined up in Mission Control.
+ * 
+ * The events are only emitted when the running JVM has Flight Recorder (Java
+ * 8u272 and later or Java 11 and later). Otherwise, and whenever their event
+ * type is not enabled in a running recording, every method here returns
+ * without allocating anything.
+ */
+public final class FlightRecorderEvents {
+	private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEvents.class);
+
+	private static final String JFR_SINK_CLASS = "com.shootoff.metrics.JfrEventSink";
+
+	/**
+	 * The steps a shot goes through from being found in a frame to being
+	 * handed to the current exercise.
+	 */
+	public enum ShotStage {
+		DETECTED, DEDUPED, PROCESSED, HIT_TESTED, EXERCISE_NOTIFIED
+	}
+
+	/**
+	 * A frame that is being processed by a shot detector.
+	 */
+	public interface FrameSpan {
+		void commit(String camera, int frame, long sinceCaptureNanos, long hsvConversionNanos, long thresholdNanos,
+				long clusteringNanos, int thresholdPixels, int clusters);
+	}
+
+	/**
+	 * A rolling recording that is being forked.
+	 */
+	public interface ForkSpan {
+		void commit(String camera, boolean forShot, int bufferedFrames);
+	}
+
+	/**
+	 * A sound or phrase that was asked for but has not started playing yet.
+	 */
+	public interface AudioSpan {
+		void commit(String kind, String source);
+	}
+
+	interface Sink {
+		FrameSpan beginFrame();
+
+		ForkSpan beginFork();
+
+		AudioSpan beginAudio();
+
+		void shot(ShotStage stage, String camera, Shot shot, boolean accepted, String detail, long stageNanos);
+	}
+
+	static final FrameSpan NO_FRAME = (camera, frame, sinceCaptureNanos, hsvConversionNanos, thresholdNanos,
+			clusteringNanos, thresholdPixels, clusters) -> {};
+	static final ForkSpan NO_FORK = (camera, forShot, bufferedFrames) -> {};
+	static final AudioSpan NO_AUDIO = (kind, source) -> {};
+
+	private static final Sink NO_SINK = new Sink() {
+		@Override
+		public FrameSpan beginFrame() {
+			return NO_FRAME;
+		}
+
+		@Override
+		public ForkSpan beginFork() {
+			return NO_FORK;
+		}
+
+		@Override
+		public AudioSpan beginAudio() {
+			return NO_AUDIO;
+		}
+
+		@Override
+		public void shot(ShotStage stage, String camera, Shot shot, boolean accepted, String detail,
+				long stageNanos) {}
+	};
+
+	private static final Sink sink = createSink();
+
+	private FlightRecorderEvents() {}
+
+	// The events extend jdk.jfr.Event, thus they are only loaded by name once
+	// it is known that this JVM has it. The sink is missing from builds made
+	// with a JDK without Flight Recorder, which also falls back to no events.
+	private static Sink createSink() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+			return (Sink) Class.forName(JFR_SINK_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			if (logger.isDebugEnabled())
+				logger.debug("Java Flight Recorder is not available, its events will not be emitted: {}", e.toString());
+			return NO_SINK;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if this JVM has Flight Recorder, whether or
+	 *         not it is recording right now
+	 */
+	public static boolean isAvailable() {
+		return sink != NO_SINK;
+	}
+
+	/**
+	 * Start timing the processing of a frame. The returned span must be
+	 * committed once the frame is done.
+	 */
+	public static FrameSpan beginFrame() {
+		return sink.beginFrame();
+	}
+
+	/**
+	 * Start timing a fork of a rolling recording. The returned span must be
+	 * committed once the fork is done.
+	 */
+	public static ForkSpan beginFork() {
+		return sink.beginFork();
+	}
+
+	/**
+	 * Start timing how long a sound or phrase takes to start playing. The
+	 * returned span must be committed when its first audio is handed to the
+	 * sound card.
+	 */
+	public static AudioSpan beginAudio() {
+		return sink.beginAudio();
+	}
+
+	/**
+	 * Record that <code>shot</code> finished <code>stage</code>.
+	 * 
+	 * @param accepted
+	 *            <code>false</code> if the stage rejected the shot or, for
+	 *            {@link ShotStage#HIT_TESTED}, the shot missed every target
+	 * @param detail
+	 *            what rejected or was hit by the shot, may be
+	 *            <code>null</code>
+	 * @param stageNanos
+	 *            how long the stage took
+	 */
+	public static void shot(ShotStage stage, String camera, Shot shot, boolean accepted, String detail,
+			long stageNanos) {
+		sink.shot(stage, camera, shot, accepted, detail, stageNanos);
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.Closeable;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves metrics in the Prometheus text format at <code>/metrics</code> on
+ * localhost only. Requests are handled one at a time on a single daemon
+ * thread, thus scrapes can never compete with the cameras for more than one
+ * core.
+ */
+final class MetricsServer implements Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private MetricsServer(HttpServer server, ExecutorService executor) {
+		this.server = server;
+		this.executor = executor;
+	}
+
+	/**
+	 * @param metrics
+	 *            builds the text of every scrape
+	 * @throws IOException
+	 *             if the port can't be bound, e.g. because another program
+	 *             is using it
+	 */
+	public static MetricsServer start(int port, Supplier<String> metrics) throws IOException {
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		final ExecutorService executor = Executors.newSingleThreadExecutor((r) -> {
+			final Thread thread = new Thread(r, "Metrics Server");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		server.createContext("/metrics", (exchange) -> serve(exchange, metrics));
+		server.setExecutor(executor);
+		server.start();
+
+		logger.info("Serving metrics at http://{}:{}/metrics", InetAddress.getLoopbackAddress().getHostAddress(),
+				port);
+
+		return new MetricsServer(server, executor);
+	}
+
+	private static void serve(HttpExchange exchange, Supplier<String> metrics) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			final byte[] body = metrics.get().getBytes(StandardCharsets.UTF_8);
+
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} catch (final RuntimeException e) {
+			logger.error("Error collecting metrics", e);
+			exchange.sendResponseHeaders(500, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
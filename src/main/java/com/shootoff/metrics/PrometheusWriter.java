@@ -0,0 +1,86 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+/**
+ * Builds metrics in the Prometheus text exposition format. Every metric
+ * family is started with {@link #family} before its samples are added.
+ */
+final class PrometheusWriter {
+	private final StringBuilder text = new StringBuilder();
+
+	public PrometheusWriter family(String name, String type, String help) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+
+		return this;
+	}
+
+	/**
+	 * @param labels
+	 *            label names and values, alternating
+	 */
+	public PrometheusWriter sample(String name, double value, String... labels) {
+		text.append(name);
+
+		if (labels.length > 0) {
+			text.append('{');
+
+			for (int i = 0; i + 1 < labels.length; i += 2) {
+				if (i > 0) text.append(',');
+				text.append(labels[i]).append("=\"");
+				escape(labels[i + 1]);
+				text.append('"');
+			}
+
+			text.append('}');
+		}
+
+		text.append(' ');
+
+		if (Double.isInfinite(value))
+			text.append(value > 0 ? "+Inf" : "-Inf");
+		else if (value == Math.rint(value))
+			text.append((long) value);
+		else
+			text.append(value);
+
+		text.append('\n');
+
+		return this;
+	}
+
+	private void escape(String labelValue) {
+		for (int i = 0; i < labelValue.length(); i++) {
+			final char c = labelValue.charAt(i);
+
+			if (c == '\\' || c == '"')
+				text.append('\\').append(c);
+			else if (c == '\n')
+				text.append("\\n");
+			else
+				text.append(c);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return text.toString();
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.shootoff.Closeable;
+import com.shootoff.camera.CameraManager;
+import com.shootoff.camera.CamerasSupervisor;
+import com.shootoff.camera.FrameQueue;
+import com.shootoff.camera.FramePool;
+import com.shootoff.camera.LatencyHistogram;
+import com.shootoff.camera.StageLatencies;
+import com.shootoff.camera.processors.ShotProcessorCounts;
+import com.shootoff.config.Configuration;
+import com.shootoff.plugins.TrainingExerciseBase;
+
+/**
+ * Publishes the station's operational metrics through JMX and, if a metrics
+ * port is configured, a localhost HTTP endpoint in the Prometheus text
+ * format. Both the GUI and headless controllers start one for their cameras.
+ * Metrics are read from the running components when they are requested, thus
+ * publishing them costs nothing between requests.
+ */
+public final class StationMetrics implements StationMetricsMXBean, Closeable {
+	private static final Logger logger = LoggerFactory.getLogger(StationMetrics.class);
+
+	private static final String OBJECT_NAME = "com.shootoff:type=Station";
+	private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+	private final CamerasSupervisor camerasSupervisor;
+	private Optional<MetricsServer> server = Optional.empty();
+
+	private StationMetrics(CamerasSupervisor camerasSupervisor) {
+		this.camerasSupervisor = camerasSupervisor;
+	}
+
+	/**
+	 * Register the station's MBean and start serving metrics on the
+	 * configured port, if any. Failures are logged because metrics must never
+	 * keep PhanMemBanSung from running.
+	 */
+	public static StationMetrics start(Configuration config, CamerasSupervisor camerasSupervisor) {
+		final StationMetrics metrics = new StationMetrics(camerasSupervisor);
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (mbeanServer.isRegistered(name)) mbeanServer.unregisterMBean(name);
+			mbeanServer.registerMBean(metrics, name);
+		} catch (final JMException e) {
+			logger.warn("Failed to register station metrics", e);
+		}
+
+		if (config.getMetricsPort() > 0) {
+			try {
+				metrics.server = Optional.of(MetricsServer.start(config.getMetricsPort(), metrics::toPrometheusText));
+			} catch (final IOException e) {
+				logger.error("Failed to serve metrics on port " + config.getMetricsPort(), e);
+			}
+		}
+
+		return metrics;
+	}
+
+	@Override
+	public void close() {
+		if (server.isPresent()) server.get().close();
+		server = Optional.empty();
+
+		final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+
+		try {
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			if (mbeanServer.isRegistered(name)) mbeanServer.unregisterMBean(name);
+		} catch (final JMException e) {
+			logger.warn("Failed to unregister station metrics", e);
+		}
+	}
+
+	@Override
+	public int getCameraCount() {
+		return camerasSupervisor.getCameraManagers().size();
+	}
+
+	@Override
+	public Map<String, Long> getAcceptedShots() {
+		final Map<String, Long> shots = new HashMap<>();
+		for (final Map.Entry<String, ShotProcessorCounts.Counts> entry : ShotProcessorCounts.getCounts().entrySet())
+			shots.put(entry.getKey(), entry.getValue().getAcceptedCount());
+
+		return shots;
+	}
+
+	@Override
+	public Map<String, Long> getRejectedShots() {
+		final Map<String, Long> shots = new HashMap<>();
+		for (final Map.Entry<String, ShotProcessorCounts.Counts> entry : ShotProcessorCounts.getCounts().entrySet())
+			shots.put(entry.getKey(), entry.getValue().getRejectedCount());
+
+		return shots;
+	}
+
+	@Override
+	public int getPlayingVoiceCount() {
+		return TrainingExerciseBase.getPlayingVoiceCount();
+	}
+
+	@Override
+	public long getHeapUsedBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	@Override
+	public long getHeapMaxBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+	}
+
+	@Override
+	public long getFrameBytesInUse() {
+		long bytes = 0;
+		for (final CameraManager cameraManager : camerasSupervisor.getCameraManagers())
+			bytes += cameraManager.getFrameMemory().getBytesInUse();
+
+		return bytes;
+	}
+
+	@Override
+	public long getPooledFrameBytes() {
+		return FramePool.getPooledBytes();
+	}
+
+	@Override
+	public long getBufferPoolBytes() {
+		long bytes = 0;
+		for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+			bytes += pool.getMemoryUsed();
+
+		return bytes;
+	}
+
+	/**
+	 * @return every metric in the Prometheus text exposition format
+	 */
+	public String toPrometheusText() {
+		final PrometheusWriter writer = new PrometheusWriter();
+
+		writeCameraMetrics(writer);
+
+		writer.family("shootoff_shots_total", "counter", "Shots accepted and rejected by each shot processor");
+		for (final Map.Entry<String, ShotProcessorCounts.Counts> entry : ShotProcessorCounts.getCounts().entrySet()) {
+			writer.sample("shootoff_shots_total", entry.getValue().getAcceptedCount(), "processor", entry.getKey(),
+					"result", "accepted");
+			writer.sample("shootoff_shots_total", entry.getValue().getRejectedCount(), "processor", entry.getKey(),
+					"result", "rejected");
+		}
+
+		writer.family("shootoff_audio_voices", "gauge", "Sounds and spoken phrases playing right now")
+				.sample("shootoff_audio_voices", getPlayingVoiceCount());
+
+		final MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		writer.family("shootoff_heap_used_bytes", "gauge", "Java heap in use").sample("shootoff_heap_used_bytes",
+				heap.getUsed());
+		writer.family("shootoff_heap_max_bytes", "gauge", "Maximum Java heap size").sample("shootoff_heap_max_bytes",
+				heap.getMax());
+
+		writer.family("shootoff_frame_pool_bytes", "gauge", "Native memory of frames waiting in the frame pool")
+				.sample("shootoff_frame_pool_bytes", getPooledFrameBytes());
+
+		writer.family("shootoff_buffer_pool_bytes", "gauge", "Memory used by the JVM's direct and mapped buffers");
+		for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+			writer.sample("shootoff_buffer_pool_bytes", pool.getMemoryUsed(), "pool", pool.getName());
+
+		return writer.toString();
+	}
+
+	private void writeCameraMetrics(PrometheusWriter writer) {
+		final List<CameraManager> cameraManagers = new ArrayList<>(camerasSupervisor.getCameraManagers());
+
+		writer.family("shootoff_camera_fps", "gauge", "Frame rate reported by the camera");
+		for (final CameraManager cameraManager : cameraManagers)
+			writer.sample("shootoff_camera_fps", cameraManager.getFPS(), "camera", cameraManager.getName());
+
+		writer.family("shootoff_camera_median_fps", "gauge", "Frame rate implied by the median frame interval");
+		for (final CameraManager cameraManager : cameraManagers)
+			writer.sample("shootoff_camera_median_fps", cameraManager.getFrameTiming().getMedianFPS(), "camera",
+					cameraManager.getName());
+
+		writer.family("shootoff_camera_stalls_total", "counter", "Frames that took much longer than usual to arrive");
+		for (final CameraManager cameraManager : cameraManagers)
+			writer.sample("shootoff_camera_stalls_total", cameraManager.getFrameTiming().getStallCount(), "camera",
+					cameraManager.getName());
+
+		writer.family("shootoff_frames_dropped_total", "counter", "Frames dropped by each pipeline queue");
+		for (final CameraManager cameraManager : cameraManagers) {
+			for (final FrameQueue<?> queue : queues(cameraManager))
+				writer.sample("shootoff_frames_dropped_total", queue.getDroppedCount(), "camera",
+						cameraManager.getName(), "queue", queue.getName());
+		}
+
+		writer.family("shootoff_queue_depth", "gauge", "Frames waiting in each pipeline queue");
+		for (final CameraManager cameraManager : cameraManagers) {
+			for (final FrameQueue<?> queue : queues(cameraManager))
+				writer.sample("shootoff_queue_depth", queue.getDepth(), "camera", cameraManager.getName(), "queue",
+						queue.getName());
+		}
+
+		writer.family("shootoff_threshold_pixels", "gauge", "Pixels that could be part of a shot in the last frame");
+		for (final CameraManager cameraManager : cameraManagers) {
+			final int thresholdPixels = CameraMetrics.getThresholdPixelCount(cameraManager);
+			if (thresholdPixels >= 0)
+				writer.sample("shootoff_threshold_pixels", thresholdPixels, "camera", cameraManager.getName());
+		}
+
+		writer.family("shootoff_stage_latency_seconds", "summary", "Time spent in each frame pipeline stage");
+		for (final CameraManager cameraManager : cameraManagers) {
+			final StageLatencies latencies = cameraManager.getStageLatencies();
+
+			for (final StageLatencies.Stage stage : StageLatencies.Stage.values()) {
+				final String stageName = stage.name().toLowerCase();
+				final LatencyHistogram.Snapshot snapshot = latencies.get(stage).getSnapshot();
+
+				for (final double quantile : QUANTILES)
+					writer.sample("shootoff_stage_latency_seconds", snapshot.getPercentileNanos(quantile * 100) / 1e9,
+							"camera", cameraManager.getName(), "stage", stageName, "quantile",
+							String.valueOf(quantile));
+
+				writer.sample("shootoff_stage_latency_seconds_sum", snapshot.getTotalNanos() / 1e9, "camera",
+						cameraManager.getName(), "stage", stageName);
+				writer.sample("shootoff_stage_latency_seconds_count", snapshot.getCount(), "camera",
+						cameraManager.getName(), "stage", stageName);
+			}
+		}
+
+		writer.family("shootoff_frame_memory_bytes", "gauge", "Native memory held by each camera's unreleased frames");
+		for (final CameraManager cameraManager : cameraManagers)
+			writer.sample("shootoff_frame_memory_bytes", cameraManager.getFrameMemory().getBytesInUse(), "camera",
+					cameraManager.getName());
+	}
+
+	private static FrameQueue<?>[] queues(CameraManager cameraManager) {
+		return new FrameQueue<?>[] { cameraManager.getDetectionQueue(), cameraManager.getRecordingQueue(),
+				cameraManager.getDisplayQueue() };
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.metrics;
+
+import java.util.Map;
+
+/**
+ * Operational metrics for the whole station, registered with the platform
+ * MBean server as <code>com.shootoff:type=Station</code>. Per camera metrics
+ * are in {@link CameraMetricsMXBean}s.
+ */
+public interface StationMetricsMXBean {
+	int getCameraCount();
+
+	/**
+	 * @return the shots each kind of shot processor accepted, keyed by the
+	 *         processor's class name
+	 */
+	Map<String, Long> getAcceptedShots();
+
+	Map<String, Long> getRejectedShots();
+
+	/**
+	 * @return the number of sounds and spoken phrases playing right now
+	 */
+	int getPlayingVoiceCount();
+
+	long getHeapUsedBytes();
+
+	long getHeapMaxBytes();
+
+	/**
+	 * @return the native memory held by every camera's unreleased frames
+	 */
+	long getFrameBytesInUse();
+
+	/**
+	 * @return the native memory held by frames waiting in the frame pool
+	 */
+	long getPooledFrameBytes();
+
+	/**
+	 * @return the memory used by the JVM's direct and mapped buffers
+	 */
+	long getBufferPoolBytes();
+}
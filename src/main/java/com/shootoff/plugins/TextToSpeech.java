@@ -25,6 +25,8 @@ import javax.sound.sampled.AudioInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.shootoff.metrics.FlightRecorderEvents;
+
 import marytts.LocalMaryInterface;
 import marytts.MaryInterface;
 import marytts.exceptions.MaryConfigurationException;
@@ -60,6 +62,10 @@ public final class TextToSpeech {
 			return;
 		}
 
+		// Includes synthesizing the phrase, which is most of the wait before
+		// it is heard
+		final FlightRecorderEvents.AudioSpan audioEvent = FlightRecorderEvents.beginAudio();
+
 		try {
 			if (!inited) {
 				init();
@@ -68,7 +74,19 @@ public final class TextToSpeech {
 			if (comment.isEmpty()) return;
 
 			final AudioInputStream audio = marytts.generateAudio(comment);
-			final AudioPlayer player = new AudioPlayer(audio);
+			final AudioPlayer player = new AudioPlayer(audio) {
+				@Override
+				public void run() {
+					TrainingExerciseBase.voiceStarted();
+					audioEvent.commit("speech", comment);
+
+					try {
+						super.run();
+					} finally {
+						TrainingExerciseBase.voiceStopped();
+					}
+				}
+			};
 			player.start();
 		} catch (MaryConfigurationException | SynthesisException e) {
 			logger.error("Error sythesizing text to voice", e);
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -50,6 +51,7 @@ import com.shootoff.config.Configuration;
 import com.shootoff.gui.DelayedStartListener;
 import com.shootoff.gui.ParListener;
 import com.shootoff.gui.ShotEntry;
+import com.shootoff.metrics.FlightRecorderEvents;
 import com.shootoff.targets.Target;
 
 import javafx.application.Platform;
@@ -85,6 +87,9 @@ public abstract class TrainingExerciseBase {
 	protected Configuration config;
 	private static boolean isSilenced = false;
 
+	// Sounds and spoken phrases that are playing right now
+	private static final AtomicInteger playingVoices = new AtomicInteger();
+
 	@SuppressWarnings("unused") private List<Target> targets;
 	private CamerasSupervisor camerasSupervisor;
 	private TrainingExerciseView exerciseView;
@@ -486,9 +491,11 @@ public abstract class TrainingExerciseBase {
 			return;
 		}
 
+		final FlightRecorderEvents.AudioSpan audioEvent = FlightRecorderEvents.beginAudio();
+
 		try {
 			final AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(is);
-			playSound(audioInputStream, listener);
+			playSound(audioInputStream, listener, audioEvent, "stream");
 		} catch (UnsupportedAudioFileException | IOException e) {
 			logger.error("Error reading sound stream to play", e);
 		}
@@ -504,15 +511,24 @@ public abstract class TrainingExerciseBase {
 			soundFile = new File(System.getProperty("shootoff.home") + File.separator + soundFile.getPath());
 		}
 
+		final FlightRecorderEvents.AudioSpan audioEvent = FlightRecorderEvents.beginAudio();
+
 		try {
 			final AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(soundFile);
-			playSound(audioInputStream, listener);
+			playSound(audioInputStream, listener, audioEvent, soundFile.getName());
 		} catch (UnsupportedAudioFileException | IOException e) {
 			logger.error(String.format("Error reading sound file to play: soundFile = %s", soundFile), e);
 		}
 	}
 
-	private static void playSound(AudioInputStream audioInputStream, Optional<LineListener> listener) {
+	/**
+	 * @param audioEvent
+	 *            committed when the first of the sound is written to the line
+	 * @param source
+	 *            what is being played for <code>audioEvent</code>
+	 */
+	private static void playSound(AudioInputStream audioInputStream, Optional<LineListener> listener,
+			FlightRecorderEvents.AudioSpan audioEvent, String source) {
 		final AudioFormat format = audioInputStream.getFormat();
 		final DataLine.Info info = new DataLine.Info(SourceDataLine.class, format);
 
@@ -540,9 +556,11 @@ public abstract class TrainingExerciseBase {
 			}
 
 			final SourceDataLine sourceLine = line;
+			voiceStarted();
 			new Thread(() -> {
 				int nBytesRead = 0;
 				final byte[] abData = new byte[1024];
+				boolean started = false;
 				while (nBytesRead != -1) {
 					try {
 						nBytesRead = audioInputStream.read(abData, 0, abData.length);
@@ -551,11 +569,17 @@ public abstract class TrainingExerciseBase {
 					}
 					if (nBytesRead >= 0) {
 						sourceLine.write(abData, 0, nBytesRead);
+
+						if (!started) {
+							audioEvent.commit("sound", source);
+							started = true;
+						}
 					}
 				}
 
 				sourceLine.drain();
 				sourceLine.close();
+				voiceStopped();
 			}).start();
 		} catch (final LineUnavailableException e) {
 			if (line != null) line.close();
@@ -563,6 +587,22 @@ public abstract class TrainingExerciseBase {
 		}
 	}
 
+	/**
+	 * @return the number of sounds and text-to-speech phrases playing right
+	 *         now
+	 */
+	public static int getPlayingVoiceCount() {
+		return playingVoices.get();
+	}
+
+	static void voiceStarted() {
+		playingVoices.incrementAndGet();
+	}
+
+	static void voiceStopped() {
+		playingVoices.decrementAndGet();
+	}
+
 	public static void playSounds(final List<File> soundFiles) {
 		if (isSilenced) {
 			soundFiles.forEach(System.out::println);
@@ -0,0 +1,595 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.shootoff.camera.cameratypes.VideoFileCamera;
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.camera.shot.ShotColor;
+import com.shootoff.camera.shotdetection.JavaShotDetector;
+import com.shootoff.camera.shotdetection.ShotDetector;
+import com.shootoff.config.Configuration;
+import com.shootoff.config.ConfigurationException;
+import com.shootoff.targets.Target;
+
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.control.Label;
+import javafx.scene.paint.Color;
+
+/**
+ * Replays recorded videos through {@link CameraManager} and
+ * {@link JavaShotDetector} (or another detector, see {@link DetectorFactory})
+ * as fast as the CPU allows and reports how fast detection ran and whether it
+ * found the shots it should have, so that a change to the detector can be
+ * measured for both speed and correctness.
+ *
+ * Frames are stamped with their position in the video and
+ * {@link CaptureClock} follows the video (see {@link ReplayClock}), thus shot
+ * timestamps and deduplication behave as if the video was playing in real
+ * time.
+ *
+ * The shots a clip should produce are read from a file next to it with the
+ * same name plus <code>.shots</code>. Every line of that file is an expected
+ * shot as <code>x y</code> or <code>color x y</code> in camera coordinates,
+ * and lines starting with <code>#</code> are ignored. Clips without such a
+ * file are expected to have no shots if their names say so (e.g.
+ * <code>logitech-outdoor-bouncingtargets-noshots.mp4</code>) and are
+ * otherwise only timed.
+ *
+ * Run without arguments to replay every clip in
+ * <code>src/test/resources/shotsearcher</code>, or pass clips and directories
+ * of clips. The exit code is 1 if any clip missed an expected shot or found
+ * an unexpected one.
+ */
+public final class DetectionReplay {
+	private static final String DEFAULT_CORPUS = "src/test/resources/shotsearcher";
+	private static final String EXPECTED_SHOTS_EXTENSION = ".shots";
+	private static final List<String> VIDEO_EXTENSIONS = Arrays.asList(".mp4", ".avi", ".mov", ".mkv",
+			VideoFileCamera.RAW_EXTENSION);
+	private static final double DEFAULT_TOLERANCE = 10; // px
+
+	// Shots are handed to the view on their own threads, so give the last
+	// ones a moment to arrive after the last frame
+	private static final long SHOT_SETTLE_TIME = 250; // ms
+	private static final long MAXIMUM_SHOT_WAIT = 2000; // ms
+
+	private final double tolerance;
+	private final DetectorFactory detectorFactory;
+
+	/**
+	 * Creates the shot detector clips are replayed through.
+	 */
+	public interface DetectorFactory {
+		ShotDetector create(CameraManager cameraManager, CameraView cameraView);
+	}
+
+	public DetectionReplay(double tolerance) {
+		this(tolerance, JavaShotDetector::new);
+	}
+
+	public DetectionReplay(double tolerance, DetectorFactory detectorFactory) {
+		this.tolerance = tolerance;
+		this.detectorFactory = detectorFactory;
+	}
+
+	/**
+	 * A shot a clip is expected to produce.
+	 */
+	public static final class ExpectedShot {
+		private final Optional<ShotColor> color;
+		private final double x;
+		private final double y;
+
+		public ExpectedShot(Optional<ShotColor> color, double x, double y) {
+			this.color = color;
+			this.x = x;
+			this.y = y;
+		}
+
+		/**
+		 * @return a shot that matches where and in what color
+		 *         <code>shot</code> was detected, e.g. to compare two
+		 *         detectors
+		 */
+		public static ExpectedShot of(DisplayShot shot) {
+			return new ExpectedShot(Optional.of(shot.getColor()), shot.getBoundsX(), shot.getBoundsY());
+		}
+
+		public Optional<ShotColor> getColor() {
+			return color;
+		}
+
+		public double getX() {
+			return x;
+		}
+
+		public double getY() {
+			return y;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s(%.1f, %.1f)", color.isPresent() ? color.get() + " " : "", x, y);
+		}
+	}
+
+	/**
+	 * What happened when a clip was replayed.
+	 */
+	public static final class ClipResult {
+		private final File clip;
+		private final int frameCount;
+		private final long elapsedNanos;
+		private final long[] detectionNanos;
+		private final List<DisplayShot> shots;
+		private final Optional<List<ExpectedShot>> expectedShots;
+		private final List<ExpectedShot> missedShots;
+		private final List<DisplayShot> unexpectedShots;
+
+		private ClipResult(File clip, int frameCount, long elapsedNanos, long[] detectionNanos,
+				List<DisplayShot> shots, Optional<List<ExpectedShot>> expectedShots, List<ExpectedShot> missedShots,
+				List<DisplayShot> unexpectedShots) {
+			this.clip = clip;
+			this.frameCount = frameCount;
+			this.elapsedNanos = elapsedNanos;
+			this.detectionNanos = detectionNanos;
+			this.shots = shots;
+			this.expectedShots = expectedShots;
+			this.missedShots = missedShots;
+			this.unexpectedShots = unexpectedShots;
+		}
+
+		public File getClip() {
+			return clip;
+		}
+
+		public int getFrameCount() {
+			return frameCount;
+		}
+
+		/**
+		 * @return the frames decoded and processed per second of wall clock
+		 *         time
+		 */
+		public double getFPS() {
+			return elapsedNanos == 0 ? 0 : frameCount / (elapsedNanos / 1e9);
+		}
+
+		/**
+		 * @param percentile
+		 *            between 0 and 100
+		 * @return how long processing a frame took at the given percentile
+		 */
+		public long getDetectionPercentileNanos(double percentile) {
+			if (detectionNanos.length == 0) return 0;
+
+			final int rank = (int) Math.ceil(detectionNanos.length * percentile / 100.0);
+			return detectionNanos[Math.min(detectionNanos.length - 1, Math.max(0, rank - 1))];
+		}
+
+		public List<DisplayShot> getShots() {
+			return shots;
+		}
+
+		/**
+		 * @return the shots the clip should produce, if they are known
+		 */
+		public Optional<List<ExpectedShot>> getExpectedShots() {
+			return expectedShots;
+		}
+
+		public List<ExpectedShot> getMissedShots() {
+			return missedShots;
+		}
+
+		public List<DisplayShot> getUnexpectedShots() {
+			return unexpectedShots;
+		}
+
+		/**
+		 * @return <code>true</code> if the clip has known shots and the
+		 *         detector found exactly those
+		 */
+		public boolean isCorrect() {
+			return expectedShots.isPresent() && missedShots.isEmpty() && unexpectedShots.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder result = new StringBuilder(String.format(
+					"%s: %d frames at %.1f FPS, detection p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms, "
+							+ "%d shots",
+					clip.getName(), frameCount, getFPS(), getDetectionPercentileNanos(50) / 1e6,
+					getDetectionPercentileNanos(95) / 1e6, getDetectionPercentileNanos(99) / 1e6,
+					getDetectionPercentileNanos(100) / 1e6, shots.size()));
+
+			if (!expectedShots.isPresent()) {
+				result.append(" (no expected shots)");
+			} else {
+				result.append(String.format(", %d expected, %d missed, %d unexpected",
+						expectedShots.get().size(), missedShots.size(), unexpectedShots.size()));
+
+				for (final ExpectedShot missed : missedShots)
+					result.append(String.format("%n    missed %s", missed));
+
+				for (final DisplayShot unexpected : unexpectedShots)
+					result.append(String.format("%n    unexpected %s (%.1f, %.1f) at %d ms", unexpected.getColor(),
+							unexpected.getBoundsX(), unexpected.getBoundsY(), unexpected.getTimestamp()));
+			}
+
+			return result.toString();
+		}
+	}
+
+	/**
+	 * Replay one clip.
+	 *
+	 * @throws IOException
+	 *             if the clip or its expected shots can't be read
+	 */
+	public ClipResult replay(File clip) throws IOException {
+		return replay(clip, readExpectedShots(clip));
+	}
+
+	/**
+	 * Replay one clip and compare the shots found with
+	 * <code>expectedShots</code> instead of the clip's own expected shots.
+	 *
+	 * @throws IOException
+	 *             if the clip can't be read
+	 */
+	public ClipResult replay(File clip, Optional<List<ExpectedShot>> expectedShots) throws IOException {
+		final ReplayClock clock = new ReplayClock();
+		CaptureClock.setSource(clock);
+
+		final ReplayView view = new ReplayView();
+		final VideoFileCamera camera = new VideoFileCamera(
+				new VideoFileCamera.Playback(clip, VideoFileCamera.PlaybackRate.UNTHROTTLED, 0, false)) {
+			@Override
+			public ShotDetector getPreferredShotDetector(CameraManager cameraManager, CameraView cameraView) {
+				return detectorFactory.create(cameraManager, cameraView);
+			}
+		};
+
+		if (!camera.open()) throw new IOException("Failed to open " + clip.getPath());
+
+		final CameraManager cameraManager = new CameraManager(camera, null, view);
+		final List<Long> detectionNanos = new ArrayList<>();
+		final long elapsedNanos;
+
+		try {
+			final Dimension size = camera.getViewSize();
+			camera.setViewSize(size);
+			cameraManager.setFeedResolution(size.width, size.height);
+
+			final boolean[][] sectors = new boolean[JavaShotDetector.SECTOR_ROWS][JavaShotDetector.SECTOR_COLUMNS];
+			for (final boolean[] row : sectors)
+				Arrays.fill(row, true);
+			cameraManager.setSectorStatuses(sectors);
+
+			final long start = System.nanoTime();
+
+			Frame frame;
+			while ((frame = camera.readFrame()) != null) {
+				clock.set(frame.getCaptureNanos());
+
+				final long frameStart = System.nanoTime();
+				final Frame processed = cameraManager.processFrame(frame, false);
+				detectionNanos.add(System.nanoTime() - frameStart);
+
+				if (processed != frame) frame.release();
+				processed.release();
+			}
+
+			elapsedNanos = System.nanoTime() - start;
+		} finally {
+			cameraManager.close();
+			CaptureClock.useSystemSource();
+		}
+
+		final List<DisplayShot> shots = view.awaitShots();
+
+		final long[] sortedNanos = new long[detectionNanos.size()];
+		for (int i = 0; i < sortedNanos.length; i++)
+			sortedNanos[i] = detectionNanos.get(i);
+		Arrays.sort(sortedNanos);
+
+		final List<ExpectedShot> missedShots = new ArrayList<>();
+		final List<DisplayShot> unexpectedShots = new ArrayList<>();
+		if (expectedShots.isPresent()) match(expectedShots.get(), shots, missedShots, unexpectedShots);
+
+		return new ClipResult(clip, sortedNanos.length, elapsedNanos, sortedNanos, shots, expectedShots,
+				missedShots, unexpectedShots);
+	}
+
+	/**
+	 * Pair every expected shot with the closest detected shot of the right
+	 * color within the tolerance.
+	 */
+	private void match(List<ExpectedShot> expectedShots, List<DisplayShot> shots, List<ExpectedShot> missedShots,
+			List<DisplayShot> unexpectedShots) {
+		final List<DisplayShot> unmatched = new ArrayList<>(shots);
+
+		for (final ExpectedShot expected : expectedShots) {
+			DisplayShot closest = null;
+			double closestDistance = Double.MAX_VALUE;
+
+			for (final DisplayShot shot : unmatched) {
+				if (expected.getColor().isPresent() && expected.getColor().get() != shot.getColor()) continue;
+
+				final double distance = Math.hypot(shot.getBoundsX() - expected.getX(),
+						shot.getBoundsY() - expected.getY());
+
+				if (distance <= tolerance && distance < closestDistance) {
+					closest = shot;
+					closestDistance = distance;
+				}
+			}
+
+			if (closest == null) {
+				missedShots.add(expected);
+			} else {
+				unmatched.remove(closest);
+			}
+		}
+
+		unexpectedShots.addAll(unmatched);
+	}
+
+	private static Optional<List<ExpectedShot>> readExpectedShots(File clip) throws IOException {
+		final File shotsFile = new File(clip.getPath() + EXPECTED_SHOTS_EXTENSION);
+
+		if (!shotsFile.isFile()) {
+			final String name = clip.getName().toLowerCase(Locale.ENGLISH);
+			if (name.contains("noshots") || name.contains("no_shot")) return Optional.of(Collections.emptyList());
+
+			return Optional.empty();
+		}
+
+		final List<ExpectedShot> expectedShots = new ArrayList<>();
+
+		for (final String rawLine : Files.readAllLines(shotsFile.toPath(), StandardCharsets.UTF_8)) {
+			final String line = rawLine.trim();
+			if (line.isEmpty() || line.startsWith("#")) continue;
+
+			final String[] fields = line.split("\\s+");
+
+			try {
+				if (fields.length == 2) {
+					expectedShots.add(new ExpectedShot(Optional.empty(), Double.parseDouble(fields[0]),
+							Double.parseDouble(fields[1])));
+				} else if (fields.length == 3) {
+					expectedShots.add(new ExpectedShot(
+							Optional.of(ShotColor.valueOf(fields[0].toUpperCase(Locale.ENGLISH))),
+							Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+				} else {
+					throw new IOException("Malformed expected shot \"" + line + "\" in " + shotsFile.getPath());
+				}
+			} catch (final IllegalArgumentException e) {
+				throw new IOException("Malformed expected shot \"" + line + "\" in " + shotsFile.getPath(), e);
+			}
+		}
+
+		return Optional.of(expectedShots);
+	}
+
+	public static List<File> findClips(List<String> paths) {
+		final List<File> clips = new ArrayList<>();
+
+		for (final String path : paths) {
+			final File file = new File(path);
+
+			if (file.isDirectory()) {
+				final File[] children = file.listFiles();
+				if (children == null) continue;
+
+				Arrays.sort(children);
+				for (final File child : children) {
+					if (isVideo(child)) clips.add(child);
+				}
+			} else {
+				clips.add(file);
+			}
+		}
+
+		return clips;
+	}
+
+	private static boolean isVideo(File file) {
+		final String name = file.getName().toLowerCase(Locale.ENGLISH);
+
+		for (final String extension : VIDEO_EXTENSIONS) {
+			if (name.endsWith(extension)) return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Collects the shots the detector submits instead of showing them.
+	 */
+	private static final class ReplayView implements CameraView {
+		private final List<DisplayShot> shots = new ArrayList<>();
+		private long lastShotTime = System.currentTimeMillis();
+
+		@Override
+		public synchronized void addShot(DisplayShot shot, boolean isMirroredShot) {
+			shots.add(shot);
+			lastShotTime = System.currentTimeMillis();
+		}
+
+		/**
+		 * Wait until no shots have arrived for a moment.
+		 */
+		public synchronized List<DisplayShot> awaitShots() {
+			final long deadline = System.currentTimeMillis() + MAXIMUM_SHOT_WAIT;
+			lastShotTime = Math.max(lastShotTime, System.currentTimeMillis());
+
+			try {
+				long remaining;
+				while ((remaining = lastShotTime + SHOT_SETTLE_TIME - System.currentTimeMillis()) > 0
+						&& System.currentTimeMillis() < deadline) {
+					wait(remaining);
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return new ArrayList<>(shots);
+		}
+
+		@Override
+		public boolean addChild(Node c) {
+			return false;
+		}
+
+		@Override
+		public Optional<Target> addTarget(File targetFile) {
+			return Optional.empty();
+		}
+
+		@Override
+		public Target addTarget(Target newTarget) {
+			return newTarget;
+		}
+
+		@Override
+		public Label addDiagnosticMessage(String message, Color backgroundColor) {
+			return null;
+		}
+
+		@Override
+		public void clearShots() {}
+
+		@Override
+		public void close() {}
+
+		@Override
+		public boolean removeChild(Node c) {
+			return false;
+		}
+
+		@Override
+		public void removeDiagnosticMessage(Label diagnosticLabel) {}
+
+		@Override
+		public void reset() {}
+
+		@Override
+		public void setCameraManager(CameraManager cameraManager) {}
+
+		@Override
+		public void updateBackground(BufferedImage frame, Optional<Bounds> projectionBounds) {}
+
+		@Override
+		public void showFrame(Frame frame, Optional<Bounds> projectionBounds) {}
+	}
+
+	/**
+	 * @return a configuration with every option at its default rather than
+	 *         whatever the properties file on this machine says, so that
+	 *         replays give the same results everywhere
+	 */
+	public static Configuration defaultConfiguration() throws IOException, ConfigurationException {
+		// An empty properties stream leaves every option at its default
+		return new Configuration(new ByteArrayInputStream(new byte[0]), "replay defaults") {};
+	}
+
+	public static void main(String[] args) throws IOException, ConfigurationException {
+		final Options options = new Options();
+		options.addOption("t", "tolerance", true,
+				"how far in pixels a detected shot may be from an expected shot, " + DEFAULT_TOLERANCE
+						+ " by default");
+
+		final CommandLine cmd;
+		try {
+			cmd = new DefaultParser().parse(options, args);
+		} catch (final ParseException e) {
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("com.shootoff.camera.DetectionReplay [clip or directory]...", options);
+			System.exit(2);
+			return;
+		}
+
+		final double tolerance = cmd.hasOption("t") ? Double.parseDouble(cmd.getOptionValue("t"))
+				: DEFAULT_TOLERANCE;
+		final List<String> paths = cmd.getArgList().isEmpty() ? Collections.singletonList(DEFAULT_CORPUS)
+				: cmd.getArgList();
+
+		nu.pattern.OpenCV.loadShared();
+		defaultConfiguration();
+
+		final DetectionReplay replay = new DetectionReplay(tolerance);
+		final List<File> clips = findClips(paths);
+
+		int frameCount = 0;
+		long elapsedNanos = 0;
+		int correctCount = 0;
+		int checkedCount = 0;
+		boolean failed = false;
+
+		for (final File clip : clips) {
+			try {
+				final ClipResult result = replay.replay(clip);
+				System.out.println(result);
+
+				frameCount += result.getFrameCount();
+				elapsedNanos += result.elapsedNanos;
+
+				if (result.getExpectedShots().isPresent()) {
+					checkedCount++;
+					if (result.isCorrect())
+						correctCount++;
+					else
+						failed = true;
+				}
+			} catch (final IOException e) {
+				System.err.println(clip.getName() + ": " + e.getMessage());
+				failed = true;
+			}
+		}
+
+		System.out.println(String.format("%d clips, %d frames at %.1f FPS overall, %d of %d checked clips correct",
+				clips.size(), frameCount, elapsedNanos == 0 ? 0 : frameCount / (elapsedNanos / 1e9), correctCount,
+				checkedCount));
+
+		FramePool.clear();
+		System.exit(failed ? 1 : 0);
+	}
+}
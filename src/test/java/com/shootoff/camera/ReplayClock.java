@@ -0,0 +1,45 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera;
+
+/**
+ * A {@link CaptureClock} source that only moves when it is told to, e.g. to
+ * the position of each frame of a video that is replayed faster than real
+ * time.
+ */
+public final class ReplayClock implements CaptureClock.Source {
+	private volatile long nanos = 0;
+
+	@Override
+	public long nanoTime() {
+		return nanos;
+	}
+
+	/**
+	 * Move the clock to <code>nanos</code>. The clock never goes backwards,
+	 * thus earlier times are ignored.
+	 */
+	public void set(long nanos) {
+		if (nanos > this.nanos) this.nanos = nanos;
+	}
+
+	public void advance(long nanos) {
+		if (nanos > 0) this.nanos += nanos;
+	}
+}
@@ -0,0 +1,306 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.shootoff.camera.cameratypes;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfInt;
+import org.opencv.core.Scalar;
+import org.opencv.highgui.Highgui;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TestMjpegStreamReader {
+	private static final String BOUNDARY = "frame";
+	private static final int COLOR_TOLERANCE = 8;
+
+	private HttpServer server;
+	private ExecutorService readers;
+	private MjpegStreamReader reader;
+
+	@BeforeClass
+	public static void setUpBeforeClass() {
+		nu.pattern.OpenCV.loadShared();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.start();
+		readers = Executors.newSingleThreadExecutor();
+	}
+
+	@After
+	public void tearDown() {
+		if (reader != null) reader.close();
+		readers.shutdownNow();
+		server.stop(0);
+	}
+
+	@Test
+	public void testReadsMultipartStream() throws IOException {
+		final List<byte[]> jpegs = new ArrayList<>();
+		jpegs.add(solidJpeg(640, 480, new Scalar(0, 0, 255)));
+		jpegs.add(solidJpeg(640, 480, new Scalar(0, 255, 0)));
+		serveStream(jpegs, true);
+
+		reader = openReader();
+
+		assertColor(reader.read(), 640, 480, new Scalar(0, 0, 255));
+		assertColor(reader.read(), 640, 480, new Scalar(0, 255, 0));
+	}
+
+	@Test
+	public void testReadsMultipartStreamWithoutContentLengths() throws IOException {
+		final List<byte[]> jpegs = new ArrayList<>();
+		jpegs.add(solidJpeg(320, 240, new Scalar(255, 0, 0)));
+		jpegs.add(solidJpeg(320, 240, new Scalar(0, 0, 255)));
+		serveStream(jpegs, false);
+
+		reader = openReader();
+
+		assertColor(reader.read(), 320, 240, new Scalar(255, 0, 0));
+		assertColor(reader.read(), 320, 240, new Scalar(0, 0, 255));
+	}
+
+	@Test
+	public void testSmallFrameAfterBufferGrew() throws IOException {
+		// Noise doesn't compress, thus the first frame is larger than the
+		// initial buffer and the second frame only fills the start of it
+		final byte[] noise = noiseJpeg(1280, 960);
+		assertTrue(noise.length > 128 * 1024);
+
+		final List<byte[]> jpegs = new ArrayList<>();
+		jpegs.add(noise);
+		jpegs.add(solidJpeg(1280, 960, new Scalar(0, 255, 0)));
+		serveStream(jpegs, true);
+
+		reader = openReader();
+
+		final Mat first = reader.read();
+		assertEquals(1280, first.cols());
+		first.release();
+
+		assertColor(reader.read(), 1280, 960, new Scalar(0, 255, 0));
+	}
+
+	@Test
+	public void testRequestsSingleImages() throws IOException {
+		final byte[] jpeg = solidJpeg(320, 240, new Scalar(0, 255, 0));
+
+		server.createContext("/", exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "image/jpeg");
+			exchange.sendResponseHeaders(200, jpeg.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(jpeg);
+			}
+		});
+
+		reader = openReader();
+
+		// Every read needs a new request
+		assertColor(reader.read(), 320, 240, new Scalar(0, 255, 0));
+		assertColor(reader.read(), 320, 240, new Scalar(0, 255, 0));
+		assertEquals(0, reader.getReconnectCount());
+	}
+
+	@Test
+	public void testReconnectsAfterDroppedStream() throws IOException {
+		final byte[] red = solidJpeg(320, 240, new Scalar(0, 0, 255));
+		final byte[] green = solidJpeg(320, 240, new Scalar(0, 255, 0));
+		final AtomicInteger connections = new AtomicInteger();
+
+		server.createContext("/", exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+			exchange.sendResponseHeaders(200, 0);
+
+			try (OutputStream out = exchange.getResponseBody()) {
+				if (connections.getAndIncrement() == 0) {
+					writePart(out, red);
+
+					// Drop the connection half way through the second frame
+					writePartHeaders(out, green.length);
+					out.write(green, 0, green.length / 2);
+				} else {
+					writePart(out, green);
+					writePart(out, green);
+				}
+			}
+		});
+
+		reader = openReader();
+
+		assertColor(reader.read(), 320, 240, new Scalar(0, 0, 255));
+		assertColor(reader.read(), 320, 240, new Scalar(0, 255, 0));
+		assertColor(reader.read(), 320, 240, new Scalar(0, 255, 0));
+		assertEquals(1, reader.getReconnectCount());
+		assertEquals(2, connections.get());
+	}
+
+	@Test
+	public void testCloseUnblocksRead() throws Exception {
+		final CountDownLatch stalled = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+
+		server.createContext("/", exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+			exchange.sendResponseHeaders(200, 0);
+
+			final OutputStream out = exchange.getResponseBody();
+			out.write(("--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			stalled.countDown();
+
+			// Never send the frame
+			try {
+				finished.await(10, TimeUnit.SECONDS);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			exchange.close();
+		});
+
+		reader = openReader();
+
+		try {
+			final Future<Mat> read = readers.submit(reader::read);
+
+			assertTrue(stalled.await(5, TimeUnit.SECONDS));
+			reader.close();
+
+			assertThat(read.get(5, TimeUnit.SECONDS), is(nullValue()));
+			assertFalse(reader.isOpen());
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private MjpegStreamReader openReader() throws IOException {
+		final URL url = new URL("http", "127.0.0.1", server.getAddress().getPort(), "/");
+		final MjpegStreamReader r = new MjpegStreamReader("test", url, Optional.empty(), Optional.empty());
+		assertTrue(r.open());
+
+		return r;
+	}
+
+	private void serveStream(List<byte[]> jpegs, boolean sendContentLength) {
+		final HttpHandler handler = exchange -> {
+			exchange.getResponseHeaders().set("Content-Type", "multipart/x-mixed-replace; boundary=" + BOUNDARY);
+			exchange.sendResponseHeaders(200, 0);
+
+			try (OutputStream out = exchange.getResponseBody()) {
+				for (final byte[] jpeg : jpegs) {
+					writePartHeaders(out, sendContentLength ? jpeg.length : -1);
+					out.write(jpeg);
+					out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+				}
+			}
+		};
+
+		server.createContext("/", handler);
+	}
+
+	private static void writePart(OutputStream out, byte[] jpeg) throws IOException {
+		writePartHeaders(out, jpeg.length);
+		out.write(jpeg);
+		out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static void writePartHeaders(OutputStream out, int contentLength) throws IOException {
+		final StringBuilder headers = new StringBuilder();
+		headers.append("--").append(BOUNDARY).append("\r\n");
+		headers.append("Content-Type: image/jpeg\r\n");
+		if (contentLength >= 0) headers.append("Content-Length: ").append(contentLength).append("\r\n");
+		headers.append("\r\n");
+
+		out.write(headers.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+
+	private static byte[] solidJpeg(int width, int height, Scalar color) {
+		final Mat image = new Mat(height, width, CvType.CV_8UC3, color);
+		try {
+			return encode(image);
+		} finally {
+			image.release();
+		}
+	}
+
+	private static byte[] noiseJpeg(int width, int height) {
+		final Mat image = new Mat(height, width, CvType.CV_8UC3);
+		try {
+			Core.randu(image, 0, 256);
+			return encode(image);
+		} finally {
+			image.release();
+		}
+	}
+
+	private static byte[] encode(Mat image) {
+		final MatOfByte jpeg = new MatOfByte();
+		try {
+			Highgui.imencode(".jpg", image, jpeg, new MatOfInt(Highgui.CV_IMWRITE_JPEG_QUALITY, 95));
+			return jpeg.toArray();
+		} finally {
+			jpeg.release();
+		}
+	}
+
+	private static void assertColor(Mat frame, int width, int height, Scalar expected) {
+		try {
+			assertEquals(width, frame.cols());
+			assertEquals(height, frame.rows());
+
+			final double[] pixel = frame.get(height / 2, width / 2);
+			for (int channel = 0; channel < 3; channel++) {
+				assertEquals("channel " + channel, expected.val[channel], pixel[channel], COLOR_TOLERANCE);
+			}
+		} finally {
+			frame.release();
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * PhanMemBanSung - Software for Laser Dry Fire Training
+ * Copyright (C) 2016 phrack
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.shootoff.camera.shotdetection;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.shootoff.camera.DetectionReplay;
+import com.shootoff.camera.DetectionReplay.ClipResult;
+import com.shootoff.camera.DetectionReplay.ExpectedShot;
+import com.shootoff.camera.shot.DisplayShot;
+import com.shootoff.config.ConfigurationException;
+
+/**
+ * OpenCVShotDetector implements JavaShotDetector's algorithm with bulk
+ * operations, thus both must find the same shots in the same clips.
+ */
+public class TestOpenCVShotDetector {
+	private static final String CORPUS = "src/test/resources/shotsearcher";
+	private static final double TOLERANCE = 2; // px
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws IOException, ConfigurationException {
+		nu.pattern.OpenCV.loadShared();
+		DetectionReplay.defaultConfiguration();
+	}
+
+	@Test
+	public void testMatchesJavaShotDetector() throws IOException {
+		final DetectionReplay javaReplay = new DetectionReplay(TOLERANCE, JavaShotDetector::new);
+		final DetectionReplay openCVReplay = new DetectionReplay(TOLERANCE, OpenCVShotDetector::new);
+
+		final List<String> mismatches = new ArrayList<>();
+
+		for (final File clip : DetectionReplay.findClips(Collections.singletonList(CORPUS))) {
+			final List<ExpectedShot> javaShots = new ArrayList<>();
+			for (final DisplayShot shot : javaReplay.replay(clip).getShots())
+				javaShots.add(ExpectedShot.of(shot));
+
+			final ClipResult openCVResult = openCVReplay.replay(clip, Optional.of(javaShots));
+			if (!openCVResult.isCorrect()) mismatches.add(openCVResult.toString());
+		}
+
+		assertTrue("OpenCVShotDetector disagreed with JavaShotDetector:\n" + String.join("\n", mismatches),
+				mismatches.isEmpty());
+	}
+}